@@ -0,0 +1,204 @@
+package circlesimage;
+
+import engine.gfx.images.Image;
+
+/**
+ * This class stores the prefix sums of each row of a background
+ * image, for the red, green and blue channels and for their squares
+ *
+ * The color of a circle is constant, so the sum of the squared
+ * differences between the color and the pixels of a line only
+ * needs the sum of the pixels and the sum of the squares of the
+ * pixels of that line:
+ * sum((c - p)^2) = n * c^2 - 2 * c * sum(p) + sum(p^2)
+ * With the prefix sums, this is calculated in constant time for
+ * any line, so a circle is scored one line at time, in O(radius)
+ * The lines of a circle are the spans of the class DiskSpans
+ *
+ * The tables have to be built only once for each background image
+ * The sums are stored on integers, so rows can be up to 33000 pixels
+ *
+ * @class BackgroundPrefixTables
+ * @author Sergio Martí Torregrosa
+ * @date 14/11/2020
+ */
+public class BackgroundPrefixTables {
+
+    /**
+     * The maximum squared difference between two channels,
+     * 255 * 255
+     */
+    private static final double MAX_SQUARED_DIFFERENCE = 255.0 * 255.0;
+
+    /**
+     * The width of the background image
+     */
+    private final int width;
+
+    /**
+     * The height of the background image
+     */
+    private final int height;
+
+    /**
+     * The prefix sums of the red channel. Each row has width + 1
+     * values, the value x of a row is the sum of the pixels from
+     * 0 to x - 1 of that row
+     */
+    private final int[] sumRed;
+
+    /**
+     * The prefix sums of the green channel
+     */
+    private final int[] sumGreen;
+
+    /**
+     * The prefix sums of the blue channel
+     */
+    private final int[] sumBlue;
+
+    /**
+     * The prefix sums of the squares of the red channel
+     */
+    private final int[] sumRed2;
+
+    /**
+     * The prefix sums of the squares of the green channel
+     */
+    private final int[] sumGreen2;
+
+    /**
+     * The prefix sums of the squares of the blue channel
+     */
+    private final int[] sumBlue2;
+
+    /**
+     * Constructor, it builds all the tables
+     * @param image the background image
+     */
+    public BackgroundPrefixTables(Image image) {
+        int[] p = image.getP();
+        if ( p == null ) {
+            width = 0;
+            height = 0;
+        } else {
+            width = image.getW();
+            height = image.getH();
+        }
+
+        int size = (width + 1) * height;
+        sumRed = new int[size];
+        sumGreen = new int[size];
+        sumBlue = new int[size];
+        sumRed2 = new int[size];
+        sumGreen2 = new int[size];
+        sumBlue2 = new int[size];
+
+        for ( int y = 0; y < height; y++ ) {
+            int row = y * (width + 1);
+            for ( int x = 0; x < width; x++ ) {
+                int pixel = p[y * width + x];
+                int red = (pixel >> 16) & 0xff;
+                int green = (pixel >> 8) & 0xff;
+                int blue = pixel & 0xff;
+                sumRed[row + x + 1] = sumRed[row + x] + red;
+                sumGreen[row + x + 1] = sumGreen[row + x] + green;
+                sumBlue[row + x + 1] = sumBlue[row + x] + blue;
+                sumRed2[row + x + 1] = sumRed2[row + x] + red * red;
+                sumGreen2[row + x + 1] = sumGreen2[row + x] + green * green;
+                sumBlue2[row + x + 1] = sumBlue2[row + x] + blue * blue;
+            }
+        }
+    }
+
+    /**
+     * This method calculates the sum of the squared differences of the
+     * three channels between a color and the pixels of a line
+     * The line has to be inside the image
+     * @param sx start x, inclusive
+     * @param ex end x, exclusive
+     * @param y the y coordinate
+     * @param red the red channel of the color
+     * @param green the green channel of the color
+     * @param blue the blue channel of the color
+     * @return the sum of the squared differences of the line
+     */
+    public long calculateLineSquaredError(int sx, int ex, int y, int red, int green, int blue) {
+        int row = y * (width + 1);
+        long n = ex - sx;
+        return n * (red * red + green * green + blue * blue)
+                - 2L * red * (sumRed[row + ex] - sumRed[row + sx])
+                - 2L * green * (sumGreen[row + ex] - sumGreen[row + sx])
+                - 2L * blue * (sumBlue[row + ex] - sumBlue[row + sx])
+                + (long) (sumRed2[row + ex] - sumRed2[row + sx])
+                + (long) (sumGreen2[row + ex] - sumGreen2[row + sx])
+                + (long) (sumBlue2[row + ex] - sumBlue2[row + sx]);
+    }
+
+    /**
+     * This method calculates the sum of the similarities (the values
+     * what returns the getSimilarity() method of the CircleColor class)
+     * between a color and each pixel of a line
+     * The line has to be inside the image
+     * @param sx start x, inclusive
+     * @param ex end x, exclusive
+     * @param y the y coordinate
+     * @param color the color to compare
+     * @return the sum of the similarities of all the pixels of the line
+     */
+    public double calculateLineSimilarity(int sx, int ex, int y, CircleColor color) {
+        long error = calculateLineSquaredError(sx, ex, y, color.getRed(), color.getGreen(), color.getBlue());
+        return (ex - sx) - error / (3.0 * MAX_SQUARED_DIFFERENCE);
+    }
+
+    /**
+     * This method sets the color specified on the parameters to the
+     * mean color of the pixels of the background image covered by a disk
+     * This is the color which gives the minimum squared error for the disk
+     * The pixels covered by the disk are defined by the class DiskSpans
+     * The alpha channel of the color is not changed
+     * @param cx the x coordinate of the center of the disk
+     * @param cy the y coordinate of the center of the disk
+     * @param radius the radius of the disk
+     * @param color the color where the mean color is stored
+     * @return if the disk covers any pixel of the image. If not, the color is not changed
+     */
+    public boolean calculateMeanColor(int cx, int cy, int radius, CircleColor color) {
+        long red = 0;
+        long green = 0;
+        long blue = 0;
+        long count = 0;
+        int firstRow = Math.max(cy - radius, 0);
+        int lastRow = Math.min(cy + radius, height - 1);
+        for ( int y = firstRow; y <= lastRow; y++ ) {
+            int halfWidth = DiskSpans.getHalfWidth(radius, y - cy);
+            int sx = Math.max(cx - halfWidth, 0);
+            int ex = Math.min(cx + halfWidth + 1, width);
+            if ( ex > sx ) {
+                int row = y * (width + 1);
+                red += sumRed[row + ex] - sumRed[row + sx];
+                green += sumGreen[row + ex] - sumGreen[row + sx];
+                blue += sumBlue[row + ex] - sumBlue[row + sx];
+                count += ex - sx;
+            }
+        }
+        if ( count == 0 ) {
+            return false;
+        }
+        color.setRed((int) ((red + count / 2) / count));
+        color.setGreen((int) ((green + count / 2) / count));
+        color.setBlue((int) ((blue + count / 2) / count));
+        return true;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+}
@@ -1,5 +1,8 @@
 package circlesimage;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
 /**
  * This class contains static methods
  * for calculate the fitness between to
@@ -12,6 +15,59 @@ package circlesimage;
  */
 public class BuffersFitnessCalculator {
 
+    /**
+     * The maximum value of a color channel
+     */
+    private static final int MAX_CHANNEL_VALUE = 255;
+
+    /**
+     * The maximum squared difference between two channels,
+     * 255 * 255
+     */
+    private static final double MAX_SQUARED_DIFFERENCE = MAX_CHANNEL_VALUE * MAX_CHANNEL_VALUE;
+
+    /**
+     * Lookup table with the squared differences between two
+     * channels. The difference between two channels goes
+     * from -255 to 255, so the table has 511 entries and
+     * it is indexed by the difference plus 255
+     */
+    private static final int[] SQUARED_DIFFERENCES = buildSquaredDifferences();
+
+    /**
+     * The number of pixels what are summed into an integer
+     * before move the partial sum to the long accumulator
+     * The error of one pixel is, at most, 4 * 255 * 255, so
+     * 8192 pixels can be summed without overflow
+     */
+    private static final int LANES_BLOCK_SIZE = 8192;
+
+    /**
+     * The number of rows of each band on the parallel
+     * kernel. It doesn't depend of the number of threads,
+     * so the partial sums are always the same
+     */
+    private static final int ROWS_BY_BAND = 16;
+
+    /**
+     * The default number of pixels below which the parallel
+     * kernel stays sequential, 2^18 pixels, a bit more than 512 x 512
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 18;
+
+    /**
+     * This method builds the lookup table of the squared differences
+     * @return the table with the 511 squared differences
+     */
+    private static int[] buildSquaredDifferences() {
+        int[] table = new int[2 * MAX_CHANNEL_VALUE + 1];
+        for ( int i = 0; i < table.length; i++ ) {
+            int difference = i - MAX_CHANNEL_VALUE;
+            table[i] = difference * difference;
+        }
+        return table;
+    }
+
     /**
      * This method calculates the fitness of two
      * integer arrays (each integer represent a hex code
@@ -34,4 +90,198 @@ public class BuffersFitnessCalculator {
         return fitness / (double) front.length;
     }
 
+    /**
+     * This method calculates the sum of the squared differences
+     * of the four channels between the pixels of the two buffers,
+     * from the index "from" (inclusive) to the index "to" (exclusive)
+     * The channels are read straight from the packed integers, so
+     * it doesn't build any object
+     * @param back the background buffer
+     * @param front the front buffer
+     * @param from the first index
+     * @param to the last index, exclusive
+     * @return the sum of the squared differences of all channels
+     */
+    public static long calculateSquaredError(int[] back, int[] front, int from, int to) {
+        final int[] squares = SQUARED_DIFFERENCES;
+        long error = 0;
+        for ( int i = from; i < to; i++ ) {
+            int b = back[i];
+            int f = front[i];
+            error += squares[((f >>> 24) - (b >>> 24)) + MAX_CHANNEL_VALUE]
+                    + squares[((f >> 16) & 0xff) - ((b >> 16) & 0xff) + MAX_CHANNEL_VALUE]
+                    + squares[((f >> 8) & 0xff) - ((b >> 8) & 0xff) + MAX_CHANNEL_VALUE]
+                    + squares[(f & 0xff) - (b & 0xff) + MAX_CHANNEL_VALUE];
+        }
+        return error;
+    }
+
+    /**
+     * This method calculates the same sum of squared differences
+     * as the method calculateSquaredError(), but the loop is written
+     * so the JIT compiler can vectorize it: there isn't lookup table
+     * (the loads of the table are gathers), the channels are unpacked
+     * with shifts and masks, and the pixels are summed in blocks into an
+     * integer, which is reduced in wide lanes, before moving the block
+     * sum into the long
+     * @param back the background buffer
+     * @param front the front buffer
+     * @param from the first index
+     * @param to the last index, exclusive
+     * @return the sum of the squared differences of all channels
+     */
+    public static long calculateSquaredErrorLanes(int[] back, int[] front, int from, int to) {
+        long error = 0;
+        for ( int blockStart = from; blockStart < to; blockStart += LANES_BLOCK_SIZE ) {
+            int blockEnd = Math.min(blockStart + LANES_BLOCK_SIZE, to);
+            int blockError = 0;
+            for ( int i = blockStart; i < blockEnd; i++ ) {
+                int b = back[i];
+                int f = front[i];
+                int da = (f >>> 24) - (b >>> 24);
+                int dr = ((f >> 16) & 0xff) - ((b >> 16) & 0xff);
+                int dg = ((f >> 8) & 0xff) - ((b >> 8) & 0xff);
+                int db = (f & 0xff) - (b & 0xff);
+                blockError += da * da + dr * dr + dg * dg + db * db;
+            }
+            error += blockError;
+        }
+        return error;
+    }
+
+    /**
+     * This method turns the sum of the squared differences of
+     * a number of pixels into the fitness, the same value
+     * what returns the average of the getSimilarityAlphaAlso()
+     * method of the CircleColor class for all those pixels
+     * @param error the sum of the squared differences of the four channels
+     * @param numPixels the number of pixels
+     * @return the fitness, from 0 to 1
+     */
+    public static double errorToFitness(long error, int numPixels) {
+        return 1.0 - (error / (4.0 * MAX_SQUARED_DIFFERENCE)) / (double) numPixels;
+    }
+
+    /**
+     * This method calculates the same fitness as the method
+     * calculateImageFitness(), but it doesn't allocate any
+     * object. The channels are read from the packed integers
+     * and the squared differences are taken from a lookup table
+     * and summed into a long
+     * @param back the background buffer
+     * @param front the front buffer
+     * @return the fitness of the front image with the back image
+     */
+    public static double calculateImageFitnessPacked(int[] back, int[] front) {
+        return errorToFitness(calculateSquaredError(back, front, 0, front.length), front.length);
+    }
+
+    /**
+     * This method calculates the same fitness as the method
+     * calculateImageFitnessPacked(), with the kernel which
+     * can be vectorized by the JIT compiler
+     * @param back the background buffer
+     * @param front the front buffer
+     * @return the fitness of the front image with the back image
+     */
+    public static double calculateImageFitnessLanes(int[] back, int[] front) {
+        return errorToFitness(calculateSquaredErrorLanes(back, front, 0, front.length), front.length);
+    }
+
+    /**
+     * This method calculates the same fitness as the method
+     * calculateImageFitnessLanes(), but the buffers are split
+     * in bands of rows and the error of each band is calculated
+     * on the threads of the pool specified on the parameters
+     * The partial errors are integers, so the result is always
+     * the same no matter how many threads run it
+     * If the buffers have less pixels than the parallel threshold,
+     * the fitness is calculated on the caller thread
+     * @param back the background buffer
+     * @param front the front buffer
+     * @param width the width of the buffers, the number of pixels of a row
+     * @param pool the pool which runs the bands
+     * @param parallelThreshold the number of pixels below which it stays sequential
+     * @return the fitness of the front image with the back image
+     */
+    public static double calculateImageFitnessParallel(int[] back, int[] front, int width, ForkJoinPool pool,
+                                                       int parallelThreshold) {
+        if ( front.length < parallelThreshold || width <= 0 ) {
+            return calculateImageFitnessLanes(back, front);
+        }
+        int numRows = (front.length + width - 1) / width;
+        long error = pool.invoke(new RowBandsErrorTask(back, front, width, 0, numRows));
+        return errorToFitness(error, front.length);
+    }
+
+    /**
+     * This method calculates the fitness with the parallel kernel
+     * on the common pool, with a parallel threshold
+     * @param back the background buffer
+     * @param front the front buffer
+     * @param width the width of the buffers, the number of pixels of a row
+     * @param parallelThreshold the number of pixels below which it stays sequential
+     * @return the fitness of the front image with the back image
+     */
+    public static double calculateImageFitnessParallel(int[] back, int[] front, int width, int parallelThreshold) {
+        return calculateImageFitnessParallel(back, front, width, ForkJoinPool.commonPool(), parallelThreshold);
+    }
+
+    /**
+     * This method calculates the fitness with the parallel kernel
+     * on the common pool, with the default parallel threshold
+     * @param back the background buffer
+     * @param front the front buffer
+     * @param width the width of the buffers, the number of pixels of a row
+     * @return the fitness of the front image with the back image
+     */
+    public static double calculateImageFitnessParallel(int[] back, int[] front, int width) {
+        return calculateImageFitnessParallel(back, front, width, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * This task calculates the error of a range of rows
+     * If the range is bigger than a band, it is split in two
+     * halves which are calculated in parallel
+     */
+    private static class RowBandsErrorTask extends RecursiveTask<Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] back;
+
+        private final int[] front;
+
+        private final int width;
+
+        private final int firstRow;
+
+        private final int lastRow;
+
+        private RowBandsErrorTask(int[] back, int[] front, int width, int firstRow, int lastRow) {
+            this.back = back;
+            this.front = front;
+            this.width = width;
+            this.firstRow = firstRow;
+            this.lastRow = lastRow;
+        }
+
+        @Override
+        protected Long compute() {
+            int numRows = lastRow - firstRow;
+            if ( numRows <= ROWS_BY_BAND ) {
+                int from = firstRow * width;
+                int to = Math.min(lastRow * width, front.length);
+                return calculateSquaredErrorLanes(back, front, from, to);
+            }
+            int middleRow = firstRow + numRows / 2;
+            RowBandsErrorTask top = new RowBandsErrorTask(back, front, width, firstRow, middleRow);
+            RowBandsErrorTask bottom = new RowBandsErrorTask(back, front, width, middleRow, lastRow);
+            bottom.fork();
+            long topError = top.compute();
+            return topError + bottom.join();
+        }
+
+    }
+
 }
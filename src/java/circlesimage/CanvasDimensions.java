@@ -0,0 +1,52 @@
+package circlesimage;
+
+/**
+ * This class represents the dimensions of the canvas
+ * where the circles live: its width and its height
+ *
+ * The populations only need the dimensions of the canvas, so
+ * they don't depend on the GameContainer of the engine and
+ * they can be evolved without a window
+ *
+ * @class CanvasDimensions
+ * @author Sergio Martí Torregrosa
+ * @date 24/11/2020
+ */
+public class CanvasDimensions {
+
+    /**
+     * The width of the canvas
+     */
+    private final int width;
+
+    /**
+     * The height of the canvas
+     */
+    private final int height;
+
+    /**
+     * Constructor
+     * @param width the width of the canvas
+     * @param height the height of the canvas
+     */
+    public CanvasDimensions(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public String toString() {
+        return width + "x" + height;
+    }
+
+}
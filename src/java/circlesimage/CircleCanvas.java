@@ -0,0 +1,143 @@
+package circlesimage;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * This class is a buffer of pixels where the circles are drawn
+ * without the Renderer of the engine, which needs a window
+ *
+ * The circles are drawn row by row with the spans of the class
+ * DiskSpans, the same rows what are used for scoring them, and
+ * the colors with transparency are blended with the pixels what
+ * are under them. The buffer can be written to an image file
+ * without a display, so it works with java.awt.headless=true
+ *
+ * @class CircleCanvas
+ * @author Sergio Martí Torregrosa
+ * @date 24/11/2020
+ */
+public class CircleCanvas {
+
+    /**
+     * The dimensions of the canvas
+     */
+    private final CanvasDimensions dimensions;
+
+    /**
+     * The pixels of the canvas, with the same
+     * layout as the pixels of the engine images
+     */
+    private final int[] p;
+
+    /**
+     * Constructor
+     * @param dimensions the dimensions of the canvas
+     */
+    public CircleCanvas(CanvasDimensions dimensions) {
+        this.dimensions = dimensions;
+        p = new int[dimensions.getWidth() * dimensions.getHeight()];
+    }
+
+    /**
+     * Constructor, for drawing on the pixels of other buffer,
+     * like the pixels of a renderer of the engine
+     * @param p the pixels, with the same layout as the pixels of the engine images
+     * @param dimensions the dimensions of the canvas
+     */
+    public CircleCanvas(int[] p, CanvasDimensions dimensions) {
+        if ( p.length != dimensions.getWidth() * dimensions.getHeight() ) {
+            throw new IllegalArgumentException("The buffer of " + p.length + " pixels isn't of "
+                    + dimensions.getWidth() + " x " + dimensions.getHeight() + " pixels");
+        }
+        this.dimensions = dimensions;
+        this.p = p;
+    }
+
+    /**
+     * This method fills all the canvas with a color
+     * @param colorCode the hex code of the color
+     */
+    public void clear(int colorCode) {
+        for ( int i = 0; i < p.length; i++ ) {
+            p[i] = colorCode;
+        }
+    }
+
+    /**
+     * This method blends a color over a pixel
+     * @param pixel the pixel
+     * @param colorCode the hex code of the color
+     * @param alpha the alpha channel of the color
+     * @return the new pixel
+     */
+    private static int blend(int pixel, int colorCode, int alpha) {
+        int inverse = 255 - alpha;
+        int red = (((colorCode >> 16) & 0xff) * alpha + ((pixel >> 16) & 0xff) * inverse) / 255;
+        int green = (((colorCode >> 8) & 0xff) * alpha + ((pixel >> 8) & 0xff) * inverse) / 255;
+        int blue = ((colorCode & 0xff) * alpha + (pixel & 0xff) * inverse) / 255;
+        return 0xff000000 | red << 16 | green << 8 | blue;
+    }
+
+    /**
+     * This method draws a filled circle
+     * @param cx the x coordinate of the center
+     * @param cy the y coordinate of the center
+     * @param radius the radius
+     * @param colorCode the hex code of the color
+     */
+    public void drawFillCircle(int cx, int cy, int radius, int colorCode) {
+        int alpha = colorCode >>> 24;
+        if ( alpha == 0 || radius < 0 ) {
+            return;
+        }
+        int width = dimensions.getWidth();
+        int firstRow = Math.max(cy - radius, 0);
+        int lastRow = Math.min(cy + radius, dimensions.getHeight() - 1);
+        for ( int y = firstRow; y <= lastRow; y++ ) {
+            int halfWidth = DiskSpans.getHalfWidth(radius, y - cy);
+            int from = y * width + Math.max(cx - halfWidth, 0);
+            int to = y * width + Math.min(cx + halfWidth + 1, width);
+            if ( alpha == 255 ) {
+                for ( int i = from; i < to; i++ ) {
+                    p[i] = colorCode;
+                }
+            } else {
+                for ( int i = from; i < to; i++ ) {
+                    p[i] = blend(p[i], colorCode, alpha);
+                }
+            }
+        }
+    }
+
+    /**
+     * This method writes the canvas to an image file
+     * The format is the extension of the file, png by default
+     * @param file the image file
+     * @throws IOException if the file can't be written
+     */
+    public void write(File file) throws IOException {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        String format = dot < 0 ? "png" : name.substring(dot + 1).toLowerCase();
+
+        BufferedImage image = new BufferedImage(dimensions.getWidth(), dimensions.getHeight(), BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, dimensions.getWidth(), dimensions.getHeight(), p, 0, dimensions.getWidth());
+        if ( !ImageIO.write(image, format, file) ) {
+            throw new IOException("There isn't any writer for the format " + format);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////
+
+    public CanvasDimensions getDimensions() {
+        return dimensions;
+    }
+
+    public int[] getP() {
+        return p;
+    }
+
+}
@@ -106,6 +106,18 @@ public class CircleColor {
         return (alpha << 24 | red << 16 | green << 8 | blue);
     }
 
+    /**
+     * This method sets the four channels from
+     * the hex code of a color
+     * @param hexCode the hex code of the color
+     */
+    public void setCode(int hexCode) {
+        alpha = ((hexCode >> 24) & 0xff);
+        red = ((hexCode >> 16) & 0xff);
+        green = ((hexCode >> 8) & 0xff);
+        blue = (hexCode & 0xff);
+    }
+
     /**
      * This method also is really important, because
      * measures the similarity with other color
@@ -44,6 +44,13 @@ public class CircleImage {
      */
     private int id;
 
+    /**
+     * The serial number of the circle on its population. The
+     * population gives increasing serials to the circles when they
+     * are born, so two circles never have the same serial
+     */
+    private long serial;
+
     /**
      * The color of the circle
      */
@@ -86,74 +93,137 @@ public class CircleImage {
     }
 
     /**
-     * This method measures the value which have
-     * a full line with a background image
-     * @param sx start x
-     * @param ex end x
-     * @param ny the y coordinate
-     * @param image the image
-     * @return the score of all line which compose the circle
+     * The maximum squared difference between two channels,
+     * 255 * 255
      */
-    private double calculateScoreOfLine(int sx, int ex, int ny, Image image) {
-        double score = 0.0;
-        int count = 1;
-        for ( int i = sx; i < ex; i++ ) {
-            if ( !(sx < 0 || ex >= image.getW() || ny < 0 || ny >= image.getH()) ) {
-                score += color.getSimilarity(new CircleColor(image.getPixel(i, ny)));
-                count++;
-            }
+    private static final double MAX_SQUARED_DIFFERENCE = 255.0 * 255.0;
+
+    /**
+     * This method calculates the sum of the squared differences
+     * of the three channels between a color and the pixels of a
+     * line of the background image
+     * @param p the pixels of the background image
+     * @param from the index of the first pixel of the line
+     * @param to the index of the last pixel of the line, exclusive
+     * @param red the red channel of the color
+     * @param green the green channel of the color
+     * @param blue the blue channel of the color
+     * @return the sum of the squared differences of the line
+     */
+    private static long calculateSquaredErrorOfLine(int[] p, int from, int to, int red, int green, int blue) {
+        long error = 0;
+        for ( int i = from; i < to; i++ ) {
+            int pixel = p[i];
+            int dr = ((pixel >> 16) & 0xff) - red;
+            int dg = ((pixel >> 8) & 0xff) - green;
+            int db = (pixel & 0xff) - blue;
+            error += dr * dr + dg * dg + db * db;
         }
-        return score / (double)count;
+        return error;
     }
 
     /**
-     * This method calculates the similarity of
-     * this circle with the background image
-     * This is stored inside the size field
-     * @param image the background image
+     * This method calculates the similarity of a circle with the
+     * background image: the average of the similarities between the
+     * color of the circle and each pixel of the background image what
+     * the circle covers. The circle is visited row by row with the
+     * spans of the class DiskSpans, and each row is clipped once
+     * It is shared by all the ways of storing the circles
+     * @param cx the x coordinate of the center of the circle
+     * @param cy the y coordinate of the center of the circle
+     * @param radius the radius of the circle
+     * @param colorCode the hex code of the color of the circle
+     * @param image the background image, not used if there are prefix tables
+     * @param tables the prefix tables of the background image, or null
+     * @return the score of the circle
      */
-    public void calculateScore(Image image) {
-        int x0 = 0;
-        int y0 = (int)size;
-        int d = 3 - 2 * (int)size;
-        if ( size == 0 ) {
-            score = 0;
+    static double calculateScore(int cx, int cy, int radius, int colorCode, Image image, BackgroundPrefixTables tables) {
+        int[] p = null;
+        int width;
+        int height;
+        if ( tables != null ) {
+            width = tables.getWidth();
+            height = tables.getHeight();
+        } else {
+            p = image.getP();
+            width = p == null ? 0 : image.getW();
+            height = p == null ? 0 : image.getH();
         }
 
-        int count = 0;
-
-        while ( y0 >= x0 ) {
-            count++;
-
-            score += calculateScoreOfLine((int)(position.getX() - x0), (int)(position.getX() + x0), (int)(position.getY() - y0), image);
-            score += calculateScoreOfLine((int)(position.getX() - y0), (int)(position.getX() + y0), (int)(position.getY() - x0), image);
-            score += calculateScoreOfLine((int)(position.getX() - x0), (int)(position.getX() + x0), (int)(position.getY() + y0), image);
-            score += calculateScoreOfLine((int)(position.getX() - y0), (int)(position.getX() + y0), (int)(position.getY() + x0), image);
+        int red = (colorCode >> 16) & 0xff;
+        int green = (colorCode >> 8) & 0xff;
+        int blue = colorCode & 0xff;
+        int firstRow = Math.max(cy - radius, 0);
+        int lastRow = Math.min(cy + radius, height - 1);
 
-            if (d < 0) {
-                d += 4 * x0++ + 6;
-            } else {
-                d += 4 * (x0++ - y0--) + 10;
+        long error = 0;
+        long count = 0;
+        for ( int y = firstRow; y <= lastRow; y++ ) {
+            int halfWidth = DiskSpans.getHalfWidth(radius, y - cy);
+            int sx = Math.max(cx - halfWidth, 0);
+            int ex = Math.min(cx + halfWidth + 1, width);
+            if ( ex > sx ) {
+                if ( tables != null ) {
+                    error += tables.calculateLineSquaredError(sx, ex, y, red, green, blue);
+                } else {
+                    error += calculateSquaredErrorOfLine(p, y * width + sx, y * width + ex, red, green, blue);
+                }
+                count += ex - sx;
             }
         }
 
-        score /= (4 * count);
+        if ( count == 0 ) {
+            return 0;
+        }
+        return 1 - error / (3.0 * MAX_SQUARED_DIFFERENCE * count);
     }
 
     /**
-     * This method draws the circle on screen
-     * @param r the renderer object with all drawing methods
-     * @param isDrawingBorder if the method has to draw the border of the circle
-     * @param isDrawingScore if the method has to draw the score of the circle
+     * This method calculates the similarity of
+     * this circle with the background image
+     * This is the average of the similarities between the color
+     * of the circle and each pixel of the background image what the
+     * circle covers, and it is stored inside the score field
+     * @param image the background image
      */
-    public void drawYourSelf(Renderer r, boolean isDrawingBorder, boolean isDrawingScore) {
-        r.drawFillCircle(
+    public void calculateScore(Image image) {
+        score = calculateScore((int)position.getX(), (int)position.getY(), (int)size, color.getCode(), image, null);
+    }
+
+    /**
+     * This method calculates the similarity of this
+     * circle with the background image, the same as the
+     * method calculateScore(Image), but each line of the circle
+     * is scored in constant time with the prefix tables of the
+     * background image, so it is O(radius) instead of O(radius^2)
+     * @param tables the prefix tables of the background image
+     */
+    public void calculateScore(BackgroundPrefixTables tables) {
+        score = calculateScore((int)position.getX(), (int)position.getY(), (int)size, color.getCode(), null, tables);
+    }
+
+    /**
+     * This method draws the circle on a canvas, with the
+     * same spans of pixels what are used for scoring it
+     * @param canvas the canvas where the circle is drawn
+     */
+    public void drawYourSelf(CircleCanvas canvas) {
+        canvas.drawFillCircle(
                 (int)position.getX(),
                 (int)position.getY(),
                 (int)size,
                 color.getCode()
         );
+    }
 
+    /**
+     * This method draws the border and the score of the circle
+     * on screen, over the circle drawn by drawYourSelf()
+     * @param r the renderer object with all drawing methods
+     * @param isDrawingBorder if the method has to draw the border of the circle
+     * @param isDrawingScore if the method has to draw the score of the circle
+     */
+    public void drawYourInfo(Renderer r, boolean isDrawingBorder, boolean isDrawingScore) {
         if ( isDrawingBorder ) {
             r.drawCircle(
                     (int)position.getX(),
@@ -179,6 +249,10 @@ public class CircleImage {
         return id;
     }
 
+    public long getSerial() {
+        return serial;
+    }
+
     public Vec2df getPosition() {
         return position;
     }
@@ -199,6 +273,10 @@ public class CircleImage {
         this.id = id;
     }
 
+    public void setSerial(long serial) {
+        this.serial = serial;
+    }
+
     public void setPosition(Vec2df position) {
         this.position = position;
     }
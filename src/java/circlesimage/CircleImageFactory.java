@@ -1,10 +1,10 @@
 package circlesimage;
 
-import engine.GameContainer;
 import engine.vectors.points2d.Vec2df;
 import engine.vectors.points2d.Vec2di;
 
 import java.util.ArrayList;
+import java.util.SplittableRandom;
 
 /**
  * This class is a the factory of circles
@@ -13,6 +13,13 @@ import java.util.ArrayList;
  * Also, this class contains all parameters
  * for building the CircleImages
  *
+ * The random numbers come from its own SplittableRandom, not from
+ * the global Math.random(), so a factory must be used only by one
+ * thread. For the other threads, the split() method returns a
+ * copy of the factory with a random generator split from this
+ * one. With the same seed and the same parameters, the sequence
+ * of circles is always the same
+ *
  * @class CircleImageFactory
  * @author Sergio Martí Torregrosa
  * @date 09/11/2020
@@ -50,8 +57,59 @@ public class CircleImageFactory {
      */
     private Vec2di variationColor = new Vec2di(10, -10);
 
+    /**
+     * A flag for the "analytic color" mode. When it is on,
+     * the color of the babies isn't mutated, because the
+     * population sets the color of each circle to the mean color
+     * of the background pixels under it. So, the mutation only
+     * has to search the position and the size
+     * By default, false
+     */
+    private boolean isUsingAnalyticColor = false;
+
+    /**
+     * The random generator of this factory
+     */
+    private SplittableRandom random;
+
+    /**
+     * Constructor, with a random seed
+     */
     public CircleImageFactory() {
+        this(new SplittableRandom());
+    }
 
+    /**
+     * Constructor with the seed of the random generator
+     * @param seed the seed
+     */
+    public CircleImageFactory(long seed) {
+        this(new SplittableRandom(seed));
+    }
+
+    /**
+     * Constructor with the random generator
+     * @param random the random generator
+     */
+    public CircleImageFactory(SplittableRandom random) {
+        this.random = random;
+    }
+
+    /**
+     * This method returns a new factory with the same parameters
+     * and a random generator split from the random generator of
+     * this factory. It is used for giving its own factory to each
+     * thread, so they don't share the random generator
+     * @return a new factory with the same parameters
+     */
+    public CircleImageFactory split() {
+        CircleImageFactory factory = new CircleImageFactory(random.split());
+        factory.maxCircleSize = maxCircleSize;
+        factory.variationSize = new Vec2di(variationSize.getX(), variationSize.getY());
+        factory.variationPosition = new Vec2di(variationPosition.getX(), variationPosition.getY());
+        factory.variationColor = new Vec2di(variationColor.getX(), variationColor.getY());
+        factory.isUsingAnalyticColor = isUsingAnalyticColor;
+        return factory;
     }
 
     /**
@@ -63,20 +121,20 @@ public class CircleImageFactory {
      * @return a random integer value between the max and min
      */
     private int randomIntBetween(int max, int min) {
-        return (int)((Math.random() * (max - min)) + min);
+        return (int)((random.nextDouble() * (max - min)) + min);
     }
 
     /**
      * This method builds a random circle image
-     * @param gc the game container object
+     * @param canvas the dimensions of the canvas
      * @return a new instance of random circle image
      */
-    private CircleImage buildRandomCircleImage(GameContainer gc) {
+    private CircleImage buildRandomCircleImage(CanvasDimensions canvas) {
         return new CircleImage(
                 0,
                 new Vec2df(
-                        randomIntBetween(gc.getWidth(), 0),
-                        randomIntBetween(gc.getHeight(), 0)
+                        randomIntBetween(canvas.getWidth(), 0),
+                        randomIntBetween(canvas.getHeight(), 0)
                 ),
                 randomIntBetween(maxCircleSize, MIN_CIRCLE_SIZE),
                 new CircleColor(
@@ -90,14 +148,14 @@ public class CircleImageFactory {
 
     /**
      * This method builds an array full of distinct CircleImages
-     * @param gc the game container object
+     * @param canvas the dimensions of the canvas
      * @param size the size of the array
      * @return an array of circle images
      */
-    public ArrayList<CircleImage> buildRandomCircleImageArray(GameContainer gc, int size) {
+    public ArrayList<CircleImage> buildRandomCircleImageArray(CanvasDimensions canvas, int size) {
         ArrayList<CircleImage> arrayList = new ArrayList<>();
         for ( int i = 0; i < size; i++ ) {
-            CircleImage c = buildRandomCircleImage(gc);
+            CircleImage c = buildRandomCircleImage(canvas);
             c.setId(arrayList.size());
             arrayList.add(c);
         }
@@ -140,13 +198,13 @@ public class CircleImageFactory {
     }
 
     /**
-     * This method returns a new CircleImage with new "genes"
-     * inherits from its parent
-     * @param parent the CircleImage parent
-     * @return a new instance of the CircleImage with some differences with his parent
+     * This method builds a new size a bit different to the
+     * size of the parent, between the size limits
+     * @param parentSize the size of the parent
+     * @return the size of the baby
      */
-    public CircleImage buildBaby(CircleImage parent) {
-        float size = parent.getSize() + randomIntBetween(variationColor.getX(), variationColor.getY());
+    public float buildBabySize(float parentSize) {
+        float size = parentSize + randomIntBetween(variationColor.getX(), variationColor.getY());
 
         if ( size < MIN_CIRCLE_SIZE) {
             size = MIN_CIRCLE_SIZE;
@@ -154,18 +212,83 @@ public class CircleImageFactory {
         if ( size > maxCircleSize) {
             size = maxCircleSize;
         }
+        return size;
+    }
 
-        float x = parent.getPosition().getX() + randomIntBetween(variationPosition.getX(), variationPosition.getY());
-        float y = parent.getPosition().getY() + randomIntBetween(variationPosition.getX(), variationPosition.getY());
+    /**
+     * This method builds a new coordinate of the position
+     * a bit different to the coordinate of the parent
+     * @param parentCoordinate the x or y coordinate of the parent
+     * @return the coordinate of the baby
+     */
+    public float buildBabyCoordinate(float parentCoordinate) {
+        return parentCoordinate + randomIntBetween(variationPosition.getX(), variationPosition.getY());
+    }
+
+    /**
+     * This method builds the hex code of the color of a baby,
+     * the same as the method buildBabyColor() but without
+     * building any object. On the "analytic color" mode,
+     * the color is the same as the parent
+     * @param parentColorCode the hex code of the color of the parent
+     * @return the hex code of the color of the baby
+     */
+    public int buildBabyColorCode(int parentColorCode) {
+        if ( isUsingAnalyticColor ) {
+            return parentColorCode;
+        }
+        int newR = ((parentColorCode >> 16) & 0xff) + randomIntBetween(variationColor.getX(), variationColor.getY());
+        int newB = (parentColorCode & 0xff) + randomIntBetween(variationColor.getX(), variationColor.getY());
+        int newG = ((parentColorCode >> 8) & 0xff) + randomIntBetween(variationColor.getX(), variationColor.getY());
+        newR = Math.max(COLOR_LIMITS.getY(), Math.min(newR, COLOR_LIMITS.getX()));
+        newG = Math.max(COLOR_LIMITS.getY(), Math.min(newG, COLOR_LIMITS.getX()));
+        newB = Math.max(COLOR_LIMITS.getY(), Math.min(newB, COLOR_LIMITS.getX()));
+        return (COLOR_LIMITS.getX() << 24 | newR << 16 | newG << 8 | newB);
+    }
+
+    /**
+     * This method returns a new CircleImage with new "genes"
+     * inherits from its parent
+     * @param parent the CircleImage parent
+     * @return a new instance of the CircleImage with some differences with his parent
+     */
+    public CircleImage buildBaby(CircleImage parent) {
+        float size = buildBabySize(parent.getSize());
+        float x = buildBabyCoordinate(parent.getPosition().getX());
+        float y = buildBabyCoordinate(parent.getPosition().getY());
 
         return new CircleImage(
                 0,
                 new Vec2df(x, y),
                 size,
-                buildBabyColor(parent.getColor())
+                isUsingAnalyticColor ? new CircleColor(parent.getColor()) : buildBabyColor(parent.getColor())
         );
     }
 
+    /**
+     * This method writes the "genes" of a baby into an existing
+     * CircleImage, instead of building a new one. It is used for
+     * reusing the died circles as storage for the babies, so making
+     * babies doesn't allocate memory
+     * @param parent the CircleImage parent
+     * @param target the CircleImage where the baby is written
+     * @return the target, with some differences with the parent
+     */
+    public CircleImage buildBaby(CircleImage parent, CircleImage target) {
+        float size = buildBabySize(parent.getSize());
+        float x = buildBabyCoordinate(parent.getPosition().getX());
+        float y = buildBabyCoordinate(parent.getPosition().getY());
+        int colorCode = isUsingAnalyticColor ? parent.getColor().getCode() : buildBabyColorCode(parent.getColor().getCode());
+
+        target.setId(0);
+        target.getPosition().setX(x);
+        target.getPosition().setY(y);
+        target.setSize(size);
+        target.getColor().setCode(colorCode);
+        target.setScore(0.0);
+        return target;
+    }
+
     ////////////////////////////////////////////////////////////////////////////////
 
     public int getMaxCircleSize() {
@@ -184,8 +307,25 @@ public class CircleImageFactory {
         return variationColor;
     }
 
+    public boolean isUsingAnalyticColor() {
+        return isUsingAnalyticColor;
+    }
+
+    public SplittableRandom getRandom() {
+        return random;
+    }
+
+    public void setSeed(long seed) {
+        random = new SplittableRandom(seed);
+    }
+
+    public void setRandom(SplittableRandom random) {
+        this.random = random;
+    }
+
     public void setMaxCircleSize(int maxCircleSize) {
         this.maxCircleSize = maxCircleSize;
+        DiskSpans.ensureRadius(maxCircleSize);
     }
 
     public void setVariationSize(Vec2di variationSize) {
@@ -200,4 +340,8 @@ public class CircleImageFactory {
         this.variationColor = variationColor;
     }
 
+    public void setUsingAnalyticColor(boolean usingAnalyticColor) {
+        isUsingAnalyticColor = usingAnalyticColor;
+    }
+
 }
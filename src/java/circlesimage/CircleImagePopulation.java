@@ -1,12 +1,16 @@
 package circlesimage;
 
-import engine.GameContainer;
 import engine.gfx.Renderer;
 import engine.gfx.images.Image;
+import engine.vectors.points2d.Vec2df;
 import engine.vectors.points2d.Vec2di;
 
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * This class represents a population of CircleImages
@@ -21,9 +25,10 @@ import java.util.Comparator;
 public class CircleImagePopulation {
 
     /**
-     * The alpha decrease for the died circles
+     * The minimum number of circles scored by each
+     * task of the parallel scoring
      */
-    private final int ALPHA_DECREASE = 5;
+    private static final int CIRCLES_BY_SCORING_TASK = 64;
 
     /**
      * The circles on screen what can have babies
@@ -32,8 +37,24 @@ public class CircleImagePopulation {
 
     /**
      * The died circles, they can't have babies
+     * They fade off until they become transparent
      */
-    private ArrayList<CircleImage> diedCircles;
+    private FadingCircleBuffer diedCircles;
+
+    /**
+     * The frame of the renderer what the died circles fade to on
+     * each generation, when the generations don't run one by frame,
+     * or -1 if the died circles fade one frame each generation
+     * By default, -1
+     */
+    private long renderFrame = -1;
+
+    /**
+     * The circles which have been killed and copied to the died
+     * circles. They are reused as storage for the next babies,
+     * so the population doesn't allocate memory each generation
+     */
+    private ArrayList<CircleImage> circlesPool;
 
     /**
      * The factory class which builds new circles
@@ -74,12 +95,192 @@ public class CircleImagePopulation {
      */
     private float time = 0.0f;
 
+    /**
+     * A flag for scoring the circles with the prefix tables
+     * of the background images, in O(radius) for each circle
+     * By default, false
+     */
+    private boolean isUsingPrefixTables = false;
+
+    /**
+     * The prefix tables of each background image, they are
+     * built only the first time each background is used
+     * The tables are only read once they are built, so the map is
+     * shared by the populations what copy the parameters of this
+     * one, as the islands, and it is synchronized for them
+     */
+    private Map<Image, BackgroundPrefixTables> prefixTables = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    /**
+     * A flag for finding the close circles of the penalty
+     * proximity with the spatial grid, instead of checking
+     * all the pairs of circles
+     * By default, true
+     */
+    private boolean isUsingSpatialGrid = true;
+
+    /**
+     * The uniform grid for the penalty proximity
+     */
+    private SpatialGrid grid = new SpatialGrid();
+
+    /**
+     * The x coordinates of the circles, copied for building the grid
+     */
+    private float[] positionsX = new float[0];
+
+    /**
+     * The y coordinates of the circles, copied for building the grid
+     */
+    private float[] positionsY = new float[0];
+
+    /**
+     * The number of close circles of each circle
+     */
+    private int[] numCloseCircles = new int[0];
+
+    /**
+     * The size of the biggest circle, found while the
+     * positions are copied for building the grid
+     */
+    private float maxCircleSize = 0.0f;
+
+    /**
+     * The scores of the circles, copied for the selection of the worst circles
+     */
+    private double[] scores = new double[0];
+
+    /**
+     * Scratch memory for the selection of the worst circles
+     */
+    private double[] scratchScores = new double[0];
+
+    /**
+     * The marks of the worst circles
+     */
+    private boolean[] isWorst = new boolean[0];
+
+    /**
+     * The range of the copied scores what contains the score of
+     * the last circle to kill, while the selection is split in steps
+     */
+    private final int[] selectionRange = new int[2];
+
+    /**
+     * A flag for finding the pairs of circles what can collide
+     * with the sweep and prune method, instead of checking
+     * all the pairs of circles
+     * By default, true
+     */
+    private boolean isUsingSweepAndPrune = true;
+
+    /**
+     * The broad phase of the collisions
+     */
+    private SweepAndPrune sweepAndPrune = new SweepAndPrune();
+
+    /**
+     * The longest distance what any circle has moved to the left of
+     * its sorted left edge during the sweep of the collisions
+     */
+    private float sweepShift = 0.0f;
+
+    /**
+     * The pool of threads where the circles are scored
+     * If it is null, the circles are scored on the calling thread,
+     * unless the population owns the pool and it hasn't been built yet
+     * By default, null
+     */
+    private ForkJoinPool scoringPool = null;
+
+    /**
+     * The number of threads of the scoring pool, 1 if
+     * the circles are scored on the calling thread
+     */
+    private int scoringParallelism = 1;
+
+    /**
+     * A flag for knowing if the scoring pool is built by this
+     * population, so it is built the first time what it is
+     * needed and it has to be shut down when replaced, or when
+     * the population isn't used any more, with shutdown()
+     */
+    private boolean isOwningScoringPool = false;
+
+    /**
+     * The controller what adapts the maximum number of living
+     * circles to the time of the generations, or null if the
+     * limits are only changed by hand
+     */
+    private PopulationSizeController sizeController = null;
+
+    /**
+     * The metrics of the phases of the generations, or null
+     * if the phases aren't measured
+     */
+    private PopulationMetrics metrics = null;
+
+    /**
+     * The Flight Recorder event of the phase what is running,
+     * or null if the event isn't enabled
+     */
+    private PhaseEvent phaseEvent = null;
+
+    /**
+     * The babies made and the circles killed on the last generation
+     */
+    private int numBabiesOfGeneration = 0;
+
+    private int numKilledOfGeneration = 0;
+
+    /**
+     * The number of circles what are parents of the babies of the
+     * generation, and the number of circles what have to be killed
+     */
+    private int numParents = 0;
+
+    private int numToKill = 0;
+
+    /**
+     * The number of circles what have survived on the slices of
+     * killing the worst circles what have already run
+     */
+    private int numSurvivors = 0;
+
+    /**
+     * The index of the next circle what the slices of killing the
+     * worst circles have to check, or -1 if no circles are being killed
+     */
+    private int killIndex = -1;
+
+    /**
+     * The serial what is given to the next circle what is born
+     */
+    private long nextSerial = 0;
+
+    /**
+     * The circles of the population as they were drawn on the last
+     * frame, and the circles what are drawn now. They are compared
+     * for marking on the fitness tracker only the regions what
+     * have changed, and they are swapped after each frame
+     */
+    private PopulationSnapshot drawnCircles = new PopulationSnapshot();
+
+    private PopulationSnapshot currentCircles = new PopulationSnapshot();
+
+    /**
+     * The last fitness of the image drawn by the circles, measured
+     * by the program what draws them, or NaN if it isn't measured
+     */
+    private volatile double fitnessImage = Double.NaN;
+
     /**
      * Constructor
      */
     public CircleImagePopulation() {
         circles = new ArrayList<>();
-        diedCircles = new ArrayList<>();
+        diedCircles = new FadingCircleBuffer(20000);
+        circlesPool = new ArrayList<>();
         factory = new CircleImageFactory();
     }
 
@@ -87,116 +288,743 @@ public class CircleImagePopulation {
      * This method builds the population
      * It sets the CircleImage ArrayList to a new ArrayList composed
      * by random CircleImages
-     * @param gc the game container object with the width and height
+     * @param canvas the dimensions of the canvas
      */
-    public void buildPopulation(GameContainer gc) {
-        circles = factory.buildRandomCircleImageArray(gc, circlePopulationLimits.getY());
+    public void buildPopulation(CanvasDimensions canvas) {
+        finishKillWorst();
+        circlesPool.addAll(circles);
+        circles = factory.buildRandomCircleImageArray(canvas, circlePopulationLimits.getY());
+        for ( CircleImage c : circles ) {
+            c.setSerial(nextSerial++);
+        }
         diedCircles.clear();
     }
 
     /**
      * This method is used to make a more beautiful
      * transition for the circles
-     * On this code the alpha chanel of the die circle
-     * is decreased until it reaches zero and then the
-     * circle is removed from the array
-     */
-    private void updateDiedCircles() {
-        ArrayList<Integer> indexToRemove = new ArrayList<>();
-        for ( int i = 0; i < diedCircles.size(); i++ ) {
-            diedCircles.get(i).getColor().setAlpha(diedCircles.get(i).getColor().getAlpha() - ALPHA_DECREASE);
-            if ( diedCircles.get(i).getColor().getAlpha() < ALPHA_DECREASE ) {
-                indexToRemove.add(i);
-            }
+     * The alpha chanel of the died circles decreases
+     * with their age, until it reaches zero and then the
+     * circle is removed from the buffer
+     * The age is counted in generations, or in frames of the
+     * renderer if the render frame has been set
+     */
+    public void updateDiedCircles() {
+        if ( renderFrame < 0 ) {
+            diedCircles.advance();
+        } else {
+            diedCircles.advanceTo(renderFrame);
         }
-        for ( Integer index : indexToRemove ) {
-            diedCircles.remove(index.intValue());
+    }
+
+    /**
+     * This method returns the prefix tables of a background
+     * image, building them if it is the first time
+     * @param background the background image
+     * @return the prefix tables of the background image
+     */
+    public BackgroundPrefixTables getPrefixTables(Image background) {
+        return prefixTables.computeIfAbsent(background, BackgroundPrefixTables::new);
+    }
+
+    /**
+     * This method sets the color of each circle to the mean
+     * color of the background pixels what the circle covers
+     * It is used on the "analytic color" mode, after the
+     * collisions, so the new circles and the moved circles
+     * always have the best color for their position and size
+     * @param background the background image
+     */
+    public void updateAnalyticColors(Image background) {
+        updateAnalyticColors(background, 0, circles.size());
+    }
+
+    /**
+     * This method sets the color of a range of circles to the mean
+     * color of the background pixels what each circle covers
+     * @param background the background image
+     * @param from the index of the first circle, inclusive
+     * @param to the index of the last circle, exclusive
+     */
+    public void updateAnalyticColors(Image background, int from, int to) {
+        BackgroundPrefixTables tables = getPrefixTables(background);
+        for ( int i = from; i < to; i++ ) {
+            CircleImage c = circles.get(i);
+            tables.calculateMeanColor(
+                    (int)c.getPosition().getX(),
+                    (int)c.getPosition().getY(),
+                    (int)c.getSize(),
+                    c.getColor()
+            );
         }
     }
 
     /**
      * This method calculates the score for the circles
+     * First, each circle is scored with the background image,
+     * and then the penalty for proximity is applied
+     * If there is a scoring pool, the circles are scored in
+     * parallel. Each circle only reads the background and writes
+     * its own score, and the penalty is applied on the calling
+     * thread once all of them are scored, so the scores are the
+     * same as the sequential ones
      */
     public void calculateCirclesScore(Image background) {
-        for ( CircleImage c : circles ) {
-            c.calculateScore(background);
+        scoreCircles(background, 0, circles.size());
+        applyProximityPenalty();
+    }
+
+    /**
+     * This method scores a range of circles with the background
+     * image, without the penalty for proximity
+     * If there is a scoring pool, the range is scored in parallel
+     * @param background the background image
+     * @param from the index of the first circle, inclusive
+     * @param to the index of the last circle, exclusive
+     */
+    public void scoreCircles(Image background, int from, int to) {
+        if ( metrics != null ) {
+            metrics.addCirclesScored(to - from);
+        }
+        BackgroundPrefixTables tables = isUsingPrefixTables ? getPrefixTables(background) : null;
+        int size = to - from;
+        ForkJoinPool pool = size > CIRCLES_BY_SCORING_TASK ? getOrBuildScoringPool() : null;
+        if ( pool == null ) {
+            scoreCircles(circles, from, to, background, tables);
+        } else {
+            int circlesByTask = Math.max(CIRCLES_BY_SCORING_TASK, size / (4 * scoringParallelism));
+            pool.invoke(new ScoreCirclesTask(circles, from, to, circlesByTask, background, tables));
+        }
+    }
+
+    /**
+     * This method shuts down the scoring pool, if the population owns
+     * it, and it has to be called when the population isn't used any
+     * more, or its threads are kept until the program ends. After it,
+     * the circles are scored on the calling thread
+     */
+    public void shutdown() {
+        setScoringPool(null);
+    }
+
+    /**
+     * This method returns the scoring pool. If the population owns
+     * the pool, it is built the first time what there are enough
+     * circles for scoring them in parallel, so a population what
+     * never scores that many circles doesn't start any thread
+     * @return the scoring pool, or null if the circles are
+     * scored on the calling thread
+     */
+    private ForkJoinPool getOrBuildScoringPool() {
+        if ( scoringPool == null && isOwningScoringPool ) {
+            scoringPool = new ForkJoinPool(scoringParallelism);
+        }
+        return scoringPool;
+    }
+
+    /**
+     * This method scores a range of circles
+     * @param circles the circles
+     * @param from the index of the first circle, inclusive
+     * @param to the index of the last circle, exclusive
+     * @param background the background image
+     * @param tables the prefix tables of the background, or null
+     */
+    private static void scoreCircles(ArrayList<CircleImage> circles, int from, int to,
+                                     Image background, BackgroundPrefixTables tables) {
+        for ( int i = from; i < to; i++ ) {
+            CircleImage c = circles.get(i);
+            if ( tables != null ) {
+                c.calculateScore(tables);
+            } else {
+                c.calculateScore(background);
+            }
+        }
+    }
+
+    /**
+     * This task scores a range of circles
+     * If the range is bigger than the circles by task, it is
+     * split in two halves which are scored in parallel
+     */
+    private static class ScoreCirclesTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ArrayList<CircleImage> circles;
+
+        private final int from;
+
+        private final int to;
+
+        private final int circlesByTask;
+
+        private final Image background;
+
+        private final BackgroundPrefixTables tables;
+
+        private ScoreCirclesTask(ArrayList<CircleImage> circles, int from, int to, int circlesByTask,
+                                 Image background, BackgroundPrefixTables tables) {
+            this.circles = circles;
+            this.from = from;
+            this.to = to;
+            this.circlesByTask = circlesByTask;
+            this.background = background;
+            this.tables = tables;
+        }
+
+        @Override
+        protected void compute() {
+            if ( to - from <= circlesByTask ) {
+                scoreCircles(circles, from, to, background, tables);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            ScoreCirclesTask second = new ScoreCirclesTask(circles, middle, to, circlesByTask, background, tables);
+            second.fork();
+            new ScoreCirclesTask(circles, from, middle, circlesByTask, background, tables).compute();
+            second.join();
+        }
+
+    }
+
+    /**
+     * This method makes sure that the arrays used as scratch
+     * memory for the grid and the collisions can store
+     * the information of all the circles
+     * @param size the number of circles
+     */
+    private void ensureScratchCapacity(int size) {
+        if ( numCloseCircles.length < size ) {
+            int capacity = Math.max(size, 2 * numCloseCircles.length);
+            numCloseCircles = new int[capacity];
+            positionsX = new float[capacity];
+            positionsY = new float[capacity];
+        }
+    }
+
+    /**
+     * This method says if two circles are close enough
+     * to have the penalty for proximity
+     * @param c the circle
+     * @param t the target circle
+     * @return if the two circles are too close
+     */
+    private boolean areCirclesClose(CircleImage c, CircleImage t) {
+        float distance2 = calculateDistance2(c, t);
+        float sizes = 5 * (c.getSize() + t.getSize());
+        return distance2 <= (sizes * sizes);
+    }
+
+    /**
+     * This method counts the close circles of a range of
+     * circles, checking all the pairs of circles
+     * @param from the index of the first circle, inclusive
+     * @param to the index of the last circle, exclusive
+     * @param maxPairs the number of pairs after which it stops
+     * @return the index of the first circle what hasn't been counted
+     */
+    private int countCloseCirclesBruteForce(int from, int to, int maxPairs) {
+        long numPairs = 0;
+        int i;
+        for ( i = from; i < to && numPairs < maxPairs; i++ ) {
+            CircleImage c = circles.get(i);
             for ( CircleImage t : circles ) {
-                if ( c.getId() != t.getId() ) {
-                    float distance2 = calculateDistance2(c, t);
-                    float sizes = 5 * (c.getSize() + t.getSize());
-                    if ( distance2 <=  (sizes * sizes) ) {
-                        c.setScore(c.getScore() - penaltyProximity / 2);
-                        t.setScore(t.getScore() - penaltyProximity / 2);
+                if ( c.getId() != t.getId() && areCirclesClose(c, t) ) {
+                    numCloseCircles[i]++;
+                }
+            }
+            numPairs += circles.size();
+        }
+        return i;
+    }
+
+    /**
+     * This method builds the spatial grid with the positions of the
+     * circles, what have to be copied by prepareProximityPenalty().
+     * Two circles are close if the distance between them is less
+     * than five times the sum of their sizes, so with cells of ten
+     * times the biggest size, only the neighbouring cells have to
+     * be checked. It does nothing without the spatial grid
+     */
+    public void buildProximityGrid() {
+        if ( isUsingSpatialGrid ) {
+            grid.build(positionsX, positionsY, circles.size(), 10 * maxCircleSize);
+        }
+    }
+
+    /**
+     * This method counts the close circles of a range of
+     * circles with the spatial grid, what has to be built
+     * @param from the index of the first circle, inclusive
+     * @param to the index of the last circle, exclusive
+     * @param maxPairs the number of pairs after which it stops
+     * @return the index of the first circle what hasn't been counted
+     */
+    private int countCloseCirclesWithGrid(int from, int to, int maxPairs) {
+        long numPairs = 0;
+        int i;
+        for ( i = from; i < to && numPairs < maxPairs; i++ ) {
+            CircleImage c = circles.get(i);
+            int cellX = grid.getCellX(positionsX[i]);
+            int cellY = grid.getCellY(positionsY[i]);
+            int firstCellX = Math.max(cellX - 1, 0);
+            int lastCellX = Math.min(cellX + 1, grid.getNumCellsX() - 1);
+            int firstCellY = Math.max(cellY - 1, 0);
+            int lastCellY = Math.min(cellY + 1, grid.getNumCellsY() - 1);
+            for ( int ny = firstCellY; ny <= lastCellY; ny++ ) {
+                for ( int nx = firstCellX; nx <= lastCellX; nx++ ) {
+                    int start = grid.getCellStart(nx, ny);
+                    int end = grid.getCellEnd(nx, ny);
+                    for ( int k = start; k < end; k++ ) {
+                        CircleImage t = circles.get(grid.getItem(k));
+                        if ( c.getId() != t.getId() && areCirclesClose(c, t) ) {
+                            numCloseCircles[i]++;
+                        }
                     }
+                    numPairs += end - start;
                 }
             }
         }
+        return i;
+    }
+
+    /**
+     * This method applies the penalty for proximity
+     * Each circle loses the penalty proximity for each
+     * circle what is too close to it
+     */
+    public void applyProximityPenalty() {
+        prepareProximityPenalty();
+        countCloseCircles(0, circles.size());
+        finishProximityPenalty();
+    }
+
+    /**
+     * This method prepares the counting of the close circles,
+     * the first step of the penalty for proximity
+     */
+    public void prepareProximityPenalty() {
+        prepareProximityPenalty(0, circles.size());
+        buildProximityGrid();
+    }
+
+    /**
+     * This method prepares the counting of the close circles of a
+     * range of circles, copying their positions for the grid. The
+     * ranges have to start at the first circle and be run in order,
+     * and then the grid is built with buildProximityGrid()
+     * @param from the index of the first circle, inclusive
+     * @param to the index of the last circle, exclusive
+     */
+    public void prepareProximityPenalty(int from, int to) {
+        ensureScratchCapacity(circles.size());
+        if ( from == 0 ) {
+            maxCircleSize = 0.0f;
+        }
+        for ( int i = from; i < to; i++ ) {
+            numCloseCircles[i] = 0;
+        }
+        if ( isUsingSpatialGrid ) {
+            for ( int i = from; i < to; i++ ) {
+                CircleImage c = circles.get(i);
+                positionsX[i] = c.getPosition().getX();
+                positionsY[i] = c.getPosition().getY();
+                maxCircleSize = Math.max(maxCircleSize, c.getSize());
+            }
+        }
+    }
+
+    /**
+     * This method counts the close circles of a range of circles,
+     * the second step of the penalty for proximity
+     * @param from the index of the first circle, inclusive
+     * @param to the index of the last circle, exclusive
+     */
+    public void countCloseCircles(int from, int to) {
+        countCloseCircles(from, to, Integer.MAX_VALUE);
+    }
+
+    /**
+     * This method counts the close circles of a range of circles, and
+     * stops after the circle where a number of pairs has been checked,
+     * because the pairs of each circle depend on how crowded it is
+     * @param from the index of the first circle, inclusive
+     * @param to the index of the last circle, exclusive
+     * @param maxPairs the number of pairs after which it stops
+     * @return the index of the first circle what hasn't been counted
+     */
+    public int countCloseCircles(int from, int to, int maxPairs) {
+        if ( isUsingSpatialGrid ) {
+            return countCloseCirclesWithGrid(from, to, maxPairs);
+        }
+        return countCloseCirclesBruteForce(from, to, maxPairs);
+    }
+
+    /**
+     * This method subtracts the penalty of the close circles
+     * from the scores, the last step of the penalty for proximity
+     */
+    public void finishProximityPenalty() {
+        finishProximityPenalty(0, circles.size());
+    }
+
+    /**
+     * This method subtracts the penalty of the close circles
+     * from the scores of a range of circles
+     * @param from the index of the first circle, inclusive
+     * @param to the index of the last circle, exclusive
+     */
+    public void finishProximityPenalty(int from, int to) {
+        for ( int i = from; i < to; i++ ) {
+            CircleImage c = circles.get(i);
+            c.setScore(c.getScore() - penaltyProximity * numCloseCircles[i]);
+        }
+    }
+
+    /**
+     * This method marks the circles with the worst scores
+     * on the isWorst array
+     * @param numWorst the number of circles to mark
+     */
+    private void markWorstCircles(int numWorst) {
+        int size = circles.size();
+        ensureSelectionCapacity(size);
+        copyScores(0, size);
+        ScoreSelection.markWorst(scores, size, numWorst, scratchScores, isWorst);
+    }
+
+    /**
+     * This method makes sure that the arrays of the selection
+     * of the worst circles can store the scores of all the circles
+     * @param size the number of circles
+     */
+    private void ensureSelectionCapacity(int size) {
+        if ( scores.length < size ) {
+            int capacity = Math.max(size, 2 * scores.length);
+            scores = new double[capacity];
+            scratchScores = new double[capacity];
+            isWorst = new boolean[capacity];
+        }
+    }
+
+    /**
+     * This method copies the scores of a range of circles
+     * for the selection of the worst circles
+     * @param from the index of the first circle, inclusive
+     * @param to the index of the last circle, exclusive
+     */
+    public void copyScores(int from, int to) {
+        for ( int i = from; i < to; i++ ) {
+            scores[i] = circles.get(i).getScore();
+            scratchScores[i] = scores[i];
+        }
+    }
+
+    /**
+     * This method copies the information of a circle into other circle
+     * @param from the circle where the information is read
+     * @param to the circle where the information is written
+     */
+    private static void copyCircle(CircleImage from, CircleImage to) {
+        to.getPosition().setX(from.getPosition().getX());
+        to.getPosition().setY(from.getPosition().getY());
+        to.setSize(from.getSize());
+        to.getColor().setCode(from.getColor().getCode());
+        to.setScore(from.getScore());
+    }
+
+    /**
+     * This method returns copies of the circles with the best scores
+     * The copies don't share any object with the population,
+     * so they can be read from other threads
+     * @param numCircles the number of circles
+     * @return the copies of the best circles
+     */
+    public CircleImage[] copyBestCircles(int numCircles) {
+        int size = circles.size();
+        numCircles = Math.min(numCircles, size);
+        markWorstCircles(size - numCircles);
+
+        CircleImage[] best = new CircleImage[numCircles];
+        int numCopied = 0;
+        for ( int i = 0; i < size && numCopied < numCircles; i++ ) {
+            if ( !isWorst[i] ) {
+                CircleImage copy = new CircleImage(0, new Vec2df(), 0, new CircleColor());
+                copyCircle(circles.get(i), copy);
+                best[numCopied++] = copy;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * This method adds copies of circles what come from other
+     * population. They are added as living circles, so they
+     * are scored and compete with the rest of the circles
+     * The survivors of the last kill keep the ids of their indexes
+     * before the list was compacted, so all the circles are numbered
+     * again, and the ids don't repeat
+     * @param newCircles the circles to add
+     */
+    public void addCircles(CircleImage[] newCircles) {
+        for ( CircleImage c : newCircles ) {
+            int poolSize = circlesPool.size();
+            CircleImage copy = poolSize == 0
+                    ? new CircleImage(0, new Vec2df(), 0, new CircleColor())
+                    : circlesPool.remove(poolSize - 1);
+            copyCircle(c, copy);
+            copy.setSerial(nextSerial++);
+            circles.add(copy);
+        }
+        numberCircles(0, circles.size());
+    }
+
+    /**
+     * This method copies the parameters of other population
+     * The limits of the population are shared, so changing
+     * them changes the limits of both populations, and so are
+     * the prefix tables of the backgrounds, what are built once
+     * for both. The factory is split from the factory of the
+     * other population
+     * @param other the population where the parameters are read
+     */
+    public void copyParametersFrom(CircleImagePopulation other) {
+        circlePopulationLimits = other.circlePopulationLimits;
+        penaltyProximity = other.penaltyProximity;
+        numBabiesByCircle = other.numBabiesByCircle;
+        makeBabiesCap = other.makeBabiesCap;
+        isUsingPrefixTables = other.isUsingPrefixTables;
+        isUsingSpatialGrid = other.isUsingSpatialGrid;
+        isUsingSweepAndPrune = other.isUsingSweepAndPrune;
+        diedCircles.setCapacity(other.diedCircles.getCapacity());
+        prefixTables = other.prefixTables;
+        factory = other.factory.split();
     }
 
     /**
      * This method kills the worst circles
+     * The worst circles are found with a selection, without
+     * sorting all the circles. Then, in one pass, the survivors
+     * are compacted at the beginning of the list and the worst
+     * circles are copied to the died circles. The killed
+     * CircleImages go to the pool, for the next babies
      */
     private void killWorst() {
-        ArrayList<CircleImage> diedCircles = new ArrayList<>();
-        circles.sort(Comparator.comparingDouble(CircleImage::getScore));
-        while ( circles.size() > circlePopulationLimits.getX() ) {
-            CircleImage c = circles.remove(0);
-            diedCircles.add(c);
+        if ( prepareKillWorst() ) {
+            killWorst(0, circles.size());
         }
-        this.diedCircles.addAll(diedCircles);
+        removeKilledCircles();
     }
 
     /**
-     * This method add the babies of the circles
-     * to the circles array
+     * This method marks the worst circles what have to be killed,
+     * the first step of killing the worst circles, which can be
+     * split in slices with killWorst(from, to) and finished with
+     * removeKilledCircles()
+     * @return if there are circles to kill
      */
-    private void makeBabies() {
-        ArrayList<CircleImage> circlesBabies = new ArrayList<>();
+    public boolean prepareKillWorst() {
+        if ( !beginKillWorst() ) {
+            return false;
+        }
+        copyScores(0, circles.size());
+        selectWorstCircles(Integer.MAX_VALUE);
+        return true;
+    }
 
-        for ( CircleImage c : circles ) {
-            for (int i = 0; i < numBabiesByCircle; i++ ) {
-                CircleImage t = factory.buildBaby(c);
-                circlesBabies.add(t);
+    /**
+     * This method counts the circles what have to be killed. If
+     * there are any, their scores have to be copied with
+     * copyScores(from, to) and then selectWorstCircles(maxScores)
+     * marks them
+     * @return if there are circles to kill
+     */
+    public boolean beginKillWorst() {
+        int size = circles.size();
+        numToKill = size - circlePopulationLimits.getX();
+        numKilledOfGeneration = Math.max(numToKill, 0);
+        if ( numToKill <= 0 ) {
+            numSurvivors = size;
+            return false;
+        }
+        ensureSelectionCapacity(size);
+        selectionRange[0] = 0;
+        selectionRange[1] = size - 1;
+        return true;
+    }
+
+    /**
+     * This method selects the worst circles with the copied scores,
+     * in steps what partition a maximum number of scores, and when
+     * the selection is finished it marks them, so they can be killed
+     * with killWorst(from, to)
+     * @param maxScores the maximum number of scores to partition
+     * @return if the worst circles are marked
+     */
+    public boolean selectWorstCircles(int maxScores) {
+        int size = circles.size();
+        if ( numToKill < size
+                && !ScoreSelection.selectKthSmallestStep(scratchScores, numToKill - 1, selectionRange, maxScores) ) {
+            return false;
+        }
+        double threshold = numToKill < size ? scratchScores[numToKill - 1] : Double.POSITIVE_INFINITY;
+        ScoreSelection.markWorst(scores, size, numToKill, threshold, isWorst);
+        if ( metrics != null ) {
+            metrics.addCirclesKilled(numToKill);
+        }
+        numSurvivors = 0;
+        killIndex = 0;
+        return true;
+    }
+
+    /**
+     * This method kills the marked circles of a range, copying them
+     * to the died circles, and compacts the survivors at the beginning
+     * of the list. The ranges have to be run in order, and the
+     * list keeps its size until removeKilledCircles() is called
+     * @param from the index of the first circle, inclusive
+     * @param to the index of the last circle, exclusive
+     */
+    public void killWorst(int from, int to) {
+        for ( int i = from; i < to; i++ ) {
+            CircleImage c = circles.get(i);
+            if ( isWorst[i] ) {
+                diedCircles.add(c);
+                circlesPool.add(c);
+            } else {
+                circles.set(numSurvivors++, c);
             }
         }
+        killIndex = to;
+    }
 
-        circles.addAll(circlesBabies);
+    /**
+     * This method removes from the end of the list the places
+     * of the killed circles, the last step of killing them
+     */
+    public void removeKilledCircles() {
+        for ( int i = circles.size() - 1; i >= numSurvivors; i-- ) {
+            circles.remove(i);
+        }
+        killIndex = -1;
+    }
 
-        for ( int i = 0; i < circles.size(); i++ ) {
-            circles.get(i).setId(i);
+    /**
+     * This method finishes the killing of the worst circles if it was
+     * split in slices and stopped halfway, so the list doesn't keep
+     * killed circles nor survivors repeated. It does nothing if no
+     * circles are being killed
+     */
+    public void finishKillWorst() {
+        if ( killIndex >= 0 ) {
+            killWorst(killIndex, circles.size());
+            removeKilledCircles();
         }
     }
 
+    /**
+     * This method returns a new baby of a circle. The baby is
+     * written into a CircleImage of the pool if there is any,
+     * and only when the pool is empty a new CircleImage is built
+     * @param parent the parent circle
+     * @return the baby
+     */
+    private CircleImage buildBaby(CircleImage parent) {
+        int poolSize = circlesPool.size();
+        CircleImage baby = poolSize == 0
+                ? factory.buildBaby(parent)
+                : factory.buildBaby(parent, circlesPool.remove(poolSize - 1));
+        baby.setSerial(nextSerial++);
+        return baby;
+    }
+
+    /**
+     * This method add the babies of the circles
+     * to the circles array
+     * The babies are appended after the parents, so
+     * only the circles before them are parents
+     */
     /**
      * This method has in account the update cap for
      * have babies
      * @param elapsedTime the time between two frames
      */
-    private void makeBabies(float elapsedTime) {
+    public void makeBabies(float elapsedTime) {
+        if ( prepareBabies(elapsedTime) ) {
+            makeBabies(0, numParents);
+            numberCircles(0, circles.size());
+        }
+    }
+
+    /**
+     * This method says if the babies are made on this generation,
+     * with the update cap, and counts their parents. The babies are
+     * made with makeBabies(from, to) and then all the circles are
+     * numbered again with numberCircles(from, to)
+     * @param elapsedTime the time between two frames
+     * @return if the babies are made
+     */
+    public boolean prepareBabies(float elapsedTime) {
+        numBabiesOfGeneration = 0;
         time += elapsedTime;
-        if ( time >= makeBabiesCap) {
-            makeBabies();
-            time -= makeBabiesCap;
+        if ( time < makeBabiesCap ) {
+            return false;
+        }
+        time -= makeBabiesCap;
+        numParents = circles.size();
+        circles.ensureCapacity(numParents * (numBabiesByCircle + 1));
+        numBabiesOfGeneration = numParents * numBabiesByCircle;
+        if ( metrics != null ) {
+            metrics.addCirclesBorn(numBabiesOfGeneration);
+        }
+        return true;
+    }
+
+    /**
+     * This method makes the babies of a range of parents, what
+     * are added at the end of the list. The ranges have to be
+     * run in order for having the babies in the same order
+     * @param from the index of the first parent, inclusive
+     * @param to the index of the last parent, exclusive
+     */
+    public void makeBabies(int from, int to) {
+        for ( int p = from; p < to; p++ ) {
+            CircleImage c = circles.get(p);
+            for ( int i = 0; i < numBabiesByCircle; i++ ) {
+                circles.add(buildBaby(c));
+            }
+        }
+    }
+
+    /**
+     * This method sets the id of a range of circles to their index
+     * @param from the index of the first circle, inclusive
+     * @param to the index of the last circle, exclusive
+     */
+    public void numberCircles(int from, int to) {
+        for ( int i = from; i < to; i++ ) {
+            circles.get(i).setId(i);
         }
     }
 
     /**
      * This method manages the collision of the circles with the
      * edges
-     * @param gc the game container object with the width and height
+     * @param canvas the dimensions of the canvas
      */
-    private void updateCircleEdgeCollision(GameContainer gc, CircleImage c) {
+    private void updateCircleEdgeCollision(CanvasDimensions canvas, CircleImage c) {
         if ( c.getPosition().getX() - c.getSize() < 0 ) {
             c.getPosition().setX(c.getSize());
         }
-        if ( c.getPosition().getX() + c.getSize() >= gc.getWidth() ) {
-            c.getPosition().setX(gc.getWidth() - c.getSize());
+        if ( c.getPosition().getX() + c.getSize() >= canvas.getWidth() ) {
+            c.getPosition().setX(canvas.getWidth() - c.getSize());
         }
         if ( c.getPosition().getY() - c.getSize() < 0 ) {
             c.getPosition().setY(c.getSize());
         }
-        if ( c.getPosition().getY() + c.getSize() >= gc.getHeight() ) {
-            c.getPosition().setY(gc.getHeight() - c.getSize());
+        if ( c.getPosition().getY() + c.getSize() >= canvas.getHeight() ) {
+            c.getPosition().setY(canvas.getHeight() - c.getSize());
         }
     }
 
@@ -240,6 +1068,8 @@ public class CircleImagePopulation {
     /**
      * This manages the static collision between the circles specified on the
      * parameters
+     * The circles are taken as continuous shapes, not as the pixels
+     * of their spans, so they are moved by fractions of a pixel
      * @param c the circle
      * @param t the target circle
      */
@@ -267,43 +1097,326 @@ public class CircleImagePopulation {
 
     /**
      * This method updates the collisions between all circles
-     * and the edges of screen
-     * @param gc the game container object needed for manage the collisions
+     * and the edges of screen, checking all the pairs of circles
+     * Only the circles of a range are moved against all the others
+     * @param canvas the dimensions of the canvas, needed for manage the collisions
      *           of the circles with the screen edges
+     * @param maxPairs the number of pairs after which it stops
+     * @return the index of the first circle what hasn't been moved
      */
-    public void updateCollisions(GameContainer gc) {
-        for ( CircleImage c : circles ) {
-            updateCircleEdgeCollision(gc, c);
+    private int updateCollisionsBruteForce(CanvasDimensions canvas, int from, int to, int maxPairs) {
+        long numPairs = 0;
+        int i;
+        for ( i = from; i < to && numPairs < maxPairs; i++ ) {
+            CircleImage c = circles.get(i);
+            updateCircleEdgeCollision(canvas, c);
             for ( CircleImage t : circles ) {
                 updateCircleTargetStaticCollision(c, t);
             }
+            numPairs += circles.size();
         }
+        return i;
+    }
+
+    /**
+     * This method solves the collisions of the circles with the
+     * edges of screen and sorts the circles for the sweep and
+     * prune method. The pairs of circles what can collide are
+     * found with the sorted order, and each pair is solved with
+     * the same static collision
+     * @param canvas the dimensions of the canvas, needed for manage the collisions
+     *           of the circles with the screen edges
+     */
+    private void sortSweepAndPrune(CanvasDimensions canvas) {
+        prepareCollisions(canvas, 0, circles.size());
+        beginSortCollisions();
+        sortCollisions(Integer.MAX_VALUE);
+    }
+
+    /**
+     * This method solves the collisions of a range of the sorted
+     * circles, what has to be sorted by sortSweepAndPrune()
+     * The circles move while the collisions are solved, so the left
+     * edges of the sort aren't their current edges. No circle has
+     * moved to the left of its sorted edge more than the sweep shift,
+     * so the sweep of a circle stops at the first circle whose sorted
+     * edge, minus the shift, starts after the current right edge of
+     * the circle, and none of the next circles can overlap it
+     * @param from the index on the sorted order of the first circle, inclusive
+     * @param to the index on the sorted order of the last circle, exclusive
+     * @param maxPairs the number of pairs after which it stops
+     * @return the index on the sorted order of the first circle what hasn't been swept
+     */
+    private int updateCollisionsSweepAndPrune(int from, int to, int maxPairs) {
+        int size = circles.size();
+        long numPairs = 0;
+        int i;
+        for ( i = from; i < to && numPairs < maxPairs; i++ ) {
+            int index = sweepAndPrune.getItem(i);
+            CircleImage c = circles.get(index);
+            for ( int j = i + 1; j < size; j++ ) {
+                int item = sweepAndPrune.getItem(j);
+                numPairs++;
+                if ( positionsX[item] - sweepShift > c.getPosition().getX() + c.getSize() ) {
+                    break;
+                }
+                CircleImage t = circles.get(item);
+                updateCircleTargetStaticCollision(c, t);
+                sweepShift = Math.max(sweepShift, Math.max(
+                        positionsX[index] - (c.getPosition().getX() - c.getSize()),
+                        positionsX[item] - (t.getPosition().getX() - t.getSize())
+                ));
+            }
+        }
+        return i;
+    }
+
+    /**
+     * This method updates the collisions between all circles
+     * and the edges of screen
+     * @param canvas the dimensions of the canvas, needed for manage the collisions
+     *           of the circles with the screen edges
+     */
+    public void updateCollisions(CanvasDimensions canvas) {
+        prepareCollisions(canvas);
+        updateCollisions(canvas, 0, circles.size());
+    }
+
+    /**
+     * This method prepares the collisions of a generation, the
+     * first step before updating the collisions by ranges
+     * @param canvas the dimensions of the canvas
+     */
+    public void prepareCollisions(CanvasDimensions canvas) {
+        if ( isUsingSweepAndPrune ) {
+            sortSweepAndPrune(canvas);
+        }
+    }
+
+    /**
+     * This method solves the collisions of a range of circles with
+     * the edges of screen and copies their left edges, the part of
+     * preparing the collisions what can be split in ranges. After
+     * all the ranges, the circles are sorted with beginSortCollisions()
+     * and sortCollisions(maxCircles)
+     * It does nothing without the sweep and prune method
+     * @param canvas the dimensions of the canvas
+     * @param from the index of the first circle, inclusive
+     * @param to the index of the last circle, exclusive
+     */
+    public void prepareCollisions(CanvasDimensions canvas, int from, int to) {
+        if ( !isUsingSweepAndPrune ) {
+            return;
+        }
+        ensureScratchCapacity(circles.size());
+        for ( int i = from; i < to; i++ ) {
+            CircleImage c = circles.get(i);
+            updateCircleEdgeCollision(canvas, c);
+            positionsX[i] = c.getPosition().getX() - c.getSize();
+        }
+    }
+
+    /**
+     * This method starts sorting the circles for the sweep and prune
+     * method, by the left edges copied by prepareCollisions(canvas, from, to)
+     * The sort is done with sortCollisions(maxCircles)
+     * It does nothing without the sweep and prune method
+     */
+    public void beginSortCollisions() {
+        if ( isUsingSweepAndPrune ) {
+            sweepAndPrune.beginSort(positionsX, circles.size());
+        }
+    }
+
+    /**
+     * This method sorts the circles for the sweep and prune method,
+     * in steps what partition a maximum number of circles
+     * @param maxCircles the maximum number of circles to partition
+     * @return if the circles are sorted
+     */
+    public boolean sortCollisions(int maxCircles) {
+        if ( !isUsingSweepAndPrune ) {
+            return true;
+        }
+        if ( !sweepAndPrune.sortStep(maxCircles) ) {
+            return false;
+        }
+        sweepShift = 0.0f;
+        return true;
+    }
+
+    /**
+     * This method updates the collisions of a range of circles
+     * The collisions have to be prepared with prepareCollisions()
+     * and the ranges are solved in order, so all the ranges together
+     * move the circles the same way as updateCollisions()
+     * @param canvas the dimensions of the canvas
+     * @param from the index of the first circle, inclusive
+     * @param to the index of the last circle, exclusive
+     */
+    public void updateCollisions(CanvasDimensions canvas, int from, int to) {
+        updateCollisions(canvas, from, to, Integer.MAX_VALUE);
+    }
+
+    /**
+     * This method updates the collisions of a range of circles, and
+     * stops after the circle where a number of pairs has been checked,
+     * because the pairs of each circle depend on how crowded it is
+     * @param canvas the dimensions of the canvas
+     * @param from the index of the first circle, inclusive
+     * @param to the index of the last circle, exclusive
+     * @param maxPairs the number of pairs after which it stops
+     * @return the index of the first circle what hasn't been moved
+     */
+    public int updateCollisions(CanvasDimensions canvas, int from, int to, int maxPairs) {
+        if ( isUsingSweepAndPrune ) {
+            return updateCollisionsSweepAndPrune(from, to, maxPairs);
+        }
+        return updateCollisionsBruteForce(canvas, from, to, maxPairs);
     }
 
     /**
      * This method encapsulates all the sequence of
      * methods what the population have to do for each frame
      */
-    public void update(GameContainer gc, float elapsedTime, Image background) {
+    public void update(CanvasDimensions canvas, float elapsedTime, Image background) {
+        long start = sizeController != null ? System.nanoTime() : 0;
+        GenerationEvent generationEvent = GenerationEvent.start();
+        long time = startPhase(PopulationMetrics.Phase.BABIES);
         makeBabies(elapsedTime);
-        updateCollisions(gc);
+        endPhase(PopulationMetrics.Phase.BABIES, time);
+        time = startPhase(PopulationMetrics.Phase.COLLISIONS);
+        updateCollisions(canvas);
+        endPhase(PopulationMetrics.Phase.COLLISIONS, time);
+        time = startPhase(PopulationMetrics.Phase.SCORES);
+        if ( factory.isUsingAnalyticColor() ) {
+            updateAnalyticColors(background);
+        }
         calculateCirclesScore(background);
+        endPhase(PopulationMetrics.Phase.SCORES, time);
+        int numCircles = circles.size();
+        finishGeneration();
+        commitGenerationEvent(generationEvent);
+        if ( sizeController != null ) {
+            adaptPopulationLimits(System.nanoTime() - start, numCircles);
+        }
+    }
+
+    /**
+     * This method fills the Flight Recorder event of a generation
+     * with the state of the population, and commits it
+     * @param event the event, started at the beginning of the
+     *              generation, or null if the event isn't enabled
+     */
+    public void commitGenerationEvent(GenerationEvent event) {
+        if ( event == null ) {
+            return;
+        }
+        double sum = 0;
+        for ( int i = 0; i < circles.size(); i++ ) {
+            sum += circles.get(i).getScore();
+        }
+        event.populationSize = circles.size();
+        event.numBabies = numBabiesOfGeneration;
+        event.numCulled = numKilledOfGeneration;
+        event.meanScore = circles.isEmpty() ? 0 : sum / circles.size();
+        event.fitnessImage = fitnessImage;
+        event.commit();
+    }
+
+    /**
+     * This method changes the maximum number of living circles with
+     * the size controller, if there is one, for the next generation
+     * @param generationTime the time of the last generation, in nanoseconds
+     * @param numCircles the circles what went through the last generation
+     */
+    public void adaptPopulationLimits(long generationTime, int numCircles) {
+        if ( sizeController != null ) {
+            circlePopulationLimits.setX(sizeController.adapt(circlePopulationLimits.getX(), generationTime, numCircles));
+        }
+    }
+
+    /**
+     * This method kills the worst circles and fades the died
+     * ones, the last step of a generation
+     */
+    public void finishGeneration() {
+        long time = startPhase(PopulationMetrics.Phase.KILL_WORST);
         killWorst();
+        endPhase(PopulationMetrics.Phase.KILL_WORST, time);
+        time = startPhase(PopulationMetrics.Phase.DIED_CIRCLES);
         updateDiedCircles();
+        endPhase(PopulationMetrics.Phase.DIED_CIRCLES, time);
     }
 
     /**
-     * This method draws the circles
+     * This method starts a measured phase. The Flight Recorder
+     * event of the phase is only built if it is enabled
+     * @param phase the phase what starts
+     * @return the actual time, or 0 if there aren't metrics
+     */
+    private long startPhase(PopulationMetrics.Phase phase) {
+        phaseEvent = PhaseEvent.start(phase.getLabel(), circles.size());
+        return metrics != null ? System.nanoTime() : 0;
+    }
+
+    /**
+     * This method finishes a measured phase, records its time
+     * on the metrics, if there are metrics, and commits its
+     * Flight Recorder event, if it is enabled
+     * @param phase the phase what has finished
+     * @param start the time when the phase started
+     */
+    private void endPhase(PopulationMetrics.Phase phase, long start) {
+        if ( metrics != null ) {
+            metrics.record(phase, System.nanoTime() - start);
+        }
+        if ( phaseEvent != null ) {
+            phaseEvent.commit();
+            phaseEvent = null;
+        }
+    }
+
+    /**
+     * This method draws the border and the score of the circles,
+     * the living and the died ones, over the circles drawn on a canvas
      * @param r the renderer object with all drawing methods
+     * @param isDrawingBorder if the method has to draw the border of the circles
      * @param isDrawingScore if the method has to draw the score of the circles
      */
-    public void drawCircles(Renderer r, boolean isDrawingBorder, boolean isDrawingScore) {
+    public void drawCirclesInfo(Renderer r, boolean isDrawingBorder, boolean isDrawingScore) {
         for ( CircleImage c : circles ) {
-           c.drawYourSelf(r, isDrawingBorder, isDrawingScore);
+            c.drawYourInfo(r, isDrawingBorder, isDrawingScore);
         }
-        for ( CircleImage c : diedCircles ) {
-            c.drawYourSelf(r, isDrawingBorder, isDrawingScore);
+        diedCircles.drawCirclesInfo(r, isDrawingBorder, isDrawingScore);
+    }
+
+    /**
+     * This method draws the circles on a canvas, the living
+     * ones and after them the died ones
+     * @param canvas the canvas where the circles are drawn
+     */
+    public void drawCircles(CircleCanvas canvas) {
+        for ( int i = 0; i < circles.size(); i++ ) {
+            circles.get(i).drawYourSelf(canvas);
         }
+        diedCircles.drawCircles(canvas);
+    }
+
+    /**
+     * This method marks as dirty, on the fitness tracker, the regions
+     * what have changed since the last time the method was called:
+     * the circles born, killed, moved or changed, on their old and new
+     * bounds, and the died circles what are fading or have faded out
+     * It has to be called once by frame, after drawing the circles
+     * @param tracker the fitness tracker of the buffer where the circles are drawn
+     */
+    public void markDrawnRegions(ImageFitnessTracker tracker) {
+        currentCircles.capture(this, 0);
+        currentCircles.markChangedRegions(drawnCircles, tracker);
+        PopulationSnapshot drawn = drawnCircles;
+        drawnCircles = currentCircles;
+        currentCircles = drawn;
     }
 
     //////////////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -312,10 +1425,30 @@ public class CircleImagePopulation {
         return circles;
     }
 
-    public ArrayList<CircleImage> getDiedCircles() {
+    public FadingCircleBuffer getDiedCircles() {
         return diedCircles;
     }
 
+    public double getFitnessImage() {
+        return fitnessImage;
+    }
+
+    public PopulationMetrics getMetrics() {
+        return metrics;
+    }
+
+    public PopulationSizeController getSizeController() {
+        return sizeController;
+    }
+
+    public ForkJoinPool getScoringPool() {
+        return scoringPool;
+    }
+
+    public int getScoringParallelism() {
+        return scoringParallelism;
+    }
+
     public CircleImageFactory getFactory() {
         return factory;
     }
@@ -324,6 +1457,10 @@ public class CircleImagePopulation {
         return penaltyProximity;
     }
 
+    public int getNumParents() {
+        return numParents;
+    }
+
     public int getNumBabiesByCircle() {
         return numBabiesByCircle;
     }
@@ -336,14 +1473,73 @@ public class CircleImagePopulation {
         return circlePopulationLimits;
     }
 
+    public boolean isUsingPrefixTables() {
+        return isUsingPrefixTables;
+    }
+
+    public boolean isUsingSpatialGrid() {
+        return isUsingSpatialGrid;
+    }
+
+    public boolean isUsingSweepAndPrune() {
+        return isUsingSweepAndPrune;
+    }
+
     public void setCircles(ArrayList<CircleImage> circles) {
         this.circles = circles;
+        killIndex = -1;
     }
 
-    public void setDiedCircles(ArrayList<CircleImage> diedCircles) {
+    public void setDiedCircles(FadingCircleBuffer diedCircles) {
         this.diedCircles = diedCircles;
     }
 
+    public void setMaxDiedCircles(int maxDiedCircles) {
+        diedCircles.setCapacity(maxDiedCircles);
+    }
+
+    public void setFitnessImage(double fitnessImage) {
+        this.fitnessImage = fitnessImage;
+    }
+
+    public void setMetrics(PopulationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public void setRenderFrame(long renderFrame) {
+        this.renderFrame = renderFrame;
+    }
+
+    public void setSizeController(PopulationSizeController sizeController) {
+        this.sizeController = sizeController;
+    }
+
+    /**
+     * This method sets the pool of threads where the circles are scored
+     * @param scoringPool the pool, or null for scoring on the calling thread
+     */
+    public void setScoringPool(ForkJoinPool scoringPool) {
+        if ( isOwningScoringPool && this.scoringPool != null ) {
+            this.scoringPool.shutdown();
+        }
+        isOwningScoringPool = false;
+        this.scoringPool = scoringPool;
+        scoringParallelism = scoringPool == null ? 1 : scoringPool.getParallelism();
+    }
+
+    /**
+     * This method sets the number of threads which score the
+     * circles. The pool for them is built the first time what it
+     * is needed. With one thread, the circles are scored on the
+     * calling thread
+     * @param scoringParallelism the number of threads
+     */
+    public void setScoringParallelism(int scoringParallelism) {
+        setScoringPool(null);
+        this.scoringParallelism = Math.max(scoringParallelism, 1);
+        isOwningScoringPool = this.scoringParallelism > 1;
+    }
+
     public void setFactory(CircleImageFactory factory) {
         this.factory = factory;
     }
@@ -364,4 +1560,16 @@ public class CircleImagePopulation {
         this.circlePopulationLimits = circlePopulationLimits;
     }
 
+    public void setUsingPrefixTables(boolean usingPrefixTables) {
+        isUsingPrefixTables = usingPrefixTables;
+    }
+
+    public void setUsingSpatialGrid(boolean usingSpatialGrid) {
+        isUsingSpatialGrid = usingSpatialGrid;
+    }
+
+    public void setUsingSweepAndPrune(boolean usingSweepAndPrune) {
+        isUsingSweepAndPrune = usingSweepAndPrune;
+    }
+
 }
@@ -0,0 +1,109 @@
+package circlesimage;
+
+/**
+ * This class is a shared cache of the half widths of the
+ * scanlines which compose a disk, for each integer radius
+ *
+ * A disk of radius r centered on (cx, cy) is composed by the rows
+ * from cy - r to cy + r, and the row cy + dy covers the pixels from
+ * cx - getHalfWidth(r, dy) to cx + getHalfWidth(r, dy), both inclusive
+ * The half widths are calculated once with the Bresenham's midpoint
+ * recurrence, so the pixel coverage of a disk is defined only here,
+ * and it is the same for scoring the circles, for calculating their
+ * mean color and for drawing them, on the window and without it,
+ * with the class CircleCanvas
+ *
+ * The collisions don't use the spans: they are resolved between
+ * the circles as continuous shapes, with the real coordinates of
+ * their centers and their radius, before they are drawn
+ *
+ * The tables are immutable, when a bigger radius is needed
+ * a new array of tables is built and published
+ *
+ * @class DiskSpans
+ * @author Sergio Martí Torregrosa
+ * @date 16/11/2020
+ */
+public class DiskSpans {
+
+    /**
+     * The tables of half widths, one for each radius
+     * The table of the radius r has r + 1 values, one for
+     * each distance to the center row
+     */
+    private static volatile int[][] halfWidths = buildTables(new int[0][], 4);
+
+    /**
+     * This method builds the half widths of the rows of
+     * a disk, with the Bresenham's midpoint recurrence
+     * @param radius the radius of the disk
+     * @return the half width for each distance to the center row
+     */
+    private static int[] buildHalfWidths(int radius) {
+        int[] table = new int[radius + 1];
+        int x0 = 0;
+        int y0 = radius;
+        int d = 3 - 2 * radius;
+        while ( y0 >= x0 ) {
+            table[y0] = Math.max(table[y0], x0);
+            table[x0] = Math.max(table[x0], y0);
+            if ( d < 0 ) {
+                d += 4 * x0++ + 6;
+            } else {
+                d += 4 * (x0++ - y0--) + 10;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * This method builds the tables up to the maximum radius,
+     * reusing the tables what already exist
+     * @param tables the tables what already exist
+     * @param maxRadius the maximum radius
+     * @return the new array of tables
+     */
+    private static int[][] buildTables(int[][] tables, int maxRadius) {
+        int[][] newTables = new int[maxRadius + 1][];
+        for ( int r = 0; r <= maxRadius; r++ ) {
+            newTables[r] = r < tables.length ? tables[r] : buildHalfWidths(r);
+        }
+        return newTables;
+    }
+
+    /**
+     * This method makes sure that the tables of all
+     * the radius up to the maximum radius are built
+     * @param maxRadius the maximum radius
+     */
+    public static synchronized void ensureRadius(int maxRadius) {
+        if ( maxRadius >= halfWidths.length ) {
+            halfWidths = buildTables(halfWidths, maxRadius);
+        }
+    }
+
+    /**
+     * This method returns the table of half widths of a radius
+     * @param radius the radius
+     * @return the table of half widths of the radius
+     */
+    private static int[] getTable(int radius) {
+        int[][] tables = halfWidths;
+        if ( radius >= tables.length ) {
+            ensureRadius(radius);
+            tables = halfWidths;
+        }
+        return tables[radius];
+    }
+
+    /**
+     * This method returns the half width of a row of a disk
+     * @param radius the radius of the disk, it has to be positive
+     * @param dy the distance from the row to the center row, from -radius to radius
+     * @return the half width of the row
+     */
+    public static int getHalfWidth(int radius, int dy) {
+        return getTable(radius)[Math.abs(dy)];
+    }
+
+}
@@ -0,0 +1,320 @@
+package circlesimage;
+
+import engine.gfx.HexColors;
+import engine.gfx.Renderer;
+
+/**
+ * This class stores the died circles while they fade off
+ *
+ * It is a ring buffer with a fixed capacity, where the circles
+ * are stored as primitives. The alpha channel of a circle is not
+ * decreased on each frame, it is calculated from the age of the
+ * circle when it is read. The circles die in order, so the oldest
+ * circles are the first to become transparent, and they drop off
+ * the tail of the ring in constant time
+ *
+ * When the ring is full, the oldest circle is overwritten, so the
+ * memory used by the trail of died circles has a hard limit
+ *
+ * @class FadingCircleBuffer
+ * @author Sergio Martí Torregrosa
+ * @date 20/11/2020
+ */
+public class FadingCircleBuffer {
+
+    /**
+     * The alpha decrease for each frame
+     */
+    private final int ALPHA_DECREASE = 5;
+
+    /**
+     * The x coordinates of the circles
+     */
+    private float[] x;
+
+    /**
+     * The y coordinates of the circles
+     */
+    private float[] y;
+
+    /**
+     * The radius of the circles
+     */
+    private float[] size;
+
+    /**
+     * The hex codes of the colors of the circles when they died
+     */
+    private int[] colorCode;
+
+    /**
+     * The scores of the circles when they died
+     */
+    private double[] score;
+
+    /**
+     * The frame when each circle died
+     */
+    private long[] deathFrame;
+
+    /**
+     * The index of the oldest circle
+     */
+    private int tail = 0;
+
+    /**
+     * The number of circles
+     */
+    private int count = 0;
+
+    /**
+     * The actual frame
+     */
+    private long frame = 0;
+
+    /**
+     * Constructor
+     * @param capacity the maximum number of circles
+     */
+    public FadingCircleBuffer(int capacity) {
+        allocate(Math.max(capacity, 1));
+    }
+
+    /**
+     * This method allocates the arrays
+     * @param capacity the maximum number of circles
+     */
+    private void allocate(int capacity) {
+        x = new float[capacity];
+        y = new float[capacity];
+        size = new float[capacity];
+        colorCode = new int[capacity];
+        score = new double[capacity];
+        deathFrame = new long[capacity];
+        tail = 0;
+        count = 0;
+    }
+
+    /**
+     * This method returns the index on the arrays of a circle
+     * @param index the index of the circle, 0 is the oldest circle
+     * @return the index on the arrays
+     */
+    private int toSlot(int index) {
+        int slot = tail + index;
+        return slot >= x.length ? slot - x.length : slot;
+    }
+
+    /**
+     * This method adds a died circle. If the buffer is
+     * full, the oldest circle is overwritten
+     * @param cx the x coordinate
+     * @param cy the y coordinate
+     * @param radius the radius
+     * @param code the hex code of the color
+     * @param circleScore the score of the circle
+     */
+    public void add(float cx, float cy, float radius, int code, double circleScore) {
+        if ( count == x.length ) {
+            tail = toSlot(1);
+            count--;
+        }
+        int slot = toSlot(count);
+        x[slot] = cx;
+        y[slot] = cy;
+        size[slot] = radius;
+        colorCode[slot] = code;
+        score[slot] = circleScore;
+        deathFrame[slot] = frame;
+        count++;
+    }
+
+    /**
+     * This method adds a died circle
+     * @param c the circle
+     */
+    public void add(CircleImage c) {
+        add(c.getPosition().getX(), c.getPosition().getY(), c.getSize(), c.getColor().getCode(), c.getScore());
+    }
+
+    /**
+     * This method calculates the alpha channel of a circle
+     * @param slot the index of the circle on the arrays
+     * @return the alpha channel
+     */
+    private int getAlphaOfSlot(int slot) {
+        long alpha = (colorCode[slot] >>> 24) - ALPHA_DECREASE * (frame - deathFrame[slot]);
+        return (int)Math.max(alpha, 0);
+    }
+
+    /**
+     * This method moves to the next frame, so the alpha of all
+     * circles decreases, and drops the oldest circles
+     * which have become transparent
+     */
+    public void advance() {
+        advanceTo(frame + 1);
+    }
+
+    /**
+     * This method moves to a frame, so the alpha of all circles
+     * decreases the frames what have passed, and drops the oldest
+     * circles which have become transparent. It is used when the
+     * frames aren't counted by the one what adds the circles, as the
+     * simulation thread, whose generations don't follow the frames
+     * @param frame the frame, it doesn't move back to older frames
+     */
+    public void advanceTo(long frame) {
+        this.frame = Math.max(this.frame, frame);
+        while ( count > 0 && getAlphaOfSlot(tail) < ALPHA_DECREASE ) {
+            tail = toSlot(1);
+            count--;
+        }
+    }
+
+    /**
+     * This method removes all the circles
+     */
+    public void clear() {
+        tail = 0;
+        count = 0;
+    }
+
+    /**
+     * This method says if a circle is visible. Circles which
+     * died more transparent than others can be transparent
+     * before reaching the tail
+     * @param index the index of the circle, 0 is the oldest circle
+     * @return if the circle is visible
+     */
+    public boolean isVisible(int index) {
+        return getAlphaOfSlot(toSlot(index)) >= ALPHA_DECREASE;
+    }
+
+    /**
+     * This method draws the border and the score of the visible
+     * died circles, over the circles drawn on a canvas
+     * @param r the renderer object with all drawing methods
+     * @param isDrawingBorder if the method has to draw the border of the circles
+     * @param isDrawingScore if the method has to draw the score of the circles
+     */
+    public void drawCirclesInfo(Renderer r, boolean isDrawingBorder, boolean isDrawingScore) {
+        for ( int i = 0; i < count; i++ ) {
+            int slot = toSlot(i);
+            if ( getAlphaOfSlot(slot) < ALPHA_DECREASE ) {
+                continue;
+            }
+            int cx = (int)x[slot];
+            int cy = (int)y[slot];
+            int radius = (int)size[slot];
+            if ( isDrawingBorder ) {
+                r.drawCircle(cx, cy, radius, HexColors.WHITE);
+            }
+            if ( isDrawingScore ) {
+                r.drawText(String.format("%.2f%%", score[slot] * 100), cx, cy, HexColors.WHITE);
+            }
+        }
+    }
+
+    /**
+     * This method draws the visible died circles on a canvas
+     * @param canvas the canvas where the circles are drawn
+     */
+    public void drawCircles(CircleCanvas canvas) {
+        for ( int i = 0; i < count; i++ ) {
+            int slot = toSlot(i);
+            int alpha = getAlphaOfSlot(slot);
+            if ( alpha >= ALPHA_DECREASE ) {
+                canvas.drawFillCircle((int)x[slot], (int)y[slot], (int)size[slot], (alpha << 24) | (colorCode[slot] & 0xffffff));
+            }
+        }
+    }
+
+    /**
+     * This method marks as dirty, on the fitness tracker,
+     * the regions of the visible circles
+     * @param tracker the fitness tracker of the buffer where the circles are drawn
+     */
+    public void markDrawnRegions(ImageFitnessTracker tracker) {
+        for ( int i = 0; i < count; i++ ) {
+            int slot = toSlot(i);
+            if ( getAlphaOfSlot(slot) >= ALPHA_DECREASE ) {
+                tracker.markCircleDirty(x[slot], y[slot], size[slot]);
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////
+
+    public int size() {
+        return count;
+    }
+
+    public long getFrame() {
+        return frame;
+    }
+
+    public int getCapacity() {
+        return x.length;
+    }
+
+    public float getX(int index) {
+        return x[toSlot(index)];
+    }
+
+    public float getY(int index) {
+        return y[toSlot(index)];
+    }
+
+    public float getRadius(int index) {
+        return size[toSlot(index)];
+    }
+
+    public double getScore(int index) {
+        return score[toSlot(index)];
+    }
+
+    /**
+     * This method returns the hex code of the color of a
+     * circle, with the alpha channel of its age
+     * @param index the index of the circle, 0 is the oldest circle
+     * @return the hex code of the color
+     */
+    public int getColorCode(int index) {
+        int slot = toSlot(index);
+        return (getAlphaOfSlot(slot) << 24) | (colorCode[slot] & 0xffffff);
+    }
+
+    /**
+     * This method changes the capacity of the buffer
+     * The newest circles are kept
+     * @param capacity the maximum number of circles
+     */
+    public void setCapacity(int capacity) {
+        capacity = Math.max(capacity, 1);
+        if ( capacity == x.length ) {
+            return;
+        }
+        float[] oldX = x;
+        float[] oldY = y;
+        float[] oldSize = size;
+        int[] oldColorCode = colorCode;
+        double[] oldScore = score;
+        long[] oldDeathFrame = deathFrame;
+        int oldTail = tail;
+        int oldCount = count;
+
+        allocate(capacity);
+        for ( int i = Math.max(oldCount - capacity, 0); i < oldCount; i++ ) {
+            int slot = (oldTail + i) % oldX.length;
+            x[count] = oldX[slot];
+            y[count] = oldY[slot];
+            size[count] = oldSize[slot];
+            colorCode[count] = oldColorCode[slot];
+            score[count] = oldScore[slot];
+            deathFrame[count] = oldDeathFrame[slot];
+            count++;
+        }
+    }
+
+}
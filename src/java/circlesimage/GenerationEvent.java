@@ -0,0 +1,66 @@
+package circlesimage;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Percentage;
+import jdk.jfr.StackTrace;
+
+/**
+ * This class is the Java Flight Recorder event of a whole
+ * generation of a population, from making the babies until
+ * the died circles fade
+ *
+ * The fitness of the image is the last fitness measured by the
+ * program what draws the population, so it can be a generation
+ * behind, and it is NaN if the image isn't measured
+ *
+ * @class GenerationEvent
+ * @author Sergio Martí Torregrosa
+ * @date 28/11/2020
+ */
+@Name("circlesimage.Generation")
+@Label("Generation")
+@Category({"Circles Image", "Generations"})
+@Description("A generation of a population of circles")
+@StackTrace(false)
+public class GenerationEvent extends jdk.jfr.Event {
+
+    /**
+     * The type of the event, for checking if it is enabled
+     */
+    private static final EventType TYPE = EventType.getEventType(GenerationEvent.class);
+
+    @Label("Population Size")
+    @Description("The number of living circles at the end of the generation")
+    int populationSize;
+
+    @Label("Babies")
+    int numBabies;
+
+    @Label("Culled")
+    int numCulled;
+
+    @Label("Mean Score")
+    double meanScore;
+
+    @Label("Image Fitness")
+    @Percentage
+    double fitnessImage;
+
+    /**
+     * This method starts a generation event, if the event is enabled
+     * @return the started event, or null if the event isn't enabled
+     */
+    public static GenerationEvent start() {
+        if ( !TYPE.isEnabled() ) {
+            return null;
+        }
+        GenerationEvent event = new GenerationEvent();
+        event.begin();
+        return event;
+    }
+
+}
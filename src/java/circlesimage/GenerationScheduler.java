@@ -0,0 +1,464 @@
+package circlesimage;
+
+import engine.gfx.images.Image;
+
+import java.util.Arrays;
+
+/**
+ * This class runs the generations of a population in slices,
+ * so a generation can be spread over several frames
+ *
+ * A generation is split in phases: making the babies, the
+ * collisions, the analytic colors, the scores, the penalty for
+ * proximity, killing the worst circles, fading the died circles
+ * and taking the snapshot. The phases what go over all the circles
+ * are split in slices, and so are the killing of the worst circles
+ * and the snapshot of the living and the died circles, which are the
+ * longest phases with many circles. On each frame, the slices run in
+ * order until the time budget of the frame runs out, and the next
+ * frame resumes the generation from the next slice. At least one
+ * slice runs on each frame, so the population always evolves
+ *
+ * The size of the slices is adapted to the budget. The scheduler
+ * measures the time of a circle on the slices of each phase, and the
+ * next slice of the phase takes the circles what fit in a part of the
+ * time left of the frame. The collisions and the penalty for proximity
+ * are measured by pairs of circles instead, because a circle on a
+ * crowded place checks many more pairs than a lonely one. The first
+ * slice of a phase, and all the slices when the frame has no budget,
+ * take a fixed number of circles
+ *
+ * While a generation is half done, the population has the babies
+ * and the scores of some circles only, so the scheduler keeps a
+ * snapshot of the last finished generation, which is what has
+ * to be drawn. The snapshot of the next generation is taken on
+ * other snapshot, and they are swapped when it is finished
+ *
+ * @class GenerationScheduler
+ * @author Sergio Martí Torregrosa
+ * @date 26/11/2020
+ */
+public class GenerationScheduler {
+
+    /**
+     * The phases of a generation, in the order they run, with the
+     * phase of the metrics where their slices are measured, or null
+     * if they aren't measured as a phase of the population
+     */
+    private enum Phase {
+        BABIES(PopulationMetrics.Phase.BABIES),
+        MAKE_BABIES(PopulationMetrics.Phase.BABIES),
+        NUMBER_CIRCLES(PopulationMetrics.Phase.BABIES),
+        PREPARE_COLLISIONS(PopulationMetrics.Phase.COLLISIONS),
+        BEGIN_SORT(PopulationMetrics.Phase.COLLISIONS),
+        SORT_COLLISIONS(PopulationMetrics.Phase.COLLISIONS),
+        COLLISIONS(PopulationMetrics.Phase.COLLISIONS),
+        ANALYTIC_COLORS(PopulationMetrics.Phase.SCORES),
+        SCORES(PopulationMetrics.Phase.SCORES),
+        PREPARE_PENALTY(PopulationMetrics.Phase.SCORES),
+        PROXIMITY_GRID(PopulationMetrics.Phase.SCORES),
+        PENALTY(PopulationMetrics.Phase.SCORES),
+        FINISH_PENALTY(PopulationMetrics.Phase.SCORES),
+        PREPARE_KILL_WORST(PopulationMetrics.Phase.KILL_WORST),
+        COPY_SCORES(PopulationMetrics.Phase.KILL_WORST),
+        SELECT_WORST(PopulationMetrics.Phase.KILL_WORST),
+        KILL_WORST(PopulationMetrics.Phase.KILL_WORST),
+        DIED_CIRCLES(PopulationMetrics.Phase.DIED_CIRCLES),
+        CAPTURE_CIRCLES(null),
+        CAPTURE_DIED_CIRCLES(null),
+        FINISH_CAPTURE(null);
+
+        private final PopulationMetrics.Phase metricsPhase;
+
+        Phase(PopulationMetrics.Phase metricsPhase) {
+            this.metricsPhase = metricsPhase;
+        }
+    }
+
+    /**
+     * The slices take the circles what fit in this part of the time
+     * left of the frame, so when the circles of a slice are slower
+     * than the measured ones, there is still time for the next slices
+     */
+    private static final int PARTS_OF_TIME_LEFT = 4;
+
+    /**
+     * The part of the time of a circle what is kept on the next slice
+     * of the phase, when the circles of the next slice are faster
+     */
+    private static final double ESTIMATE_DECAY = 0.9;
+
+    /**
+     * The population what is evolved
+     */
+    private final CircleImagePopulation population;
+
+    /**
+     * The snapshot of the last finished generation
+     */
+    private PopulationSnapshot snapshot = new PopulationSnapshot();
+
+    /**
+     * The snapshot what is being taken of the generation what is running
+     */
+    private PopulationSnapshot nextSnapshot = new PopulationSnapshot();
+
+    /**
+     * The number of circles of the slices of a phase what hasn't been
+     * measured yet, and of all the slices when the frame has no budget
+     */
+    private int circlesBySlice = 256;
+
+    /**
+     * The time of a circle on the slices of each phase, in nanoseconds,
+     * or 0 if the phase hasn't run any slice yet. It is the longest time
+     * of the last slices, what decays slowly, so a slice what is slower
+     * than the previous ones doesn't make the next slices too long
+     * On the sort and the selection a circle is a key, and on the
+     * collisions and the penalty a circle is a pair of circles
+     */
+    private final double[] nanosByCircle = new double[Phase.values().length];
+
+    /**
+     * The time when the budget of the frame runs out, as System.nanoTime(),
+     * or Long.MIN_VALUE if the frame has no budget
+     */
+    private long frameEnd = Long.MIN_VALUE;
+
+    /**
+     * The number of circles, keys or pairs of the slice what has
+     * just run, or 0 if its phase isn't split in slices
+     */
+    private int numSliceCircles = 0;
+
+    /**
+     * The phase what runs on the next slice
+     */
+    private Phase phase = Phase.BABIES;
+
+    /**
+     * The index of the first circle of the next slice
+     */
+    private int index = 0;
+
+    /**
+     * The time elapsed since the last generation started
+     */
+    private float elapsedTime = 0.0f;
+
+    /**
+     * The time spent on the slices of the generation what is running,
+     * in nanoseconds, without the time of the frames between them
+     */
+    private long generationTime = 0;
+
+    /**
+     * The time spent on the slices of each phase of the metrics
+     * on the generation what is running, in nanoseconds
+     */
+    private final long[] phaseTimes = new long[PopulationMetrics.Phase.values().length];
+
+    /**
+     * The Flight Recorder event of the generation what is
+     * running, or null if the event isn't enabled
+     */
+    private GenerationEvent generationEvent = null;
+
+    /**
+     * The circles what went through the last finished generation
+     */
+    private int numGenerationCircles = 0;
+
+    /**
+     * The number of finished generations
+     */
+    private long numGenerations = 0;
+
+    /**
+     * Constructor
+     * @param population the population what is evolved
+     */
+    public GenerationScheduler(CircleImagePopulation population) {
+        this.population = population;
+        snapshot.capture(population, numGenerations);
+    }
+
+    /**
+     * This method starts the generation again from the first phase,
+     * and takes a new snapshot. It has to be called when the
+     * population is changed out of the scheduler, like rebuilding it
+     * If the worst circles were being killed, the kill is finished
+     * first, although rebuilding the population already finishes it
+     */
+    public void reset() {
+        population.finishKillWorst();
+        phase = Phase.BABIES;
+        index = 0;
+        generationTime = 0;
+        generationEvent = null;
+        Arrays.fill(phaseTimes, 0);
+        snapshot.capture(population, numGenerations);
+    }
+
+    /**
+     * This method calculates the number of circles of the next slice
+     * of the phase, what fit in the time left of the frame
+     * @return the number of circles of the slice, at least one
+     */
+    private int getSliceSize() {
+        double nanos = nanosByCircle[phase.ordinal()];
+        if ( frameEnd == Long.MIN_VALUE || nanos <= 0 ) {
+            return circlesBySlice;
+        }
+        double time = (double)(frameEnd - System.nanoTime()) / PARTS_OF_TIME_LEFT;
+        return (int)Math.max(Math.min(time / nanos, Integer.MAX_VALUE), 1);
+    }
+
+    /**
+     * This method moves the index to the next slice of the range
+     * of the living circles of a phase, and moves to the next phase
+     * at the end of the range
+     * @param next the next phase
+     * @return the index of the last circle of the slice, exclusive
+     */
+    private int nextSlice(Phase next) {
+        return nextSlice(next, population.getCircles().size());
+    }
+
+    /**
+     * This method moves the index to the next slice of a range of
+     * circles, and moves to the next phase at the end of the range
+     * @param next the next phase
+     * @param size the number of circles of the range
+     * @return the index of the last circle of the slice, exclusive
+     */
+    private int nextSlice(Phase next, int size) {
+        int to = (int)Math.min((long)index + getSliceSize(), size);
+        numSliceCircles = Math.max(to - index, 0);
+        if ( to >= size ) {
+            phase = next;
+            index = 0;
+        } else {
+            index = to;
+        }
+        return to;
+    }
+
+    /**
+     * This method moves the index after a slice of a phase what checks
+     * pairs of circles. These slices are measured by pairs instead of
+     * by circles, because a crowded circle checks many more pairs
+     * @param next the next phase
+     * @param to the index of the first circle what hasn't been checked
+     */
+    private void endPairsSlice(Phase next, int to) {
+        if ( to >= population.getCircles().size() ) {
+            phase = next;
+            index = 0;
+        } else {
+            index = to;
+        }
+    }
+
+    /**
+     * This method runs the next slice of the generation
+     * @param canvas the dimensions of the canvas
+     * @param background the background image
+     * @return if the slice finished the generation
+     */
+    private boolean runSlice(CanvasDimensions canvas, Image background) {
+        numSliceCircles = 0;
+        int from = index;
+        int to;
+        switch ( phase ) {
+            case BABIES:
+                generationEvent = GenerationEvent.start();
+                phase = population.prepareBabies(elapsedTime) ? Phase.MAKE_BABIES : Phase.PREPARE_COLLISIONS;
+                elapsedTime = 0.0f;
+                break;
+            case MAKE_BABIES:
+                to = nextSlice(Phase.NUMBER_CIRCLES, population.getNumParents());
+                population.makeBabies(from, to);
+                break;
+            case NUMBER_CIRCLES:
+                to = nextSlice(Phase.PREPARE_COLLISIONS);
+                population.numberCircles(from, to);
+                break;
+            case PREPARE_COLLISIONS:
+                to = nextSlice(Phase.BEGIN_SORT);
+                population.prepareCollisions(canvas, from, to);
+                break;
+            case BEGIN_SORT:
+                population.beginSortCollisions();
+                phase = Phase.SORT_COLLISIONS;
+                break;
+            case SORT_COLLISIONS:
+                numSliceCircles = getSliceSize();
+                if ( population.sortCollisions(numSliceCircles) ) {
+                    phase = Phase.COLLISIONS;
+                }
+                break;
+            case COLLISIONS:
+                numSliceCircles = getSliceSize();
+                to = population.updateCollisions(canvas, from, population.getCircles().size(), numSliceCircles);
+                endPairsSlice(population.getFactory().isUsingAnalyticColor() ? Phase.ANALYTIC_COLORS : Phase.SCORES, to);
+                break;
+            case ANALYTIC_COLORS:
+                to = nextSlice(Phase.SCORES);
+                population.updateAnalyticColors(background, from, to);
+                break;
+            case SCORES:
+                to = nextSlice(Phase.PREPARE_PENALTY);
+                population.scoreCircles(background, from, to);
+                break;
+            case PREPARE_PENALTY:
+                to = nextSlice(Phase.PROXIMITY_GRID);
+                population.prepareProximityPenalty(from, to);
+                break;
+            case PROXIMITY_GRID:
+                population.buildProximityGrid();
+                phase = Phase.PENALTY;
+                break;
+            case PENALTY:
+                numSliceCircles = getSliceSize();
+                to = population.countCloseCircles(from, population.getCircles().size(), numSliceCircles);
+                endPairsSlice(Phase.FINISH_PENALTY, to);
+                break;
+            case FINISH_PENALTY:
+                to = nextSlice(Phase.PREPARE_KILL_WORST);
+                population.finishProximityPenalty(from, to);
+                break;
+            case PREPARE_KILL_WORST:
+                numGenerationCircles = population.getCircles().size();
+                phase = population.beginKillWorst() ? Phase.COPY_SCORES : Phase.DIED_CIRCLES;
+                break;
+            case COPY_SCORES:
+                to = nextSlice(Phase.SELECT_WORST);
+                population.copyScores(from, to);
+                break;
+            case SELECT_WORST:
+                numSliceCircles = getSliceSize();
+                if ( population.selectWorstCircles(numSliceCircles) ) {
+                    phase = Phase.KILL_WORST;
+                }
+                break;
+            case KILL_WORST:
+                to = nextSlice(Phase.DIED_CIRCLES);
+                population.killWorst(from, to);
+                break;
+            case DIED_CIRCLES:
+                population.removeKilledCircles();
+                population.updateDiedCircles();
+                population.commitGenerationEvent(generationEvent);
+                generationEvent = null;
+                nextSnapshot.beginCapture(population);
+                phase = Phase.CAPTURE_CIRCLES;
+                break;
+            case CAPTURE_CIRCLES:
+                to = nextSlice(Phase.CAPTURE_DIED_CIRCLES);
+                nextSnapshot.captureCircles(population, from, to);
+                break;
+            case CAPTURE_DIED_CIRCLES:
+                to = nextSlice(Phase.FINISH_CAPTURE, population.getDiedCircles().size());
+                nextSnapshot.captureDiedCircles(population, from, to);
+                break;
+            case FINISH_CAPTURE:
+                numGenerations++;
+                nextSnapshot.finishCapture(population, numGenerations);
+                PopulationSnapshot finished = snapshot;
+                snapshot = nextSnapshot;
+                nextSnapshot = finished;
+                phase = Phase.BABIES;
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * This method records on the metrics of the population, if
+     * there are metrics, the times of the phases of the finished
+     * generation, as if each phase had run at once
+     */
+    private void recordPhaseTimes() {
+        PopulationMetrics metrics = population.getMetrics();
+        for ( PopulationMetrics.Phase metricsPhase : PopulationMetrics.Phase.values() ) {
+            if ( metrics != null && phaseTimes[metricsPhase.ordinal()] > 0 ) {
+                metrics.record(metricsPhase, phaseTimes[metricsPhase.ordinal()]);
+            }
+            phaseTimes[metricsPhase.ordinal()] = 0;
+        }
+    }
+
+    /**
+     * This method runs the slices of the generations what
+     * fit in the time budget of a frame
+     * The babies are made with the time of the frames, so if the
+     * population has a cap for making babies, at most one generation
+     * finishes on each frame, as without the scheduler. Without cap,
+     * every generation makes babies, and the generations keep running
+     * back to back until the budget runs out
+     * @param canvas the dimensions of the canvas
+     * @param frameTime the time elapsed since the last frame
+     * @param background the background image
+     * @param budget the time budget of the frame, in nanoseconds
+     * @return the number of generations finished on the frame
+     */
+    public int update(CanvasDimensions canvas, float frameTime, Image background, long budget) {
+        long start = System.nanoTime();
+        frameEnd = budget > 0 ? start + budget : Long.MIN_VALUE;
+        elapsedTime += frameTime;
+        int finished = 0;
+        do {
+            Phase slicePhase = phase;
+            PhaseEvent sliceEvent = slicePhase.metricsPhase != null
+                    ? PhaseEvent.start(slicePhase.metricsPhase.getLabel(), population.getCircles().size()) : null;
+            long sliceStart = System.nanoTime();
+            boolean isFinished = runSlice(canvas, background);
+            long sliceTime = System.nanoTime() - sliceStart;
+            if ( sliceEvent != null ) {
+                sliceEvent.commit();
+            }
+            generationTime += sliceTime;
+            if ( slicePhase.metricsPhase != null ) {
+                phaseTimes[slicePhase.metricsPhase.ordinal()] += sliceTime;
+            }
+            if ( numSliceCircles > 0 ) {
+                nanosByCircle[slicePhase.ordinal()] = Math.max((double)sliceTime / numSliceCircles,
+                        nanosByCircle[slicePhase.ordinal()] * ESTIMATE_DECAY);
+            }
+            if ( isFinished ) {
+                population.adaptPopulationLimits(generationTime, numGenerationCircles);
+                recordPhaseTimes();
+                generationTime = 0;
+                finished++;
+                if ( population.getMakeBabiesCap() > 0 ) {
+                    break;
+                }
+            }
+        } while ( System.nanoTime() - start < budget );
+        return finished;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////
+
+    public CircleImagePopulation getPopulation() {
+        return population;
+    }
+
+    public PopulationSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public int getCirclesBySlice() {
+        return circlesBySlice;
+    }
+
+    public long getNumGenerations() {
+        return numGenerations;
+    }
+
+    public void setCirclesBySlice(int circlesBySlice) {
+        this.circlesBySlice = Math.max(circlesBySlice, 1);
+    }
+
+}
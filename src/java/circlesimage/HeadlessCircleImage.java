@@ -0,0 +1,259 @@
+package circlesimage;
+
+import engine.gfx.images.Image;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * This class is the entry point of the program without window
+ *
+ * It loads a background image, evolves the circles a number of
+ * generations or until a time budget runs out, and writes the
+ * image made by the circles to a file. It doesn't use the
+ * GameContainer nor the Renderer of the engine, so it can run on
+ * a server with java.awt.headless=true
+ *
+ * The background is loaded the same way as the background images of
+ * parameters.txt, as a resource path, so its folder has to be on the
+ * classpath. The generations use a fixed time step, so the babies are
+ * made on every generation and a run with a seed can be reproduced
+ *
+ * Usage:
+ * java circlesimage.HeadlessCircleImage --background /image.jpg --output result.png
+ *      [--generations 1000] [--time-budget seconds] [--max-circles 500] [--min-circles 20]
+ *      [--babies 3] [--penalty 0.001] [--max-circle-size 4] [--analytic-color]
+ *      [--seed n] [--islands 1] [--scoring-parallelism 1] [--report 100]
+ *
+ * @class HeadlessCircleImage
+ * @author Sergio Martí Torregrosa
+ * @date 24/11/2020
+ */
+public class HeadlessCircleImage {
+
+    /**
+     * The color of the canvas under the circles
+     */
+    private static final int BACKGROUND_COLOR = 0xffffffff;
+
+    private String backgroundPath;
+
+    private File output;
+
+    private long generations = 1000;
+
+    private double timeBudget = 0;
+
+    private int maxCircles = 500;
+
+    private int minCircles = 20;
+
+    private int numBabiesByCircle = 3;
+
+    private double penaltyProximity = 0.001;
+
+    private int maxCircleSize = 4;
+
+    private boolean isUsingAnalyticColor = false;
+
+    private Long seed = null;
+
+    private int numIslands = 1;
+
+    private int scoringParallelism = 1;
+
+    private long reportInterval = 0;
+
+    /**
+     * This method prints how the program is used
+     */
+    private static void printUsage() {
+        System.err.println("Usage: java circlesimage.HeadlessCircleImage --background /image.jpg --output result.png");
+        System.err.println("       [--generations 1000] [--time-budget seconds] [--max-circles 500] [--min-circles 20]");
+        System.err.println("       [--babies 3] [--penalty 0.001] [--max-circle-size 4] [--analytic-color]");
+        System.err.println("       [--seed n] [--islands 1] [--scoring-parallelism 1] [--report 100]");
+    }
+
+    /**
+     * This method reads the arguments of the program
+     * @param args the arguments
+     */
+    private void readArguments(String[] args) {
+        for ( int i = 0; i < args.length; i++ ) {
+            String option = args[i];
+            if ( option.equals("--analytic-color") ) {
+                isUsingAnalyticColor = true;
+                continue;
+            }
+            if ( i + 1 >= args.length ) {
+                throw new IllegalArgumentException("The option " + option + " needs a value");
+            }
+            String value = args[++i];
+            switch ( option ) {
+                case "--background":
+                    backgroundPath = value;
+                    break;
+                case "--output":
+                    output = new File(value);
+                    break;
+                case "--generations":
+                    generations = Long.parseLong(value);
+                    break;
+                case "--time-budget":
+                    timeBudget = Double.parseDouble(value);
+                    break;
+                case "--max-circles":
+                    maxCircles = Integer.parseInt(value);
+                    break;
+                case "--min-circles":
+                    minCircles = Integer.parseInt(value);
+                    break;
+                case "--babies":
+                    numBabiesByCircle = Integer.parseInt(value);
+                    break;
+                case "--penalty":
+                    penaltyProximity = Double.parseDouble(value);
+                    break;
+                case "--max-circle-size":
+                    maxCircleSize = Integer.parseInt(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "--islands":
+                    numIslands = Integer.parseInt(value);
+                    break;
+                case "--scoring-parallelism":
+                    scoringParallelism = Integer.parseInt(value);
+                    break;
+                case "--report":
+                    reportInterval = Long.parseLong(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + option);
+            }
+        }
+        if ( backgroundPath == null || output == null ) {
+            throw new IllegalArgumentException("The background and the output are needed");
+        }
+    }
+
+    /**
+     * This method builds the population with the arguments
+     * @return the population
+     */
+    private CircleImagePopulation buildTemplate() {
+        CircleImagePopulation population = new CircleImagePopulation();
+        if ( seed != null ) {
+            population.getFactory().setSeed(seed);
+        }
+        population.getFactory().setMaxCircleSize(maxCircleSize);
+        population.getFactory().setUsingAnalyticColor(isUsingAnalyticColor);
+        population.getCirclePopulationLimits().setX(maxCircles);
+        population.getCirclePopulationLimits().setY(minCircles);
+        population.setNumBabiesByCircle(numBabiesByCircle);
+        population.setMakeBabiesCap(0.0);
+        population.setPenaltyProximity(penaltyProximity);
+        population.setUsingPrefixTables(true);
+        population.setScoringParallelism(scoringParallelism);
+        return population;
+    }
+
+    /**
+     * This method draws the circles on the canvas and
+     * calculates the fitness of the image
+     * @param canvas the canvas
+     * @param population the population, or null if there are islands
+     * @param islands the islands, or null if there is only one population
+     * @param background the background image
+     * @return the fitness of the image made by the circles
+     */
+    private static double drawCircles(CircleCanvas canvas, CircleImagePopulation population,
+                                      IslandModelPopulation islands, Image background) {
+        canvas.clear(BACKGROUND_COLOR);
+        if ( islands != null ) {
+            islands.drawCircles(canvas);
+        } else {
+            population.drawCircles(canvas);
+        }
+        return BuffersFitnessCalculator.calculateImageFitnessPacked(background.getP(), canvas.getP());
+    }
+
+    /**
+     * This method evolves the circles and writes the image
+     * @return the fitness of the final image
+     * @throws IOException if the image can't be written
+     */
+    private double run() throws IOException {
+        Image background = new Image(backgroundPath);
+        if ( background.getP() == null ) {
+            throw new IOException("The background " + backgroundPath + " can't be loaded");
+        }
+        CanvasDimensions dimensions = new CanvasDimensions(background.getW(), background.getH());
+        CircleCanvas canvas = new CircleCanvas(dimensions);
+
+        CircleImagePopulation population = buildTemplate();
+        IslandModelPopulation islands = null;
+        if ( numIslands > 1 ) {
+            islands = new IslandModelPopulation(population, numIslands, 20, 5);
+            islands.buildPopulation(dimensions);
+        } else {
+            population.buildPopulation(dimensions);
+        }
+
+        long start = System.nanoTime();
+        long budget = timeBudget > 0 ? (long)(timeBudget * 1e9) : Long.MAX_VALUE;
+        long generation = 0;
+        while ( generation < generations && System.nanoTime() - start < budget ) {
+            if ( islands != null ) {
+                islands.update(dimensions, 0.0f, background);
+            } else {
+                population.update(dimensions, 0.0f, background);
+            }
+            generation++;
+            if ( reportInterval > 0 && generation % reportInterval == 0 ) {
+                double fitness = drawCircles(canvas, population, islands, background);
+                population.setFitnessImage(fitness);
+                System.out.printf("Generation %d: fitness %.3f%%%n", generation, fitness * 100);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        double fitness = drawCircles(canvas, population, islands, background);
+        canvas.write(output);
+        if ( islands != null ) {
+            islands.shutdown();
+        }
+        population.shutdown();
+
+        System.out.printf("%d generations in %.2f s (%.1f generations by second), fitness %.3f%%, written to %s%n",
+                generation, seconds, generation / seconds, fitness * 100, output.getPath());
+        return fitness;
+    }
+
+    /**
+     * The main method, the executing point
+     * @param args the arguments of the program
+     */
+    public static void main(String[] args) {
+        if ( System.getProperty("java.awt.headless") == null ) {
+            System.setProperty("java.awt.headless", "true");
+        }
+        HeadlessCircleImage program = new HeadlessCircleImage();
+        try {
+            program.readArguments(args);
+        } catch ( IllegalArgumentException e ) {
+            System.err.println(e.getMessage());
+            printUsage();
+            System.exit(1);
+        }
+        try {
+            program.run();
+        } catch ( IOException e ) {
+            System.err.println("The image can't be made!");
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+}
@@ -0,0 +1,238 @@
+package circlesimage;
+
+/**
+ * This class keeps the fitness of a front buffer compared with
+ * a background buffer without calculating it over all the pixels
+ * in each frame
+ *
+ * The image is divided in square tiles, and the error of each tile
+ * (the sum of the squared differences of the four channels) is stored
+ * in a cache. When some pixels of the front buffer change, the regions
+ * what have changed are marked as dirty, and only the error of the dirty
+ * tiles is summed again. So, the cost of the update depends on how much
+ * of the image has changed, and not on the size of the image
+ *
+ * @class ImageFitnessTracker
+ * @author Sergio Martí Torregrosa
+ * @date 13/11/2020
+ */
+public class ImageFitnessTracker {
+
+    /**
+     * The size of the side of the tiles, in pixels
+     * By default 16
+     */
+    private final int tileSize;
+
+    /**
+     * The background buffer
+     */
+    private int[] back;
+
+    /**
+     * The front buffer
+     */
+    private int[] front;
+
+    /**
+     * The width of the buffers
+     */
+    private int width;
+
+    /**
+     * The height of the buffers
+     */
+    private int height;
+
+    /**
+     * The number of tiles on the x axis
+     */
+    private int numTilesX;
+
+    /**
+     * The number of tiles on the y axis
+     */
+    private int numTilesY;
+
+    /**
+     * The error of each tile
+     */
+    private long[] tilesErrors = new long[0];
+
+    /**
+     * A flag for each tile, if it is dirty or not
+     */
+    private boolean[] isTileDirty = new boolean[0];
+
+    /**
+     * The indexes of the dirty tiles, so it isn't needed
+     * to go over all the tiles to find them
+     */
+    private int[] dirtyTiles = new int[0];
+
+    /**
+     * The number of dirty tiles
+     */
+    private int numDirtyTiles = 0;
+
+    /**
+     * The sum of the error of all tiles
+     */
+    private long totalError = 0;
+
+    /**
+     * Constructor
+     * @param tileSize the size of the side of the tiles, in pixels
+     */
+    public ImageFitnessTracker(int tileSize) {
+        this.tileSize = tileSize;
+    }
+
+    /**
+     * Constructor, with tiles of 16 x 16 pixels
+     */
+    public ImageFitnessTracker() {
+        this(16);
+    }
+
+    /**
+     * This method sets the buffers to track, and calculates the error
+     * of all the tiles
+     * @param back the background buffer
+     * @param front the front buffer
+     * @param width the width of the buffers
+     * @param height the height of the buffers
+     */
+    public void reset(int[] back, int[] front, int width, int height) {
+        this.back = back;
+        this.front = front;
+        this.width = width;
+        this.height = height;
+        numTilesX = (width + tileSize - 1) / tileSize;
+        numTilesY = (height + tileSize - 1) / tileSize;
+
+        int numTiles = numTilesX * numTilesY;
+        if ( tilesErrors.length != numTiles ) {
+            tilesErrors = new long[numTiles];
+            isTileDirty = new boolean[numTiles];
+            dirtyTiles = new int[numTiles];
+        }
+
+        totalError = 0;
+        numDirtyTiles = 0;
+        for ( int i = 0; i < numTiles; i++ ) {
+            isTileDirty[i] = false;
+            tilesErrors[i] = calculateTileError(i);
+            totalError += tilesErrors[i];
+        }
+    }
+
+    /**
+     * This method says if the tracker is tracking the buffers
+     * specified on the parameters. If it isn't, it has to be reset
+     * @param back the background buffer
+     * @param front the front buffer
+     * @return if the tracker is tracking the two buffers
+     */
+    public boolean isTracking(int[] back, int[] front) {
+        return this.back == back && this.front == front;
+    }
+
+    /**
+     * This method calculates the error of a tile
+     * @param tile the index of the tile
+     * @return the sum of the squared differences of the pixels of the tile
+     */
+    private long calculateTileError(int tile) {
+        int x0 = (tile % numTilesX) * tileSize;
+        int y0 = (tile / numTilesX) * tileSize;
+        int x1 = Math.min(x0 + tileSize, width);
+        int y1 = Math.min(y0 + tileSize, height);
+        long error = 0;
+        for ( int y = y0; y < y1; y++ ) {
+            int row = y * width;
+            error += BuffersFitnessCalculator.calculateSquaredErrorLanes(back, front, row + x0, row + x1);
+        }
+        return error;
+    }
+
+    /**
+     * This method marks as dirty all the tiles what overlap
+     * the rectangle specified on the parameters
+     * @param minX the minimum x coordinate, inclusive
+     * @param minY the minimum y coordinate, inclusive
+     * @param maxX the maximum x coordinate, inclusive
+     * @param maxY the maximum y coordinate, inclusive
+     */
+    public void markDirty(int minX, int minY, int maxX, int maxY) {
+        if ( maxX < 0 || maxY < 0 || minX >= width || minY >= height ) {
+            return;
+        }
+        int firstTileX = Math.max(minX, 0) / tileSize;
+        int firstTileY = Math.max(minY, 0) / tileSize;
+        int lastTileX = Math.min(maxX, width - 1) / tileSize;
+        int lastTileY = Math.min(maxY, height - 1) / tileSize;
+        for ( int ty = firstTileY; ty <= lastTileY; ty++ ) {
+            for ( int tx = firstTileX; tx <= lastTileX; tx++ ) {
+                int tile = ty * numTilesX + tx;
+                if ( !isTileDirty[tile] ) {
+                    isTileDirty[tile] = true;
+                    dirtyTiles[numDirtyTiles++] = tile;
+                }
+            }
+        }
+    }
+
+    /**
+     * This method marks as dirty the bounding box of a circle
+     * @param x the x coordinate of the center
+     * @param y the y coordinate of the center
+     * @param size the radius of the circle
+     */
+    public void markCircleDirty(float x, float y, float size) {
+        int cx = (int) x;
+        int cy = (int) y;
+        int r = (int) size + 1;
+        markDirty(cx - r, cy - r, cx + r, cy + r);
+    }
+
+    /**
+     * This method calculates again the error of the dirty tiles
+     * and updates the total error
+     */
+    public void update() {
+        for ( int i = 0; i < numDirtyTiles; i++ ) {
+            int tile = dirtyTiles[i];
+            long error = calculateTileError(tile);
+            totalError += error - tilesErrors[tile];
+            tilesErrors[tile] = error;
+            isTileDirty[tile] = false;
+        }
+        numDirtyTiles = 0;
+    }
+
+    /**
+     * This method returns the fitness of the front buffer with the
+     * background buffer, the same value as the method
+     * calculateImageFitnessPacked() of the BuffersFitnessCalculator class
+     * @return the fitness of the front image with the back image
+     */
+    public double getFitness() {
+        return BuffersFitnessCalculator.errorToFitness(totalError, width * height);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public int getNumDirtyTiles() {
+        return numDirtyTiles;
+    }
+
+    public long getTotalError() {
+        return totalError;
+    }
+
+}
@@ -0,0 +1,440 @@
+package circlesimage;
+
+import engine.gfx.Renderer;
+import engine.gfx.images.Image;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * This class evolves several independent populations of circles,
+ * the islands, against the same background image, each one on
+ * its own thread
+ *
+ * The islands are on a ring. Every few generations, each island
+ * publishes a copy of its best circles on its slot of the exchange,
+ * and the next island on the ring takes them and adds them to its
+ * circles. The exchange is an array of atomic references, so the
+ * islands never wait for each other: if the migrants of the previous
+ * island aren't ready yet, they are taken on a later generation
+ *
+ * The islands can be evolved in two ways. With start(), each island
+ * runs its generations back to back on its own thread, as the
+ * PopulationSimulation does, so a slow island never stops the others,
+ * and after each generation it publishes a snapshot of its circles.
+ * The render thread takes the newest snapshots with takeSnapshots()
+ * and draws them, without locks. With update(), all the islands run
+ * one generation in parallel and the method waits for all of them,
+ * so the generations are counted exactly, as the headless program
+ * and the tests need
+ *
+ * All the islands are drawn on the same canvas, so the image and
+ * its fitness are the ones of all the islands together
+ *
+ * The islands are CircleImagePopulations with the parameters of a
+ * template population. Each island has its own factory, split from
+ * the factory of the template. All the islands share the metrics
+ * of the template, whose counters and histograms are atomic, so the
+ * metrics have the phases of all the islands together
+ *
+ * @class IslandModelPopulation
+ * @author Sergio Martí Torregrosa
+ * @date 22/11/2020
+ */
+public class IslandModelPopulation {
+
+    /**
+     * The populations of the islands
+     */
+    private final CircleImagePopulation[] islands;
+
+    /**
+     * The number of generations of each island since it was built
+     * Each counter is only written by the thread of its island
+     */
+    private final AtomicLongArray generations;
+
+    /**
+     * The migrants published by each island, or null
+     * if they have been taken by the next island
+     */
+    private final AtomicReferenceArray<CircleImage[]> migrants;
+
+    /**
+     * The threads where the islands are evolved, one for each island
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The tasks which evolve each island one generation
+     */
+    private final ArrayList<Callable<Void>> tasks;
+
+    /**
+     * The exchanges of the snapshots of each island with the
+     * render thread, while the islands run on their own threads
+     */
+    private final SnapshotExchange[] snapshots;
+
+    /**
+     * The snapshots of each island what the render thread draws
+     */
+    private final PopulationSnapshot[] latestSnapshots;
+
+    /**
+     * A copy of the snapshots what were drawn on the last frame, for
+     * marking on the fitness tracker only the regions what have changed
+     */
+    private final PopulationSnapshot[] drawnSnapshots;
+
+    /**
+     * The threads of the islands, while they run on their own threads
+     */
+    private final Thread[] threads;
+
+    /**
+     * A flag for stopping the threads of the islands
+     */
+    private volatile boolean isRunning = false;
+
+    /**
+     * The number of generations between two migrations
+     */
+    private int migrationInterval;
+
+    /**
+     * The number of circles what migrate on each migration
+     */
+    private int numMigrants;
+
+    /**
+     * The state of the generation what is being evolved, it is
+     * read by the tasks once they are running
+     */
+    private CanvasDimensions canvas;
+
+    private float elapsedTime;
+
+    private volatile Image background;
+
+    /**
+     * Constructor
+     * @param template the population with the parameters of the islands
+     * @param numIslands the number of islands
+     * @param migrationInterval the number of generations between two migrations
+     * @param numMigrants the number of circles what migrate on each migration
+     */
+    public IslandModelPopulation(CircleImagePopulation template, int numIslands, int migrationInterval, int numMigrants) {
+        numIslands = Math.max(numIslands, 1);
+        this.migrationInterval = Math.max(migrationInterval, 1);
+        this.numMigrants = numMigrants;
+        islands = new CircleImagePopulation[numIslands];
+        generations = new AtomicLongArray(numIslands);
+        migrants = new AtomicReferenceArray<>(numIslands);
+        tasks = new ArrayList<>(numIslands);
+        snapshots = new SnapshotExchange[numIslands];
+        latestSnapshots = new PopulationSnapshot[numIslands];
+        drawnSnapshots = new PopulationSnapshot[numIslands];
+        threads = new Thread[numIslands];
+        for ( int i = 0; i < numIslands; i++ ) {
+            islands[i] = new CircleImagePopulation();
+            islands[i].copyParametersFrom(template);
+            islands[i].setMetrics(template.getMetrics());
+            drawnSnapshots[i] = new PopulationSnapshot();
+            int island = i;
+            tasks.add(() -> {
+                updateIsland(island, elapsedTime);
+                return null;
+            });
+        }
+        executor = Executors.newFixedThreadPool(numIslands, runnable -> {
+            Thread thread = new Thread(runnable, "island");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * This method builds the populations of all the islands
+     * The islands can't be running on their own threads
+     * @param canvas the dimensions of the canvas
+     */
+    public void buildPopulation(CanvasDimensions canvas) {
+        if ( isRunning ) {
+            throw new IllegalStateException("The islands are running");
+        }
+        for ( int i = 0; i < islands.length; i++ ) {
+            islands[i].buildPopulation(canvas);
+            generations.set(i, 0);
+            migrants.set(i, null);
+        }
+    }
+
+    /**
+     * This method runs the generations of an island back to back,
+     * until the islands are stopped. Each generation advances the
+     * time of the island a fixed step, the make babies cap, as the
+     * PopulationSimulation does
+     * @param island the index of the island
+     */
+    private void runIsland(int island) {
+        float step = (float)islands[island].getMakeBabiesCap();
+        while ( isRunning ) {
+            updateIsland(island, step);
+            snapshots[island].publish(islands[island], generations.get(island));
+        }
+    }
+
+    /**
+     * This method evolves one island one generation
+     * First, it takes the migrants of the previous island of
+     * the ring, if there are any, and after the generation it
+     * publishes its own migrants when it is the time
+     * @param island the index of the island
+     * @param step the time of the generation
+     */
+    private void updateIsland(int island, float step) {
+        CircleImagePopulation population = islands[island];
+        int previous = (island + islands.length - 1) % islands.length;
+        CircleImage[] arrived = migrants.getAndSet(previous, null);
+        if ( arrived != null ) {
+            population.addCircles(arrived);
+        }
+
+        population.update(canvas, step, background);
+
+        long generation = generations.incrementAndGet(island);
+        if ( islands.length > 1 && generation % migrationInterval == 0 ) {
+            migrants.set(island, population.copyBestCircles(numMigrants));
+        }
+    }
+
+    /**
+     * This method starts a thread for each island, which runs its
+     * generations without waiting for the other islands. It must be
+     * called from the render thread, which is the only one what
+     * reads the snapshots of the islands
+     * @param canvas the dimensions of the canvas
+     * @param background the background image
+     */
+    public void start(CanvasDimensions canvas, Image background) {
+        if ( isRunning ) {
+            return;
+        }
+        this.canvas = canvas;
+        this.background = background;
+        isRunning = true;
+        for ( int i = 0; i < islands.length; i++ ) {
+            snapshots[i] = new SnapshotExchange();
+            snapshots[i].publish(islands[i], generations.get(i));
+            latestSnapshots[i] = snapshots[i].getLatest();
+            int island = i;
+            threads[i] = new Thread(() -> runIsland(island), "island-" + i);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+    }
+
+    /**
+     * This method stops the threads of the islands and waits
+     * until the generations what are running finish
+     */
+    public void stop() {
+        if ( !isRunning ) {
+            return;
+        }
+        isRunning = false;
+        try {
+            for ( int i = 0; i < threads.length; i++ ) {
+                threads[i].join();
+                threads[i] = null;
+            }
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * This method takes the newest snapshot of each island, so
+     * they are drawn until the next call. It must be called on each
+     * frame, from the render thread, while the islands are running
+     */
+    public void takeSnapshots() {
+        for ( int i = 0; i < islands.length; i++ ) {
+            latestSnapshots[i] = snapshots[i].getLatest();
+        }
+    }
+
+    /**
+     * This method evolves all the islands one generation, each one on
+     * its own thread, and waits until all of them have finished, so
+     * they can be drawn without being modified
+     * The islands can't be running on their own threads
+     * @param canvas the dimensions of the canvas
+     * @param elapsedTime the time between two frames
+     * @param background the background image
+     */
+    public void update(CanvasDimensions canvas, float elapsedTime, Image background) {
+        if ( isRunning ) {
+            throw new IllegalStateException("The islands are running");
+        }
+        this.canvas = canvas;
+        this.elapsedTime = elapsedTime;
+        this.background = background;
+        try {
+            for ( Future<Void> future : executor.invokeAll(tasks) ) {
+                future.get();
+            }
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        } catch ( ExecutionException e ) {
+            throw new IllegalStateException("An island failed", e.getCause());
+        }
+    }
+
+    /**
+     * This method updates the collisions of all the islands
+     * @param canvas the dimensions of the canvas
+     */
+    public void updateCollisions(CanvasDimensions canvas) {
+        for ( CircleImagePopulation island : islands ) {
+            island.updateCollisions(canvas);
+        }
+    }
+
+    /**
+     * This method calculates the score of the circles of all the islands
+     * @param background the background image
+     */
+    public void calculateCirclesScore(Image background) {
+        for ( CircleImagePopulation island : islands ) {
+            island.calculateCirclesScore(background);
+        }
+    }
+
+    /**
+     * This method draws the border and the score of the circles
+     * of all the islands, over the circles drawn on a canvas
+     * @param r the renderer object with all drawing methods
+     * @param isDrawingBorder if the method has to draw the border of the circles
+     * @param isDrawingScore if the method has to draw the score of the circles
+     */
+    public void drawCirclesInfo(Renderer r, boolean isDrawingBorder, boolean isDrawingScore) {
+        for ( int i = 0; i < islands.length; i++ ) {
+            if ( isRunning ) {
+                latestSnapshots[i].drawCirclesInfo(r, isDrawingBorder, isDrawingScore);
+            } else {
+                islands[i].drawCirclesInfo(r, isDrawingBorder, isDrawingScore);
+            }
+        }
+    }
+
+    /**
+     * This method draws the circles of all the islands on the same canvas
+     * @param canvas the canvas where the circles are drawn
+     */
+    public void drawCircles(CircleCanvas canvas) {
+        for ( int i = 0; i < islands.length; i++ ) {
+            if ( isRunning ) {
+                latestSnapshots[i].drawCircles(canvas);
+            } else {
+                islands[i].drawCircles(canvas);
+            }
+        }
+    }
+
+    /**
+     * This method marks as dirty, on the fitness tracker, the
+     * regions what have changed on all the islands since the last frame
+     * @param tracker the fitness tracker of the buffer where the circles are drawn
+     */
+    public void markDrawnRegions(ImageFitnessTracker tracker) {
+        for ( int i = 0; i < islands.length; i++ ) {
+            if ( isRunning ) {
+                latestSnapshots[i].markChangedRegions(drawnSnapshots[i], tracker);
+                drawnSnapshots[i].copy(latestSnapshots[i]);
+            } else {
+                islands[i].markDrawnRegions(tracker);
+            }
+        }
+    }
+
+    /**
+     * This method stops the threads of the islands, the
+     * ones of start() and the ones of update(), and the
+     * scoring pools of the islands
+     */
+    public void shutdown() {
+        stop();
+        executor.shutdown();
+        for ( CircleImagePopulation island : islands ) {
+            island.shutdown();
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////
+
+    public CircleImagePopulation[] getIslands() {
+        return islands;
+    }
+
+    public int getNumCircles() {
+        int numCircles = 0;
+        for ( int i = 0; i < islands.length; i++ ) {
+            numCircles += isRunning ? latestSnapshots[i].getNumCircles() : islands[i].getCircles().size();
+        }
+        return numCircles;
+    }
+
+    public int getNumDiedCircles() {
+        int numDiedCircles = 0;
+        for ( int i = 0; i < islands.length; i++ ) {
+            numDiedCircles += isRunning ? latestSnapshots[i].getNumDiedCircles() : islands[i].getDiedCircles().size();
+        }
+        return numDiedCircles;
+    }
+
+    /**
+     * This method returns the number of generations of all the
+     * islands together since they were built
+     * @return the number of island generations
+     */
+    public long getNumGenerations() {
+        long numGenerations = 0;
+        for ( int i = 0; i < islands.length; i++ ) {
+            numGenerations += generations.get(i);
+        }
+        return numGenerations;
+    }
+
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    public int getMigrationInterval() {
+        return migrationInterval;
+    }
+
+    public int getNumMigrants() {
+        return numMigrants;
+    }
+
+    public void setBackground(Image background) {
+        this.background = background;
+    }
+
+    public void setMigrationInterval(int migrationInterval) {
+        this.migrationInterval = Math.max(migrationInterval, 1);
+    }
+
+    public void setNumMigrants(int numMigrants) {
+        this.numMigrants = numMigrants;
+    }
+
+}
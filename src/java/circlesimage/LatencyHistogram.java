@@ -0,0 +1,124 @@
+package circlesimage;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class is a histogram of times, in nanoseconds
+ *
+ * The times are counted on buckets of powers of two, so recording
+ * a time is only finding its highest bit and incrementing a counter,
+ * without allocating memory. The percentiles are the upper bound of
+ * the bucket where they fall, so they are at most twice the real time
+ *
+ * The counters are atomic, so a histogram can be recorded by
+ * the thread of the population and read by other threads, like
+ * the JMX threads, at the same time
+ *
+ * @class LatencyHistogram
+ * @author Sergio Martí Torregrosa
+ * @date 27/11/2020
+ */
+public class LatencyHistogram {
+
+    /**
+     * The number of buckets, one for each bit of a long
+     */
+    private static final int NUM_BUCKETS = 64;
+
+    /**
+     * The number of times of each bucket. The bucket i
+     * has the times between 2^(i-1) and 2^i - 1
+     */
+    private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+
+    /**
+     * The number of recorded times
+     */
+    private final AtomicLong count = new AtomicLong();
+
+    /**
+     * The sum of the recorded times
+     */
+    private final AtomicLong sum = new AtomicLong();
+
+    /**
+     * The longest recorded time
+     */
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * This method records a time
+     * @param time the time, in nanoseconds
+     */
+    public void record(long time) {
+        if ( time < 0 ) {
+            time = 0;
+        }
+        buckets.incrementAndGet(NUM_BUCKETS - Long.numberOfLeadingZeros(time));
+        count.incrementAndGet();
+        sum.addAndGet(time);
+        long actualMax = max.get();
+        while ( time > actualMax && !max.compareAndSet(actualMax, time) ) {
+            actualMax = max.get();
+        }
+    }
+
+    /**
+     * This method calculates a percentile of the recorded times
+     * @param percentile the percentile, between 0 and 1
+     * @return the upper bound of the bucket of the percentile, in
+     * nanoseconds, or 0 if there isn't any time
+     */
+    public long getPercentile(double percentile) {
+        long total = count.get();
+        if ( total == 0 ) {
+            return 0;
+        }
+        long rank = (long)Math.ceil(percentile * total);
+        long accumulated = 0;
+        for ( int i = 0; i < NUM_BUCKETS; i++ ) {
+            accumulated += buckets.get(i);
+            if ( accumulated >= rank ) {
+                return Math.min(i == 0 ? 0 : (1L << i) - 1, max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * This method calculates the mean of the recorded times
+     * @return the mean, in nanoseconds, or 0 if there isn't any time
+     */
+    public double getMean() {
+        long total = count.get();
+        return total == 0 ? 0 : (double)sum.get() / total;
+    }
+
+    /**
+     * This method removes all the recorded times
+     */
+    public void reset() {
+        for ( int i = 0; i < NUM_BUCKETS; i++ ) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getSum() {
+        return sum.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+}
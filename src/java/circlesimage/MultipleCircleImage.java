@@ -4,9 +4,11 @@ import engine.AbstractGame;
 import engine.GameContainer;
 import engine.gfx.Renderer;
 import engine.gfx.images.Image;
+import engine.vectors.points2d.Vec2di;
 import engine.vectors.points3d.Vec3di;
 
 import javax.imageio.ImageIO;
+import javax.management.JMException;
 import java.awt.*;
 import java.awt.event.KeyEvent;
 import java.awt.image.BufferedImage;
@@ -75,6 +77,22 @@ public class MultipleCircleImage extends AbstractGame {
      */
     private Renderer populationRenderer;
 
+    /**
+     * The canvas over the pixels of the population renderer and
+     * the canvas over the pixels of the window renderer. The
+     * circles are filled on them with the spans of the class
+     * DiskSpans, so the pixels drawn are the same as the pixels
+     * scored, and the renderers only draw the borders and the texts
+     */
+    private CircleCanvas populationCanvas;
+
+    private CircleCanvas windowCanvas;
+
+    /**
+     * The dimensions of the canvas where the circles live
+     */
+    private CanvasDimensions canvas;
+
     /**
      * This are the paths where are the background images
      * what the program uses
@@ -114,6 +132,161 @@ public class MultipleCircleImage extends AbstractGame {
      */
     private double fitnessImage = 0.0;
 
+    /**
+     * The kernel used for calculate the fitness of the image:
+     * "packed" for the lookup table kernel, "lanes" for the
+     * kernel which can be vectorized by the JIT compiler or
+     * "parallel" for the kernel which splits the image in bands
+     * of rows calculated on all the cores or "incremental" for
+     * only calculate again the regions where circles have been drawn
+     * By default "packed"
+     */
+    private String fitnessKernel = "packed";
+
+    /**
+     * The number of pixels below which the "parallel"
+     * fitness kernel stays on the render thread
+     * By default 2^18 pixels
+     */
+    private int fitnessParallelThreshold = BuffersFitnessCalculator.DEFAULT_PARALLEL_THRESHOLD;
+
+    /**
+     * The tracker of the fitness of the image, used
+     * by the "incremental" fitness kernel
+     */
+    private ImageFitnessTracker fitnessTracker = new ImageFitnessTracker();
+
+    /**
+     * The islands of the island model, if there are more than
+     * one island. Otherwise, null, and only the population is evolved
+     * Each island runs on its own thread, and the newest snapshots
+     * of the islands are drawn on each frame
+     */
+    private IslandModelPopulation islands = null;
+
+    /**
+     * The number of generations of all the islands together
+     * on the last frame, for measuring the generations by second
+     */
+    private long lastIslandGenerations = 0;
+
+    /**
+     * The number of islands, by default 1
+     */
+    private int numIslands = 1;
+
+    /**
+     * The number of generations between two migrations
+     * of the islands, by default 20
+     */
+    private int migrationInterval = 20;
+
+    /**
+     * The number of circles what migrate between the
+     * islands on each migration, by default 5
+     */
+    private int numMigrants = 5;
+
+    /**
+     * The steady state population, if there are steady state
+     * workers. Otherwise, null
+     */
+    private SteadyStatePopulation steadyState = null;
+
+    /**
+     * The number of worker threads of the steady state population
+     * By default 0, the population evolves by generations
+     */
+    private int numSteadyStateWorkers = 0;
+
+    /**
+     * The population with the circles packed on parallel arrays, if
+     * it is enabled. Otherwise, null. It evolves with the parameters
+     * of the population, one generation by frame on the window thread,
+     * without the simulation thread, the scheduler, the adaptive
+     * limits nor the metrics
+     */
+    private PackedCircleImagePopulation packedPopulation = null;
+
+    /**
+     * A flag for evolving the circles on the packed population
+     * By default, false
+     */
+    private boolean isUsingPackedPopulation = false;
+
+    /**
+     * The simulation what evolves the population on its own
+     * thread, if it is enabled. Otherwise, null, and the
+     * population evolves one generation by frame
+     */
+    private PopulationSimulation simulation = null;
+
+    /**
+     * The scheduler what spreads the generations over the frames,
+     * if there is a frame budget. Otherwise, null
+     */
+    private GenerationScheduler scheduler = null;
+
+    /**
+     * The time budget for the generations on each frame, in
+     * milliseconds. By default 0, a whole generation by frame
+     */
+    private double frameBudget = 0;
+
+    /**
+     * The number of circles of each slice of the scheduler
+     */
+    private int circlesBySlice = 256;
+
+    /**
+     * The target time of a generation, in milliseconds, for adapting
+     * the maximum number of living circles to the machine
+     * By default 0, the limits are only changed by hand
+     */
+    private double targetGenerationTime = 0;
+
+    /**
+     * The bounds of the maximum number of living circles
+     * when it is adapted to the target time of a generation
+     */
+    private Vec2di adaptiveCirclesLimits = new Vec2di(100, 20000);
+
+    /**
+     * The snapshot of the simulation or the scheduler what is drawn on this frame
+     */
+    private PopulationSnapshot snapshot = null;
+
+    /**
+     * A copy of the snapshot what was drawn on the last frame, for
+     * marking on the fitness tracker only the regions what have changed
+     */
+    private final PopulationSnapshot drawnSnapshot = new PopulationSnapshot();
+
+    /**
+     * A flag for evolving the population on its own thread
+     * By default, false
+     */
+    private boolean isUsingSimulationThread = false;
+
+    /**
+     * The frames by second and the generations by second of the last measure
+     */
+    private double framesPerSecond = 0.0;
+
+    private double generationsPerSecond = 0.0;
+
+    /**
+     * The frames and the generations since the last measure
+     */
+    private int numFrames = 0;
+
+    private int numGenerations = 0;
+
+    /**
+     * The time of the last measure of the frames by second, in nanoseconds
+     */
+    private long lastRateTime = System.nanoTime();
+
     /**
      * The user can change the number of live
      * circles, and this is the number of
@@ -159,6 +332,23 @@ public class MultipleCircleImage extends AbstractGame {
      */
     private boolean isShowingAlwaysText = false;
 
+    /**
+     * The metrics of the phases of the generations, if they are
+     * enabled. Otherwise, null, and the phases aren't measured
+     */
+    private PopulationMetrics metrics = null;
+
+    /**
+     * A flag for measuring the phases of the generations
+     * By default, false
+     */
+    private boolean isUsingMetrics = false;
+
+    /**
+     * A flag for showing the metrics next to the texts
+     */
+    private boolean isShowingMetrics = false;
+
     /**
      * The constructor of the application
      * @param title the title of the application. It will be showed on the main bar
@@ -201,6 +391,9 @@ public class MultipleCircleImage extends AbstractGame {
         if ( splittedLine[0].equalsIgnoreCase("num-circles-increment") ) {
             circlesIncrement = Integer.parseInt(splittedLine[1]);
         }
+        if ( splittedLine[0].equalsIgnoreCase("max-died-circles") ) {
+            population.setMaxDiedCircles(Integer.parseInt(splittedLine[1]));
+        }
         if ( splittedLine[0].equalsIgnoreCase("num-babies-by-circle") ) {
             population.setNumBabiesByCircle(Integer.parseInt(splittedLine[1]));
         }
@@ -210,6 +403,51 @@ public class MultipleCircleImage extends AbstractGame {
         if ( splittedLine[0].equalsIgnoreCase("penalty-proximity") ) {
             population.setPenaltyProximity(Double.parseDouble(splittedLine[1]));
         }
+        if ( splittedLine[0].equalsIgnoreCase("collisions-with-sweep-and-prune") ) {
+            population.setUsingSweepAndPrune(splittedLine[1].equalsIgnoreCase("true"));
+        }
+        if ( splittedLine[0].equalsIgnoreCase("penalty-with-spatial-grid") ) {
+            population.setUsingSpatialGrid(splittedLine[1].equalsIgnoreCase("true"));
+        }
+        if ( splittedLine[0].equalsIgnoreCase("simulation-thread") ) {
+            isUsingSimulationThread = splittedLine[1].equalsIgnoreCase("true");
+        }
+        if ( splittedLine[0].equalsIgnoreCase("frame-budget") ) {
+            frameBudget = Double.parseDouble(splittedLine[1]);
+        }
+        if ( splittedLine[0].equalsIgnoreCase("target-generation-time") ) {
+            targetGenerationTime = Double.parseDouble(splittedLine[1]);
+        }
+        if ( splittedLine[0].equalsIgnoreCase("adaptive-min-circles") ) {
+            adaptiveCirclesLimits.setX(Integer.parseInt(splittedLine[1]));
+        }
+        if ( splittedLine[0].equalsIgnoreCase("adaptive-max-circles") ) {
+            adaptiveCirclesLimits.setY(Integer.parseInt(splittedLine[1]));
+        }
+        if ( splittedLine[0].equalsIgnoreCase("circles-by-slice") ) {
+            circlesBySlice = Integer.parseInt(splittedLine[1]);
+        }
+        if ( splittedLine[0].equalsIgnoreCase("steady-state-workers") ) {
+            numSteadyStateWorkers = Integer.parseInt(splittedLine[1]);
+        }
+        if ( splittedLine[0].equalsIgnoreCase("packed-population") ) {
+            isUsingPackedPopulation = splittedLine[1].equalsIgnoreCase("true");
+        }
+        if ( splittedLine[0].equalsIgnoreCase("num-islands") ) {
+            numIslands = Integer.parseInt(splittedLine[1]);
+        }
+        if ( splittedLine[0].equalsIgnoreCase("migration-interval") ) {
+            migrationInterval = Integer.parseInt(splittedLine[1]);
+        }
+        if ( splittedLine[0].equalsIgnoreCase("num-migrants") ) {
+            numMigrants = Integer.parseInt(splittedLine[1]);
+        }
+        if ( splittedLine[0].equalsIgnoreCase("scoring-parallelism") ) {
+            population.setScoringParallelism(Integer.parseInt(splittedLine[1]));
+        }
+        if ( splittedLine[0].equalsIgnoreCase("score-with-prefix-tables") ) {
+            population.setUsingPrefixTables(splittedLine[1].equalsIgnoreCase("true"));
+        }
     }
 
     /**
@@ -220,6 +458,12 @@ public class MultipleCircleImage extends AbstractGame {
         if ( splittedLine[0].equalsIgnoreCase("max-circle-size") ) {
             population.getFactory().setMaxCircleSize(Integer.parseInt(splittedLine[1]));
         }
+        if ( splittedLine[0].equalsIgnoreCase("random-seed") && !splittedLine[1].equalsIgnoreCase("random") ) {
+            population.getFactory().setSeed(Long.parseLong(splittedLine[1]));
+        }
+        if ( splittedLine[0].equalsIgnoreCase("analytic-color") ) {
+            population.getFactory().setUsingAnalyticColor(splittedLine[1].equalsIgnoreCase("true"));
+        }
         if ( splittedLine[0].equalsIgnoreCase("max-variation-size") ) {
             population.getFactory().getVariationSize().setX(Integer.parseInt(splittedLine[1]));
         }
@@ -258,11 +502,31 @@ public class MultipleCircleImage extends AbstractGame {
         if ( splittedLine[0].equalsIgnoreCase("show-texts-on-screen") ) {
             isShowingAlwaysText = splittedLine[1].equalsIgnoreCase("true");
         }
+        if ( splittedLine[0].equalsIgnoreCase("metrics") ) {
+            isUsingMetrics = splittedLine[1].equalsIgnoreCase("true");
+        }
+        if ( splittedLine[0].equalsIgnoreCase("show-metrics") ) {
+            isShowingMetrics = splittedLine[1].equalsIgnoreCase("true");
+        }
         if ( splittedLine[0].equalsIgnoreCase("time-fade-off-text") ) {
             timeToFadeOffTexts = Double.parseDouble(splittedLine[1]);
         }
     }
 
+    /**
+     * This method sets the parameters for calculate
+     * the fitness of the image
+     * @param splittedLine the line which contains all the information
+     */
+    private void setFitnessParameters(String[] splittedLine) {
+        if ( splittedLine[0].equalsIgnoreCase("fitness-kernel") ) {
+            fitnessKernel = splittedLine[1].toLowerCase();
+        }
+        if ( splittedLine[0].equalsIgnoreCase("fitness-parallel-threshold") ) {
+            fitnessParallelThreshold = Integer.parseInt(splittedLine[1]);
+        }
+    }
+
     /**
      * This method sets the screen shoot path
      * @param splittedLine the line which contains all the information
@@ -332,6 +596,7 @@ public class MultipleCircleImage extends AbstractGame {
                 setVariationCircleImages(splittedLine);
                 setBackgroundsImagesPaths(splittedLine);
                 setScreenShootPath(splittedLine);
+                setFitnessParameters(splittedLine);
                 setProgramCosmetics(splittedLine);
                 line = br.readLine();
             }
@@ -353,18 +618,154 @@ public class MultipleCircleImage extends AbstractGame {
         }
     }
 
+    /**
+     * This method builds the metrics, if they are enabled, and
+     * registers them on the MBean server for reading them with JMX
+     */
+    private void initializeMetrics() {
+        if ( !isUsingMetrics ) {
+            return;
+        }
+        metrics = new PopulationMetrics();
+        population.setMetrics(metrics);
+        try {
+            metrics.register();
+        } catch ( JMException e ) {
+            e.printStackTrace();
+        }
+    }
+
     @Override
     public void initialize(GameContainer gameContainer) {
+        if ( population != null ) {
+            population.shutdown();
+        }
         population = new CircleImagePopulation();
         populationRenderer = new Renderer(gameContainer);
+        canvas = new CanvasDimensions(gameContainer.getWidth(), gameContainer.getHeight());
         buffer = populationRenderer.getP();
+        populationCanvas = new CircleCanvas(buffer, canvas);
         initializeBackgrounds();
 
         readParameters();
+        initializeMetrics();
 
-        population.buildPopulation(gameContainer);
-        population.updateCollisions(gameContainer);
-        population.calculateCirclesScore(backgrounds[0]);
+        if ( numSteadyStateWorkers > 0 ) {
+            steadyState = new SteadyStatePopulation();
+            steadyState.setFactory(population.getFactory());
+            steadyState.setCirclePopulationLimits(population.getCirclePopulationLimits());
+            steadyState.setNumWorkers(numSteadyStateWorkers);
+            steadyState.buildPopulation(canvas, backgrounds[0]);
+            steadyState.start();
+            if ( metrics != null ) {
+                metrics.setUnsupportedMode("steady state");
+            }
+        } else if ( numIslands > 1 ) {
+            islands = new IslandModelPopulation(population, numIslands, migrationInterval, numMigrants);
+            islands.buildPopulation(canvas);
+            islands.updateCollisions(canvas);
+            islands.calculateCirclesScore(backgrounds[0]);
+            islands.start(canvas, backgrounds[0]);
+        } else if ( isUsingPackedPopulation ) {
+            packedPopulation = new PackedCircleImagePopulation();
+            packedPopulation.copyParametersFrom(population);
+            packedPopulation.buildPopulation(canvas);
+            packedPopulation.updateCollisions(canvas);
+            packedPopulation.calculateCirclesScore(backgrounds[0]);
+            if ( metrics != null ) {
+                metrics.setUnsupportedMode("packed population");
+            }
+        } else {
+            if ( targetGenerationTime > 0 ) {
+                population.setSizeController(new PopulationSizeController(
+                        (long)(targetGenerationTime * 1e6), adaptiveCirclesLimits.getX(), adaptiveCirclesLimits.getY()
+                ));
+            }
+            population.buildPopulation(canvas);
+            population.updateCollisions(canvas);
+            population.calculateCirclesScore(backgrounds[0]);
+            if ( isUsingSimulationThread ) {
+                simulation = new PopulationSimulation(population, canvas, backgrounds[0]);
+                simulation.start();
+            } else if ( frameBudget > 0 ) {
+                scheduler = new GenerationScheduler(population);
+                scheduler.setCirclesBySlice(circlesBySlice);
+            }
+        }
+    }
+
+    /**
+     * This method returns the number of living circles
+     * of the population or of all the islands
+     * @return the number of living circles
+     */
+    private int getNumCircles() {
+        if ( steadyState != null ) {
+            return steadyState.getNumCircles();
+        }
+        if ( snapshot != null ) {
+            return snapshot.getNumCircles();
+        }
+        if ( packedPopulation != null ) {
+            return packedPopulation.getSize();
+        }
+        return islands != null ? islands.getNumCircles() : population.getCircles().size();
+    }
+
+    /**
+     * This method returns the number of died circles
+     * of the population or of all the islands
+     * @return the number of died circles
+     */
+    private int getNumDiedCircles() {
+        if ( steadyState != null ) {
+            return 0;
+        }
+        if ( snapshot != null ) {
+            return snapshot.getNumDiedCircles();
+        }
+        if ( packedPopulation != null ) {
+            return packedPopulation.getDiedCircles().size();
+        }
+        return islands != null ? islands.getNumDiedCircles() : population.getDiedCircles().size();
+    }
+
+    /**
+     * This method draws the circles of the population
+     * or of all the islands
+     * The circles are filled on the canvas, and the border
+     * and the score are drawn over them with the renderer
+     * @param r the renderer object with all drawing methods
+     * @param circleCanvas the canvas over the pixels of the renderer
+     * @param isDrawingBorder if the method has to draw the border of the circles
+     * @param isDrawingScore if the method has to draw the score of the circles
+     */
+    private void drawCircles(Renderer r, CircleCanvas circleCanvas, boolean isDrawingBorder, boolean isDrawingScore) {
+        if ( steadyState != null ) {
+            steadyState.drawCircles(circleCanvas);
+        } else if ( islands != null ) {
+            islands.drawCircles(circleCanvas);
+        } else if ( packedPopulation != null ) {
+            packedPopulation.drawCircles(circleCanvas);
+        } else if ( snapshot != null ) {
+            snapshot.drawCircles(circleCanvas);
+        } else {
+            population.drawCircles(circleCanvas);
+        }
+        if ( !isDrawingBorder && !isDrawingScore ) {
+            return;
+        }
+        if ( steadyState != null ) {
+            steadyState.drawCirclesInfo(r, isDrawingBorder, isDrawingScore);
+        } else if ( islands != null ) {
+            islands.drawCirclesInfo(r, isDrawingBorder, isDrawingScore);
+        } else if ( packedPopulation != null ) {
+            packedPopulation.drawCirclesInfo(r, isDrawingBorder, isDrawingScore);
+        } else if ( snapshot != null ) {
+            snapshot.drawCirclesInfo(r, isDrawingBorder, isDrawingScore);
+        } else {
+            population.drawCirclesInfo(r, isDrawingBorder, isDrawingScore);
+        }
     }
 
     /**
@@ -395,7 +796,27 @@ public class MultipleCircleImage extends AbstractGame {
      */
     private void updateUserInput(GameContainer gc) {
         if ( gc.getInput().isKeyDown(KeyEvent.VK_SPACE) ) {
-            population.buildPopulation(gc);
+            if ( steadyState != null ) {
+                steadyState.stop();
+                steadyState.buildPopulation(canvas, backgrounds[indexBackground]);
+                steadyState.start();
+            } else if ( islands != null ) {
+                islands.stop();
+                islands.buildPopulation(canvas);
+                islands.start(canvas, backgrounds[indexBackground]);
+                lastIslandGenerations = 0;
+            } else if ( packedPopulation != null ) {
+                packedPopulation.buildPopulation(canvas);
+            } else if ( simulation != null ) {
+                synchronized ( simulation.getLock() ) {
+                    population.buildPopulation(canvas);
+                }
+            } else if ( scheduler != null ) {
+                population.buildPopulation(canvas);
+                scheduler.reset();
+            } else {
+                population.buildPopulation(canvas);
+            }
         }
         if ( gc.getInput().isKeyDown(KeyEvent.VK_B) ) {
             isShowingBackgroundImage = !isShowingBackgroundImage;
@@ -406,18 +827,56 @@ public class MultipleCircleImage extends AbstractGame {
         if ( gc.getInput().isKeyDown(KeyEvent.VK_Q) ) {
             makeScreenShoot(gc);
         }
+        if ( gc.getInput().isKeyDown(KeyEvent.VK_M) ) {
+            isShowingMetrics = !isShowingMetrics;
+        }
         if ( gc.getInput().isKeyDown(KeyEvent.VK_UP) ) {
-            population.getCirclePopulationLimits().addToX(circlesIncrement);
+            changeMaxCircles(circlesIncrement);
             isShowingText = true;
         }
         if ( gc.getInput().isKeyDown(KeyEvent.VK_DOWN) ) {
-            if ( population.getCirclePopulationLimits().getX() > 0 ) {
-                population.getCirclePopulationLimits().addToX(-circlesIncrement);
-            }
+            changeMaxCircles(-circlesIncrement);
             isShowingText = true;
         }
     }
 
+    /**
+     * This method changes the maximum number of living circles
+     * The limits are shared with the threads what evolve the circles,
+     * so they are changed with the lock of the simulation, or with the
+     * islands and the steady state workers stopped, which only read
+     * the limits while they are running
+     * @param increment the number of circles what is added to the maximum
+     */
+    private void changeMaxCircles(int increment) {
+        if ( simulation != null ) {
+            synchronized ( simulation.getLock() ) {
+                addToMaxCircles(increment);
+            }
+        } else if ( islands != null ) {
+            islands.stop();
+            addToMaxCircles(increment);
+            islands.start(canvas, backgrounds[indexBackground]);
+        } else if ( steadyState != null ) {
+            steadyState.stop();
+            addToMaxCircles(increment);
+            steadyState.start();
+        } else {
+            addToMaxCircles(increment);
+        }
+    }
+
+    /**
+     * This method adds a number of circles to the maximum number of
+     * living circles, if the maximum doesn't become negative
+     * @param increment the number of circles what is added to the maximum
+     */
+    private void addToMaxCircles(int increment) {
+        if ( population.getCirclePopulationLimits().getX() + increment >= 0 ) {
+            population.getCirclePopulationLimits().addToX(increment);
+        }
+    }
+
     /**
      * This method updates the user input for change the
      * background image
@@ -481,15 +940,68 @@ public class MultipleCircleImage extends AbstractGame {
         }
     }
 
+    /**
+     * This method calculates the fitness of the image
+     * conformed by the circles with the kernel specified
+     * on the parameters
+     * @return the fitness of the image conformed by the circles
+     */
+    private double calculateImageFitness() {
+        int[] back = backgrounds[indexBackground].getP();
+        switch ( fitnessKernel ) {
+            case "incremental":
+                if ( fitnessTracker.isTracking(back, buffer) ) {
+                    fitnessTracker.update();
+                } else {
+                    fitnessTracker.reset(back, buffer, screenDimensions.getX(), screenDimensions.getY());
+                }
+                return fitnessTracker.getFitness();
+            case "parallel":
+                return BuffersFitnessCalculator.calculateImageFitnessParallel(back, buffer, screenDimensions.getX(),
+                        fitnessParallelThreshold);
+            case "lanes":
+                return BuffersFitnessCalculator.calculateImageFitnessLanes(back, buffer);
+            case "packed": default:
+                return BuffersFitnessCalculator.calculateImageFitnessPacked(back, buffer);
+        }
+    }
+
     @Override
     public void update(GameContainer gameContainer, float v) {
         updateUserInput(gameContainer);
         updateBackgroundImage(gameContainer);
         updateColorText(v);
 
-        population.update(gameContainer, v, backgrounds[indexBackground]);
+        if ( steadyState != null ) {
+            steadyState.setBackground(backgrounds[indexBackground]);
+        } else if ( islands != null ) {
+            islands.setBackground(backgrounds[indexBackground]);
+            long islandGenerations = islands.getNumGenerations();
+            numGenerations += islandGenerations - lastIslandGenerations;
+            lastIslandGenerations = islandGenerations;
+        } else if ( packedPopulation != null ) {
+            packedPopulation.update(canvas, v, backgrounds[indexBackground]);
+            numGenerations++;
+        } else if ( simulation != null ) {
+            simulation.setBackground(backgrounds[indexBackground]);
+            simulation.advanceFrame();
+        } else if ( scheduler != null ) {
+            numGenerations += scheduler.update(canvas, v, backgrounds[indexBackground], (long)(frameBudget * 1e6));
+        } else {
+            population.update(canvas, v, backgrounds[indexBackground]);
+            numGenerations++;
+        }
 
-        fitnessImage = BuffersFitnessCalculator.calculateImageFitness(backgrounds[indexBackground].getP(), buffer);
+        long start = metrics != null ? System.nanoTime() : 0;
+        PhaseEvent fitnessEvent = PhaseEvent.start(PopulationMetrics.Phase.IMAGE_FITNESS.getLabel(), getNumCircles());
+        fitnessImage = calculateImageFitness();
+        if ( fitnessEvent != null ) {
+            fitnessEvent.commit();
+        }
+        if ( metrics != null ) {
+            metrics.record(PopulationMetrics.Phase.IMAGE_FITNESS, System.nanoTime() - start);
+        }
+        population.setFitnessImage(fitnessImage);
         buffer = populationRenderer.getP();
     }
 
@@ -505,19 +1017,39 @@ public class MultipleCircleImage extends AbstractGame {
         }
     }
 
+    /**
+     * This method measures the frames by second and the generations
+     * by second, once by second. With the simulation thread, the
+     * generations by second are the ones of the simulation
+     */
+    private void updateRates() {
+        numFrames++;
+        long now = System.nanoTime();
+        if ( now - lastRateTime >= 1000000000L ) {
+            double seconds = (now - lastRateTime) / 1e9;
+            framesPerSecond = numFrames / seconds;
+            generationsPerSecond = simulation != null ? simulation.getGenerationsPerSecond() : numGenerations / seconds;
+            numFrames = 0;
+            numGenerations = 0;
+            lastRateTime = now;
+        }
+    }
+
     /**
      * This method draws the texts of the program
      * @param r the renderer object with all drawing methods
      */
     private void drawTexts(Renderer r) {
-        r.drawFillRectangle(5, 5, 350, 75, textBoxColor.getCode());
-        r.drawRectangle(5, 5, 350, 75, textBoxStrokeColor.getCode());
+        r.drawFillRectangle(5, 5, 350, 95, textBoxColor.getCode());
+        r.drawRectangle(5, 5, 350, 95, textBoxStrokeColor.getCode());
 
-        r.drawText("Circles alive: " + population.getCircles().size(),
+        r.drawText("Circles alive: " + getNumCircles(),
                 10, 10, textColor.getCode());
-        r.drawText("Drawn circles: " + (population.getCircles().size() + population.getDiedCircles().size()),
+        r.drawText("Drawn circles: " + (getNumCircles() + getNumDiedCircles()),
                 10, 30, textColor.getCode());
         r.drawText(String.format("Fitness average: %.3f%%", fitnessImage * 100), 10, 50, textColor.getCode());
+        r.drawText(String.format("FPS: %.1f | Generations/s: %.1f", framesPerSecond, generationsPerSecond),
+                10, 70, textColor.getCode());
     }
 
     /**
@@ -533,14 +1065,74 @@ public class MultipleCircleImage extends AbstractGame {
                 drawTexts(r);
             }
         }
+        if ( metrics != null && isShowingMetrics ) {
+            drawMetrics(r);
+        }
+    }
+
+    /**
+     * This method draws the metrics of the phases of the
+     * generations, next to the box of the texts
+     * @param r the renderer object with all drawing methods
+     */
+    private void drawMetrics(Renderer r) {
+        PopulationMetrics.Phase[] phases = PopulationMetrics.Phase.values();
+        String unsupportedMode = metrics.getUnsupportedMode();
+        int numLines = phases.length + (unsupportedMode.isEmpty() ? 1 : 2);
+        int height = 20 * numLines + 15;
+        r.drawFillRectangle(360, 5, 350, height, textBoxColor.getCode());
+        r.drawRectangle(360, 5, 350, height, textBoxStrokeColor.getCode());
+
+        int y = 10;
+        for ( PopulationMetrics.Phase phase : phases ) {
+            LatencyHistogram histogram = metrics.getHistogram(phase);
+            r.drawText(String.format("%s: %.2f ms | p99 %.2f ms", phase.getLabel(),
+                    histogram.getMean() / 1e6, histogram.getPercentile(0.99) / 1e6), 365, y, textColor.getCode());
+            y += 20;
+        }
+        r.drawText(String.format("Born %d | Killed %d | Scored %d", metrics.getCirclesBorn(),
+                metrics.getCirclesKilled(), metrics.getCirclesScored()), 365, y, textColor.getCode());
+        if ( !unsupportedMode.isEmpty() ) {
+            y += 20;
+            r.drawText("Generations of " + unsupportedMode + " not measured", 365, y, textColor.getCode());
+        }
     }
 
     @Override
     public void render(GameContainer gameContainer, Renderer renderer) {
-        population.drawCircles(populationRenderer, false, false);
+        updateRates();
+        PhaseEvent renderEvent = PhaseEvent.start("render", getNumCircles());
+        if ( simulation != null ) {
+            snapshot = simulation.getLatestSnapshot();
+        } else if ( scheduler != null ) {
+            snapshot = scheduler.getSnapshot();
+        } else if ( islands != null ) {
+            islands.takeSnapshots();
+        }
+        drawCircles(populationRenderer, populationCanvas, false, false);
+        if ( fitnessKernel.equals("incremental") ) {
+            if ( steadyState != null ) {
+                steadyState.markDrawnRegions(fitnessTracker);
+            } else if ( islands != null ) {
+                islands.markDrawnRegions(fitnessTracker);
+            } else if ( packedPopulation != null ) {
+                packedPopulation.markDrawnRegions(fitnessTracker);
+            } else if ( snapshot != null ) {
+                snapshot.markChangedRegions(drawnSnapshot, fitnessTracker);
+                drawnSnapshot.copy(snapshot);
+            } else {
+                population.markDrawnRegions(fitnessTracker);
+            }
+        }
         drawBackground(renderer);
-        population.drawCircles(renderer, isShowingBackgroundImage, isShowingCirclesScore);
+        if ( windowCanvas == null || windowCanvas.getP() != renderer.getP() ) {
+            windowCanvas = new CircleCanvas(renderer.getP(), canvas);
+        }
+        drawCircles(renderer, windowCanvas, isShowingBackgroundImage, isShowingCirclesScore);
         showTexts(renderer);
+        if ( renderEvent != null ) {
+            renderEvent.commit();
+        }
     }
 
     /**
@@ -0,0 +1,683 @@
+package circlesimage;
+
+import engine.gfx.HexColors;
+import engine.gfx.Renderer;
+import engine.gfx.images.Image;
+import engine.vectors.points2d.Vec2df;
+import engine.vectors.points2d.Vec2di;
+
+import java.util.ArrayList;
+
+/**
+ * This class represents a population of circles, like the class
+ * CircleImagePopulation, but the circles are stored in parallel
+ * arrays of primitives instead of a list of CircleImage objects
+ *
+ * Each circle is the index of the arrays: the position, the size,
+ * the color, the score and the identifier. So, each circle needs
+ * 28 bytes instead of the more than 100 bytes of a CircleImage with its
+ * CircleColor and its Vec2df, and the scoring, the collisions and
+ * the culling go over the arrays linearly, without chasing pointers
+ *
+ * The generation is the same as the CircleImagePopulation one, with
+ * the same factory, the same broad phases and the same scoring, so
+ * with the same seed both populations evolve into the same circles
+ * The circles can be read as CircleImages with the copyTo() method,
+ * and drawn with the drawCircles() method
+ *
+ * The program uses it instead of the CircleImagePopulation with the
+ * parameter packed-population. It has the spatial grid and the sweep
+ * and prune always on, and it doesn't have scoring pool, metrics nor
+ * adaptive limits
+ *
+ * @class PackedCircleImagePopulation
+ * @author Sergio Martí Torregrosa
+ * @date 19/11/2020
+ */
+public class PackedCircleImagePopulation {
+
+    /**
+     * The initial capacity of the arrays
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * The x coordinates of the circles
+     */
+    private float[] x = new float[INITIAL_CAPACITY];
+
+    /**
+     * The y coordinates of the circles
+     */
+    private float[] y = new float[INITIAL_CAPACITY];
+
+    /**
+     * The radius of the circles
+     */
+    private float[] r = new float[INITIAL_CAPACITY];
+
+    /**
+     * The hex codes of the colors of the circles
+     */
+    private int[] argb = new int[INITIAL_CAPACITY];
+
+    /**
+     * The scores of the circles
+     */
+    private double[] score = new double[INITIAL_CAPACITY];
+
+    /**
+     * The identifiers of the circles
+     */
+    private int[] id = new int[INITIAL_CAPACITY];
+
+    /**
+     * The number of living circles
+     */
+    private int size = 0;
+
+    /**
+     * The identifier for the next circle
+     */
+    private int nextId = 0;
+
+    /**
+     * The died circles, they fade off until they become transparent
+     */
+    private FadingCircleBuffer diedCircles = new FadingCircleBuffer(20000);
+
+    /**
+     * The factory class which builds new circles
+     */
+    private CircleImageFactory factory = new CircleImageFactory();
+
+    /**
+     * The maximum and minimum number circles what
+     * can have babies
+     * X = maximum, by default 500
+     * Y = minimum, by default 20
+     */
+    private Vec2di circlePopulationLimits = new Vec2di();
+
+    /**
+     * The penalty proximity for the circles
+     */
+    private double penaltyProximity;
+
+    /**
+     * The number of babies what has each circle
+     */
+    private int numBabiesByCircle;
+
+    /**
+     * How often the circles can have babies
+     */
+    private double makeBabiesCap;
+
+    /**
+     * A counter for the time, is for
+     * the make babies method
+     */
+    private float time = 0.0f;
+
+    /**
+     * A flag for scoring the circles with the prefix tables
+     */
+    private boolean isUsingPrefixTables = false;
+
+    /**
+     * The prefix tables of the last background image
+     */
+    private BackgroundPrefixTables prefixTables;
+
+    /**
+     * The background image of the prefix tables
+     */
+    private Image prefixTablesBackground;
+
+    /**
+     * The uniform grid for the penalty proximity
+     */
+    private SpatialGrid grid = new SpatialGrid();
+
+    /**
+     * The broad phase of the collisions
+     */
+    private SweepAndPrune sweepAndPrune = new SweepAndPrune();
+
+    /**
+     * Scratch memory for the left edges of the circles
+     */
+    private float[] leftEdges = new float[INITIAL_CAPACITY];
+
+    /**
+     * The longest distance what any circle has moved to the left of
+     * its sorted left edge during the sweep of the collisions
+     */
+    private float sweepShift = 0.0f;
+
+    /**
+     * Scratch memory for the selection of the worst circles
+     */
+    private double[] scratchScores = new double[INITIAL_CAPACITY];
+
+    /**
+     * The marks of the worst circles
+     */
+    private boolean[] isWorst = new boolean[INITIAL_CAPACITY];
+
+    /**
+     * A color used as scratch memory for the analytic colors
+     */
+    private CircleColor scratchColor = new CircleColor();
+
+    /**
+     * The circles as they were drawn on the last frame, and
+     * the circles what are drawn now. The identifiers of the
+     * circles grow with their order, so they are compared for
+     * marking only the regions what have changed
+     */
+    private PopulationSnapshot drawnCircles = new PopulationSnapshot();
+
+    private PopulationSnapshot currentCircles = new PopulationSnapshot();
+
+    /**
+     * Constructor
+     */
+    public PackedCircleImagePopulation() {
+
+    }
+
+    /**
+     * This method makes sure that the arrays of the living
+     * circles can store the number of circles specified
+     * @param capacity the number of circles
+     */
+    private void ensureCapacity(int capacity) {
+        if ( capacity <= x.length ) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, 2 * x.length);
+        float[] newX = new float[newCapacity];
+        float[] newY = new float[newCapacity];
+        float[] newR = new float[newCapacity];
+        int[] newArgb = new int[newCapacity];
+        double[] newScore = new double[newCapacity];
+        int[] newId = new int[newCapacity];
+        System.arraycopy(x, 0, newX, 0, size);
+        System.arraycopy(y, 0, newY, 0, size);
+        System.arraycopy(r, 0, newR, 0, size);
+        System.arraycopy(argb, 0, newArgb, 0, size);
+        System.arraycopy(score, 0, newScore, 0, size);
+        System.arraycopy(id, 0, newId, 0, size);
+        x = newX;
+        y = newY;
+        r = newR;
+        argb = newArgb;
+        score = newScore;
+        id = newId;
+        leftEdges = new float[newCapacity];
+        scratchScores = new double[newCapacity];
+        isWorst = new boolean[newCapacity];
+    }
+
+    /**
+     * This method adds a new living circle
+     * @param cx the x coordinate
+     * @param cy the y coordinate
+     * @param radius the radius
+     * @param colorCode the hex code of the color
+     * @return the index of the new circle
+     */
+    public int addCircle(float cx, float cy, float radius, int colorCode) {
+        ensureCapacity(size + 1);
+        x[size] = cx;
+        y[size] = cy;
+        r[size] = radius;
+        argb[size] = colorCode;
+        score[size] = 0.0;
+        id[size] = nextId++;
+        return size++;
+    }
+
+    /**
+     * This method adds a new living circle with the
+     * information of a CircleImage
+     * @param c the circle image
+     * @return the index of the new circle
+     */
+    public int addCircle(CircleImage c) {
+        return addCircle(c.getPosition().getX(), c.getPosition().getY(), c.getSize(), c.getColor().getCode());
+    }
+
+    /**
+     * This method builds the population with random circles
+     * @param canvas the dimensions of the canvas
+     */
+    public void buildPopulation(CanvasDimensions canvas) {
+        size = 0;
+        diedCircles.clear();
+        for ( CircleImage c : factory.buildRandomCircleImageArray(canvas, circlePopulationLimits.getY()) ) {
+            addCircle(c);
+        }
+    }
+
+    /**
+     * This method copies the parameters of a CircleImagePopulation
+     * The factory and the limits of the population are shared, so the
+     * seed of the other population is used, and changing its limits
+     * changes the limits of both populations
+     * @param other the population where the parameters are read
+     */
+    public void copyParametersFrom(CircleImagePopulation other) {
+        factory = other.getFactory();
+        circlePopulationLimits = other.getCirclePopulationLimits();
+        penaltyProximity = other.getPenaltyProximity();
+        numBabiesByCircle = other.getNumBabiesByCircle();
+        makeBabiesCap = other.getMakeBabiesCap();
+        isUsingPrefixTables = other.isUsingPrefixTables();
+        diedCircles.setCapacity(other.getDiedCircles().getCapacity());
+    }
+
+    /**
+     * This method copies the information of a living circle
+     * into a CircleImage, for the code which works with them
+     * @param index the index of the circle
+     * @param target the CircleImage where the information is copied
+     */
+    public void copyTo(int index, CircleImage target) {
+        target.setId(id[index]);
+        target.getPosition().setX(x[index]);
+        target.getPosition().setY(y[index]);
+        target.setSize(r[index]);
+        CircleColor color = target.getColor();
+        int code = argb[index];
+        color.setAlpha((code >>> 24));
+        color.setRed((code >> 16) & 0xff);
+        color.setGreen((code >> 8) & 0xff);
+        color.setBlue(code & 0xff);
+        target.setScore(score[index]);
+    }
+
+    /**
+     * This method returns a copy of all the living circles
+     * as CircleImages
+     * @return a new list with a copy of all living circles
+     */
+    public ArrayList<CircleImage> toCircleImages() {
+        ArrayList<CircleImage> circles = new ArrayList<>(size);
+        for ( int i = 0; i < size; i++ ) {
+            CircleImage c = new CircleImage(0, new Vec2df(), 0, new CircleColor());
+            copyTo(i, c);
+            circles.add(c);
+        }
+        return circles;
+    }
+
+    /**
+     * This method returns the prefix tables of the background image
+     * They are built again only when the background image changes
+     * @param background the background image
+     * @return the prefix tables of the background image
+     */
+    private BackgroundPrefixTables getPrefixTables(Image background) {
+        if ( prefixTables == null || prefixTablesBackground != background ) {
+            prefixTables = new BackgroundPrefixTables(background);
+            prefixTablesBackground = background;
+        }
+        return prefixTables;
+    }
+
+    /**
+     * This method sets the color of each circle to the mean
+     * color of the background pixels what the circle covers
+     * @param background the background image
+     */
+    public void updateAnalyticColors(Image background) {
+        BackgroundPrefixTables tables = getPrefixTables(background);
+        for ( int i = 0; i < size; i++ ) {
+            scratchColor.setAlpha(argb[i] >>> 24);
+            if ( tables.calculateMeanColor((int)x[i], (int)y[i], (int)r[i], scratchColor) ) {
+                argb[i] = scratchColor.getCode();
+            }
+        }
+    }
+
+    /**
+     * This method calculates the score for the circles
+     * and then applies the penalty for proximity
+     * @param background the background image
+     */
+    public void calculateCirclesScore(Image background) {
+        BackgroundPrefixTables tables = isUsingPrefixTables ? getPrefixTables(background) : null;
+        for ( int i = 0; i < size; i++ ) {
+            score[i] = CircleImage.calculateScore((int)x[i], (int)y[i], (int)r[i], argb[i], background, tables);
+        }
+        applyProximityPenalty();
+    }
+
+    /**
+     * This method applies the penalty for proximity, finding
+     * the close circles with the spatial grid
+     */
+    public void applyProximityPenalty() {
+        float maxSize = 0.0f;
+        for ( int i = 0; i < size; i++ ) {
+            maxSize = Math.max(maxSize, r[i]);
+        }
+        grid.build(x, y, size, 10 * maxSize);
+
+        for ( int i = 0; i < size; i++ ) {
+            int cellX = grid.getCellX(x[i]);
+            int cellY = grid.getCellY(y[i]);
+            int firstCellX = Math.max(cellX - 1, 0);
+            int lastCellX = Math.min(cellX + 1, grid.getNumCellsX() - 1);
+            int firstCellY = Math.max(cellY - 1, 0);
+            int lastCellY = Math.min(cellY + 1, grid.getNumCellsY() - 1);
+            int numCloseCircles = 0;
+            for ( int ny = firstCellY; ny <= lastCellY; ny++ ) {
+                for ( int nx = firstCellX; nx <= lastCellX; nx++ ) {
+                    int end = grid.getCellEnd(nx, ny);
+                    for ( int k = grid.getCellStart(nx, ny); k < end; k++ ) {
+                        int t = grid.getItem(k);
+                        if ( t != i ) {
+                            float differenceX = x[i] - x[t];
+                            float differenceY = y[i] - y[t];
+                            float distance2 = differenceX * differenceX + differenceY * differenceY;
+                            float sizes = 5 * (r[i] + r[t]);
+                            if ( distance2 <= (sizes * sizes) ) {
+                                numCloseCircles++;
+                            }
+                        }
+                    }
+                }
+            }
+            score[i] -= penaltyProximity * numCloseCircles;
+        }
+    }
+
+    /**
+     * This method kills the worst circles. They are found
+     * with a selection, without sorting all the circles, and
+     * they are moved to the died circles in one pass
+     */
+    private void killWorst() {
+        int numToKill = size - circlePopulationLimits.getX();
+        if ( numToKill <= 0 ) {
+            return;
+        }
+        ScoreSelection.markWorst(score, size, numToKill, scratchScores, isWorst);
+
+        int alive = 0;
+        for ( int i = 0; i < size; i++ ) {
+            if ( isWorst[i] ) {
+                diedCircles.add(x[i], y[i], r[i], argb[i], score[i]);
+            } else {
+                x[alive] = x[i];
+                y[alive] = y[i];
+                r[alive] = r[i];
+                argb[alive] = argb[i];
+                score[alive] = score[i];
+                id[alive] = id[i];
+                alive++;
+            }
+        }
+        size = alive;
+    }
+
+    /**
+     * This method add the babies of the circles
+     * to the circles arrays
+     * The genes are drawn from the factory in the same order
+     * as the buildBaby() method of the factory does
+     */
+    private void makeBabies() {
+        int numParents = size;
+        ensureCapacity(numParents * (1 + numBabiesByCircle));
+        for ( int i = 0; i < numParents; i++ ) {
+            for ( int b = 0; b < numBabiesByCircle; b++ ) {
+                float babySize = factory.buildBabySize(r[i]);
+                float babyX = factory.buildBabyCoordinate(x[i]);
+                float babyY = factory.buildBabyCoordinate(y[i]);
+                int babyColorCode = factory.isUsingAnalyticColor() ? argb[i] : factory.buildBabyColorCode(argb[i]);
+                addCircle(babyX, babyY, babySize, babyColorCode);
+            }
+        }
+    }
+
+    /**
+     * This method has in account the update cap for
+     * have babies
+     * @param elapsedTime the time between two frames
+     */
+    private void makeBabies(float elapsedTime) {
+        time += elapsedTime;
+        if ( time >= makeBabiesCap ) {
+            makeBabies();
+            time -= makeBabiesCap;
+        }
+    }
+
+    /**
+     * This method manages the collision of a circle with the edges
+     * @param canvas the dimensions of the canvas
+     * @param i the index of the circle
+     */
+    private void updateCircleEdgeCollision(CanvasDimensions canvas, int i) {
+        if ( x[i] - r[i] < 0 ) {
+            x[i] = r[i];
+        }
+        if ( x[i] + r[i] >= canvas.getWidth() ) {
+            x[i] = canvas.getWidth() - r[i];
+        }
+        if ( y[i] - r[i] < 0 ) {
+            y[i] = r[i];
+        }
+        if ( y[i] + r[i] >= canvas.getHeight() ) {
+            y[i] = canvas.getHeight() - r[i];
+        }
+    }
+
+    /**
+     * This manages the static collision between two circles
+     * @param c the index of the circle
+     * @param t the index of the target circle
+     */
+    private void updateCircleTargetStaticCollision(int c, int t) {
+        float differenceX = x[c] - x[t];
+        float differenceY = y[c] - y[t];
+        float distance2 = differenceX * differenceX + differenceY * differenceY;
+        float sizes = r[c] + r[t];
+        if ( distance2 <= sizes * sizes ) {
+            float dist = (float)Math.sqrt(distance2);
+
+            if ( dist <= 0 ) {
+                dist = 1;
+            }
+
+            float overlap = (dist - r[c] - r[t]);
+
+            x[c] -= overlap * differenceX / dist;
+            y[c] -= overlap * differenceY / dist;
+            x[t] += overlap * differenceX / dist;
+            y[t] += overlap * differenceY / dist;
+        }
+    }
+
+    /**
+     * This method updates the collisions between all circles
+     * and the edges of screen, with the sweep and prune method
+     * The sweep of a circle stops as on the CircleImagePopulation,
+     * with the longest shift of the circles to the left of their
+     * sorted edges
+     * @param canvas the dimensions of the canvas, needed for manage the collisions
+     *           of the circles with the screen edges
+     */
+    public void updateCollisions(CanvasDimensions canvas) {
+        for ( int i = 0; i < size; i++ ) {
+            updateCircleEdgeCollision(canvas, i);
+            leftEdges[i] = x[i] - r[i];
+        }
+
+        sweepAndPrune.sort(leftEdges, size);
+        sweepShift = 0.0f;
+        for ( int i = 0; i < size; i++ ) {
+            int c = sweepAndPrune.getItem(i);
+            for ( int j = i + 1; j < size; j++ ) {
+                int t = sweepAndPrune.getItem(j);
+                if ( leftEdges[t] - sweepShift > x[c] + r[c] ) {
+                    break;
+                }
+                updateCircleTargetStaticCollision(c, t);
+                sweepShift = Math.max(sweepShift, Math.max(leftEdges[c] - (x[c] - r[c]), leftEdges[t] - (x[t] - r[t])));
+            }
+        }
+    }
+
+    /**
+     * This method encapsulates all the sequence of
+     * methods what the population have to do for each frame
+     */
+    public void update(CanvasDimensions canvas, float elapsedTime, Image background) {
+        makeBabies(elapsedTime);
+        updateCollisions(canvas);
+        if ( factory.isUsingAnalyticColor() ) {
+            updateAnalyticColors(background);
+        }
+        calculateCirclesScore(background);
+        killWorst();
+        diedCircles.advance();
+    }
+
+    /**
+     * This method draws the border and the score of the circles,
+     * over the circles drawn on a canvas
+     * @param renderer the renderer object with all drawing methods
+     * @param isDrawingBorder if the method has to draw the border of the circles
+     * @param isDrawingScore if the method has to draw the score of the circles
+     */
+    public void drawCirclesInfo(Renderer renderer, boolean isDrawingBorder, boolean isDrawingScore) {
+        for ( int i = 0; i < size; i++ ) {
+            if ( isDrawingBorder ) {
+                renderer.drawCircle((int)x[i], (int)y[i], (int)r[i], HexColors.WHITE);
+            }
+            if ( isDrawingScore ) {
+                renderer.drawText(String.format("%.2f%%", score[i] * 100), (int)x[i], (int)y[i], HexColors.WHITE);
+            }
+        }
+        diedCircles.drawCirclesInfo(renderer, isDrawingBorder, isDrawingScore);
+    }
+
+    /**
+     * This method draws the circles on a canvas, the living
+     * ones and after them the died ones
+     * @param canvas the canvas where the circles are drawn
+     */
+    public void drawCircles(CircleCanvas canvas) {
+        for ( int i = 0; i < size; i++ ) {
+            canvas.drawFillCircle((int)x[i], (int)y[i], (int)r[i], argb[i]);
+        }
+        diedCircles.drawCircles(canvas);
+    }
+
+    /**
+     * This method marks as dirty, on the fitness tracker, the regions
+     * what have changed since the last time the method was called,
+     * the same way as the CircleImagePopulation does
+     * @param tracker the fitness tracker of the buffer where the circles are drawn
+     */
+    public void markDrawnRegions(ImageFitnessTracker tracker) {
+        currentCircles.capture(this, 0);
+        currentCircles.markChangedRegions(drawnCircles, tracker);
+        PopulationSnapshot drawn = drawnCircles;
+        drawnCircles = currentCircles;
+        currentCircles = drawn;
+    }
+
+    //////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    public int getSize() {
+        return size;
+    }
+
+    public FadingCircleBuffer getDiedCircles() {
+        return diedCircles;
+    }
+
+    public float getX(int index) {
+        return x[index];
+    }
+
+    public float getY(int index) {
+        return y[index];
+    }
+
+    public float getRadius(int index) {
+        return r[index];
+    }
+
+    public int getColorCode(int index) {
+        return argb[index];
+    }
+
+    public double getScore(int index) {
+        return score[index];
+    }
+
+    public int getId(int index) {
+        return id[index];
+    }
+
+    public CircleImageFactory getFactory() {
+        return factory;
+    }
+
+    public Vec2di getCirclePopulationLimits() {
+        return circlePopulationLimits;
+    }
+
+    public double getPenaltyProximity() {
+        return penaltyProximity;
+    }
+
+    public int getNumBabiesByCircle() {
+        return numBabiesByCircle;
+    }
+
+    public double getMakeBabiesCap() {
+        return makeBabiesCap;
+    }
+
+    public boolean isUsingPrefixTables() {
+        return isUsingPrefixTables;
+    }
+
+    public void setFactory(CircleImageFactory factory) {
+        this.factory = factory;
+    }
+
+    public void setCirclePopulationLimits(Vec2di circlePopulationLimits) {
+        this.circlePopulationLimits = circlePopulationLimits;
+    }
+
+    public void setPenaltyProximity(double penaltyProximity) {
+        this.penaltyProximity = penaltyProximity;
+    }
+
+    public void setNumBabiesByCircle(int numBabiesByCircle) {
+        this.numBabiesByCircle = numBabiesByCircle;
+    }
+
+    public void setMakeBabiesCap(double makeBabiesCap) {
+        this.makeBabiesCap = makeBabiesCap;
+    }
+
+    public void setUsingPrefixTables(boolean usingPrefixTables) {
+        isUsingPrefixTables = usingPrefixTables;
+    }
+
+    public void setMaxDiedCircles(int maxDiedCircles) {
+        diedCircles.setCapacity(maxDiedCircles);
+    }
+
+}
@@ -0,0 +1,66 @@
+package circlesimage;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * This class is the Java Flight Recorder event of a phase of a
+ * generation, like making the babies or scoring the circles, so
+ * the phases can be lined up with the pauses of the garbage
+ * collector on the timeline of Mission Control
+ *
+ * The events are only built when a recording has them enabled
+ *
+ * @class PhaseEvent
+ * @author Sergio Martí Torregrosa
+ * @date 28/11/2020
+ */
+@Name("circlesimage.Phase")
+@Label("Generation Phase")
+@Category({"Circles Image", "Generations"})
+@Description("A phase of a generation of a population of circles")
+@StackTrace(false)
+public class PhaseEvent extends jdk.jfr.Event {
+
+    /**
+     * The type of the event, for checking if it is enabled
+     */
+    private static final EventType TYPE = EventType.getEventType(PhaseEvent.class);
+
+    @Label("Phase")
+    private final String phase;
+
+    @Label("Circles")
+    @Description("The number of circles when the phase started")
+    private final int numCircles;
+
+    /**
+     * Constructor
+     * @param phase the name of the phase
+     * @param numCircles the number of circles when the phase starts
+     */
+    public PhaseEvent(String phase, int numCircles) {
+        this.phase = phase;
+        this.numCircles = numCircles;
+    }
+
+    /**
+     * This method starts a phase event, if the event is enabled
+     * @param phase the name of the phase
+     * @param numCircles the number of circles when the phase starts
+     * @return the started event, or null if the event isn't enabled
+     */
+    public static PhaseEvent start(String phase, int numCircles) {
+        if ( !TYPE.isEnabled() ) {
+            return null;
+        }
+        PhaseEvent event = new PhaseEvent(phase, numCircles);
+        event.begin();
+        return event;
+    }
+
+}
@@ -0,0 +1,201 @@
+package circlesimage;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class stores the times of the phases of the generations
+ * and the counters of the circles born, killed and scored
+ *
+ * Each phase has a histogram of its times. The population only
+ * measures the phases when it has metrics, so without metrics
+ * the cost is one check of a null reference by phase
+ *
+ * The metrics can be registered on the platform MBean server,
+ * and they can be drawn on the screen by the program
+ *
+ * @class PopulationMetrics
+ * @author Sergio Martí Torregrosa
+ * @date 27/11/2020
+ */
+public class PopulationMetrics implements PopulationMetricsMXBean {
+
+    /**
+     * The phases of a generation what are measured
+     */
+    public enum Phase {
+        BABIES("makeBabies"),
+        COLLISIONS("updateCollisions"),
+        SCORES("calculateCirclesScore"),
+        KILL_WORST("killWorst"),
+        DIED_CIRCLES("updateDiedCircles"),
+        IMAGE_FITNESS("calculateImageFitness");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * The name of the metrics on the MBean server
+     */
+    public static final String OBJECT_NAME = "circlesimage:type=PopulationMetrics";
+
+    /**
+     * The histograms of the times of the phases
+     */
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Phase.values().length];
+
+    private final AtomicLong circlesBorn = new AtomicLong();
+
+    private final AtomicLong circlesKilled = new AtomicLong();
+
+    private final AtomicLong circlesScored = new AtomicLong();
+
+    /**
+     * The mode of the program whose generations aren't measured,
+     * or an empty text if all the phases are measured
+     */
+    private volatile String unsupportedMode = "";
+
+    /**
+     * Constructor
+     */
+    public PopulationMetrics() {
+        for ( int i = 0; i < histograms.length; i++ ) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * This method records the time of a phase
+     * @param phase the phase
+     * @param time the time, in nanoseconds
+     */
+    public void record(Phase phase, long time) {
+        histograms[phase.ordinal()].record(time);
+    }
+
+    public void addCirclesBorn(int numCircles) {
+        circlesBorn.addAndGet(numCircles);
+    }
+
+    public void addCirclesKilled(int numCircles) {
+        circlesKilled.addAndGet(numCircles);
+    }
+
+    public void addCirclesScored(int numCircles) {
+        circlesScored.addAndGet(numCircles);
+    }
+
+    /**
+     * This method registers the metrics on the platform MBean server
+     * If there are metrics with the same name, they are replaced
+     * @throws JMException if the metrics can't be registered
+     */
+    public void register() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if ( server.isRegistered(name) ) {
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(this, name);
+    }
+
+    /**
+     * This method builds a map with a value, in milliseconds, of each phase
+     * @param percentile the percentile of the times, or a negative
+     *                   number for the mean
+     * @return the map with the names of the phases as keys
+     */
+    private Map<String, Double> toMillis(double percentile) {
+        Map<String, Double> millis = new LinkedHashMap<>();
+        for ( Phase phase : Phase.values() ) {
+            LatencyHistogram histogram = histograms[phase.ordinal()];
+            double time = percentile < 0 ? histogram.getMean() : histogram.getPercentile(percentile);
+            millis.put(phase.getLabel(), time / 1e6);
+        }
+        return millis;
+    }
+
+    @Override
+    public Map<String, Double> getMeanMillis() {
+        return toMillis(-1);
+    }
+
+    @Override
+    public Map<String, Double> getMedianMillis() {
+        return toMillis(0.5);
+    }
+
+    @Override
+    public Map<String, Double> getP99Millis() {
+        return toMillis(0.99);
+    }
+
+    @Override
+    public Map<String, Double> getMaxMillis() {
+        return toMillis(1.0);
+    }
+
+    @Override
+    public Map<String, Long> getPhaseCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for ( Phase phase : Phase.values() ) {
+            counts.put(phase.getLabel(), histograms[phase.ordinal()].getCount());
+        }
+        return counts;
+    }
+
+    @Override
+    public long getCirclesBorn() {
+        return circlesBorn.get();
+    }
+
+    @Override
+    public long getCirclesKilled() {
+        return circlesKilled.get();
+    }
+
+    @Override
+    public long getCirclesScored() {
+        return circlesScored.get();
+    }
+
+    @Override
+    public String getUnsupportedMode() {
+        return unsupportedMode;
+    }
+
+    @Override
+    public void reset() {
+        for ( LatencyHistogram histogram : histograms ) {
+            histogram.reset();
+        }
+        circlesBorn.set(0);
+        circlesKilled.set(0);
+        circlesScored.set(0);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////
+
+    public LatencyHistogram getHistogram(Phase phase) {
+        return histograms[phase.ordinal()];
+    }
+
+    public void setUnsupportedMode(String unsupportedMode) {
+        this.unsupportedMode = unsupportedMode;
+    }
+
+}
@@ -0,0 +1,41 @@
+package circlesimage;
+
+import java.util.Map;
+
+/**
+ * This interface is the view of the metrics of a population
+ * what is published over JMX, so the times of the phases and
+ * the counters can be read with JConsole or Mission Control
+ *
+ * The times are in milliseconds, and the maps have the
+ * names of the phases as keys. The unsupported mode is the mode
+ * of the program whose generations aren't measured, or an empty
+ * text if all the phases are measured
+ *
+ * @interface PopulationMetricsMXBean
+ * @author Sergio Martí Torregrosa
+ * @date 27/11/2020
+ */
+public interface PopulationMetricsMXBean {
+
+    Map<String, Double> getMeanMillis();
+
+    Map<String, Double> getMedianMillis();
+
+    Map<String, Double> getP99Millis();
+
+    Map<String, Double> getMaxMillis();
+
+    Map<String, Long> getPhaseCounts();
+
+    long getCirclesBorn();
+
+    long getCirclesKilled();
+
+    long getCirclesScored();
+
+    String getUnsupportedMode();
+
+    void reset();
+
+}
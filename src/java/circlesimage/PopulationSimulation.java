@@ -0,0 +1,215 @@
+package circlesimage;
+
+import engine.gfx.images.Image;
+
+/**
+ * This class evolves a population on its own thread, running
+ * the generations back to back, as fast as the CPU allows,
+ * instead of one generation for each frame
+ *
+ * Each generation advances the time of the population a fixed
+ * step, the make babies cap, so the babies are made on every
+ * generation whatever the frame rate is. The render thread only
+ * reads the state of the population at its own rate
+ *
+ * After each generation, the simulation publishes a snapshot of
+ * the circles, so the render thread draws the newest snapshot with
+ * getLatestSnapshot(), without locks and without waiting for the
+ * generation what is running
+ *
+ * The generations don't follow the frames, so the died circles
+ * fade with the frames of the render thread, what counts them with
+ * advanceFrame(), instead of fading one frame each generation
+ *
+ * While a generation runs, the simulation holds the lock of the
+ * simulation, so the code of other threads what modifies the
+ * population, like rebuilding it, has to be synchronized on getLock()
+ *
+ * @class PopulationSimulation
+ * @author Sergio Martí Torregrosa
+ * @date 25/11/2020
+ */
+public class PopulationSimulation implements Runnable {
+
+    /**
+     * The time between two measures of the generations by second, in nanoseconds
+     */
+    private static final long RATE_INTERVAL = 1000000000L;
+
+    /**
+     * The population what is evolved
+     */
+    private final CircleImagePopulation population;
+
+    /**
+     * The dimensions of the canvas
+     */
+    private final CanvasDimensions canvas;
+
+    /**
+     * The lock what is held while a generation runs
+     */
+    private final Object lock = new Object();
+
+    /**
+     * The exchange of the snapshots with the render thread
+     */
+    private final SnapshotExchange snapshots = new SnapshotExchange();
+
+    /**
+     * The background image of the generations
+     */
+    private volatile Image background;
+
+    /**
+     * A flag for stopping the simulation
+     */
+    private volatile boolean isRunning = false;
+
+    /**
+     * The thread of the simulation
+     */
+    private Thread thread;
+
+    /**
+     * The number of generations since the simulation started
+     */
+    private volatile long numGenerations = 0;
+
+    /**
+     * The generations by second of the last measure
+     */
+    private volatile double generationsPerSecond = 0.0;
+
+    /**
+     * The number of frames drawn by the render thread,
+     * which is the only one what writes it
+     */
+    private volatile long numFrames = 0;
+
+    /**
+     * Constructor
+     * @param population the population what is evolved
+     * @param canvas the dimensions of the canvas
+     * @param background the background image
+     */
+    public PopulationSimulation(CircleImagePopulation population, CanvasDimensions canvas, Image background) {
+        this.population = population;
+        this.canvas = canvas;
+        this.background = background;
+        snapshots.publish(population, 0);
+    }
+
+    /**
+     * This method runs one generation, with the lock of
+     * the simulation, and publishes the snapshot of it
+     */
+    public void runGeneration() {
+        synchronized ( lock ) {
+            population.setRenderFrame(numFrames);
+            population.update(canvas, (float)population.getMakeBabiesCap(), background);
+            snapshots.publish(population, numGenerations + 1);
+        }
+        numGenerations++;
+    }
+
+    /**
+     * This method counts a frame of the render thread, so the
+     * died circles of the next generation fade one more frame
+     * It must be called once by frame, from the render thread
+     */
+    public void advanceFrame() {
+        numFrames++;
+    }
+
+    /**
+     * This method returns the snapshot of the newest generation
+     * It must be called always from the same thread, the render
+     * thread, and the snapshot can be used until the next call
+     * @return the newest snapshot
+     */
+    public PopulationSnapshot getLatestSnapshot() {
+        return snapshots.getLatest();
+    }
+
+    @Override
+    public void run() {
+        long lastMeasureTime = System.nanoTime();
+        long lastMeasureGenerations = numGenerations;
+        while ( isRunning ) {
+            runGeneration();
+
+            long now = System.nanoTime();
+            if ( now - lastMeasureTime >= RATE_INTERVAL ) {
+                generationsPerSecond = (numGenerations - lastMeasureGenerations) * 1e9 / (now - lastMeasureTime);
+                lastMeasureTime = now;
+                lastMeasureGenerations = numGenerations;
+            }
+        }
+    }
+
+    /**
+     * This method starts the thread of the simulation
+     */
+    public void start() {
+        if ( isRunning ) {
+            return;
+        }
+        isRunning = true;
+        thread = new Thread(this, "population-simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * This method stops the thread of the simulation and
+     * waits until the generation what is running finishes
+     */
+    public void stop() {
+        if ( !isRunning ) {
+            return;
+        }
+        isRunning = false;
+        try {
+            thread.join();
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////
+
+    public CircleImagePopulation getPopulation() {
+        return population;
+    }
+
+    public Object getLock() {
+        return lock;
+    }
+
+    public Image getBackground() {
+        return background;
+    }
+
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    public long getNumGenerations() {
+        return numGenerations;
+    }
+
+    public long getNumFrames() {
+        return numFrames;
+    }
+
+    public double getGenerationsPerSecond() {
+        return generationsPerSecond;
+    }
+
+    public void setBackground(Image background) {
+        this.background = background;
+    }
+
+}
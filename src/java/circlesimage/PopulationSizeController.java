@@ -0,0 +1,129 @@
+package circlesimage;
+
+/**
+ * This class adapts the maximum number of living circles of a
+ * population to the speed of the machine, so each generation
+ * takes about a target time
+ *
+ * After each generation, the time of the generation is divided by
+ * the circles what went through it, the parents and the babies,
+ * and the cost of one circle is smoothed with the previous ones.
+ * The limit of circles what fits in the target time with this cost
+ * is the new limit, but it only changes a fraction of the actual
+ * limit on each generation, so a slow generation, like one with a
+ * pause of the garbage collector, doesn't make the population jump
+ *
+ * The limit always stays between the minimum and the maximum limits
+ *
+ * @class PopulationSizeController
+ * @author Sergio Martí Torregrosa
+ * @date 27/11/2020
+ */
+public class PopulationSizeController {
+
+    /**
+     * The weight of the last generation on the smoothed cost of a circle
+     */
+    private static final double SMOOTHING = 0.2;
+
+    /**
+     * The maximum change of the limit on each generation,
+     * as a fraction of the actual limit
+     */
+    private static final double MAX_CHANGE = 0.1;
+
+    /**
+     * The target time of a generation, in nanoseconds
+     */
+    private long targetTime;
+
+    /**
+     * The minimum limit of living circles
+     */
+    private int minCircles;
+
+    /**
+     * The maximum limit of living circles
+     */
+    private int maxCircles;
+
+    /**
+     * The smoothed time of each circle of a generation, in
+     * nanoseconds. It is negative until the first generation
+     */
+    private double costByCircle = -1;
+
+    /**
+     * Constructor
+     * @param targetTime the target time of a generation, in nanoseconds
+     * @param minCircles the minimum limit of living circles
+     * @param maxCircles the maximum limit of living circles
+     */
+    public PopulationSizeController(long targetTime, int minCircles, int maxCircles) {
+        this.targetTime = targetTime;
+        this.minCircles = Math.max(minCircles, 1);
+        this.maxCircles = Math.max(maxCircles, this.minCircles);
+    }
+
+    /**
+     * This method calculates the new limit of living circles
+     * with the time of the last generation
+     * @param limit the actual limit of living circles
+     * @param generationTime the time of the last generation, in nanoseconds
+     * @param numCircles the circles what went through the generation
+     * @return the new limit of living circles
+     */
+    public int adapt(int limit, long generationTime, int numCircles) {
+        if ( numCircles <= 0 || generationTime <= 0 ) {
+            return clamp(limit);
+        }
+        double cost = (double)generationTime / numCircles;
+        costByCircle = costByCircle < 0 ? cost : costByCircle + SMOOTHING * (cost - costByCircle);
+
+        double circlesByLimit = (double)numCircles / Math.max(limit, 1);
+        double target = targetTime / (costByCircle * circlesByLimit);
+        int maxStep = Math.max(1, (int)(limit * MAX_CHANGE));
+        int step = (int)Math.max(-maxStep, Math.min(maxStep, target - limit));
+        return clamp(limit + step);
+    }
+
+    /**
+     * This method keeps a limit between the minimum and the maximum limits
+     * @param limit the limit
+     * @return the limit between the bounds
+     */
+    private int clamp(int limit) {
+        return Math.max(minCircles, Math.min(maxCircles, limit));
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////
+
+    public long getTargetTime() {
+        return targetTime;
+    }
+
+    public int getMinCircles() {
+        return minCircles;
+    }
+
+    public int getMaxCircles() {
+        return maxCircles;
+    }
+
+    public double getCostByCircle() {
+        return costByCircle;
+    }
+
+    public void setTargetTime(long targetTime) {
+        this.targetTime = targetTime;
+    }
+
+    public void setMinCircles(int minCircles) {
+        this.minCircles = Math.max(minCircles, 1);
+    }
+
+    public void setMaxCircles(int maxCircles) {
+        this.maxCircles = maxCircles;
+    }
+
+}
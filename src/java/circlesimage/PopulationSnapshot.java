@@ -0,0 +1,359 @@
+package circlesimage;
+
+import engine.gfx.HexColors;
+import engine.gfx.Renderer;
+
+import java.util.ArrayList;
+
+/**
+ * This class is a copy of the circles of a population, what are
+ * drawn, stored as primitives, so another thread can draw it while
+ * the population evolves
+ *
+ * The living circles are stored first and the visible died circles
+ * after them, with the alpha channel of their age already in the hex
+ * code of their color. The arrays are reused between captures and
+ * only grow, so capturing a population doesn't allocate memory once
+ * the arrays are big enough
+ *
+ * The living circles keep their serials, which grow with the order of
+ * the circles on the population, so two snapshots can be compared for
+ * finding the circles what have changed between them
+ *
+ * A snapshot is owned by one thread at a time, the one what captures
+ * it or the one what draws it, and it is passed between them by the
+ * class SnapshotExchange
+ *
+ * @class PopulationSnapshot
+ * @author Sergio Martí Torregrosa
+ * @date 26/11/2020
+ */
+public class PopulationSnapshot {
+
+    /**
+     * The serials of the circles, -1 for the died circles
+     */
+    private long[] serial = new long[0];
+
+    /**
+     * The x coordinates of the circles
+     */
+    private float[] x = new float[0];
+
+    /**
+     * The y coordinates of the circles
+     */
+    private float[] y = new float[0];
+
+    /**
+     * The radius of the circles
+     */
+    private float[] size = new float[0];
+
+    /**
+     * The hex codes of the colors of the circles
+     */
+    private int[] colorCode = new int[0];
+
+    /**
+     * The scores of the circles
+     */
+    private double[] score = new double[0];
+
+    /**
+     * The number of circles, the living and the died ones
+     */
+    private int count = 0;
+
+    /**
+     * The number of living circles
+     */
+    private int numCircles = 0;
+
+    /**
+     * The number of died circles what are still on the buffer
+     */
+    private int numDiedCircles = 0;
+
+    /**
+     * The generation of the population when the snapshot was captured
+     * It is -1 if the snapshot hasn't been captured
+     */
+    private long generation = -1;
+
+    /**
+     * This method makes the arrays big enough for a number of circles
+     * @param capacity the number of circles
+     */
+    private void ensureCapacity(int capacity) {
+        if ( capacity <= x.length ) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, x.length + (x.length >> 1));
+        serial = new long[newCapacity];
+        x = new float[newCapacity];
+        y = new float[newCapacity];
+        size = new float[newCapacity];
+        colorCode = new int[newCapacity];
+        score = new double[newCapacity];
+    }
+
+    /**
+     * This method adds a circle to the snapshot
+     * @param circleSerial the serial of the circle
+     * @param cx the x coordinate
+     * @param cy the y coordinate
+     * @param radius the radius
+     * @param code the hex code of the color
+     * @param circleScore the score of the circle
+     */
+    private void add(long circleSerial, float cx, float cy, float radius, int code, double circleScore) {
+        serial[count] = circleSerial;
+        x[count] = cx;
+        y[count] = cy;
+        size[count] = radius;
+        colorCode[count] = code;
+        score[count] = circleScore;
+        count++;
+    }
+
+    /**
+     * This method copies the circles of a population, the
+     * previous content of the snapshot is overwritten
+     * @param population the population
+     * @param populationGeneration the generation of the population
+     */
+    public void capture(CircleImagePopulation population, long populationGeneration) {
+        beginCapture(population);
+        captureCircles(population, 0, population.getCircles().size());
+        captureDiedCircles(population, 0, population.getDiedCircles().size());
+        finishCapture(population, populationGeneration);
+    }
+
+    /**
+     * This method starts copying the circles of a population in
+     * slices, the previous content of the snapshot is overwritten
+     * The living circles have to be copied in order with
+     * captureCircles(), then the died circles with
+     * captureDiedCircles(), and then the copy is finished with
+     * finishCapture(). The population can't change meanwhile
+     * @param population the population
+     */
+    public void beginCapture(CircleImagePopulation population) {
+        ensureCapacity(population.getCircles().size() + population.getDiedCircles().size());
+        count = 0;
+        numCircles = 0;
+    }
+
+    /**
+     * This method copies a range of the living circles of a population
+     * @param population the population
+     * @param from the index of the first circle, inclusive
+     * @param to the index of the last circle, exclusive
+     */
+    public void captureCircles(CircleImagePopulation population, int from, int to) {
+        ArrayList<CircleImage> circles = population.getCircles();
+        for ( int i = from; i < to; i++ ) {
+            CircleImage c = circles.get(i);
+            add(c.getSerial(), c.getPosition().getX(), c.getPosition().getY(), c.getSize(), c.getColor().getCode(), c.getScore());
+        }
+        numCircles = count;
+    }
+
+    /**
+     * This method copies the visible circles of a range of the died circles of a population
+     * @param population the population
+     * @param from the index of the first died circle, inclusive
+     * @param to the index of the last died circle, exclusive
+     */
+    public void captureDiedCircles(CircleImagePopulation population, int from, int to) {
+        FadingCircleBuffer diedCircles = population.getDiedCircles();
+        for ( int i = from; i < to; i++ ) {
+            if ( diedCircles.isVisible(i) ) {
+                add(-1, diedCircles.getX(i), diedCircles.getY(i), diedCircles.getRadius(i),
+                        diedCircles.getColorCode(i), diedCircles.getScore(i));
+            }
+        }
+    }
+
+    /**
+     * This method finishes copying the circles of a population
+     * @param population the population
+     * @param populationGeneration the generation of the population
+     */
+    public void finishCapture(CircleImagePopulation population, long populationGeneration) {
+        numDiedCircles = population.getDiedCircles().size();
+        generation = populationGeneration;
+    }
+
+    /**
+     * This method copies the circles of a packed population, the
+     * previous content of the snapshot is overwritten. The
+     * identifiers of the circles are their serials
+     * @param population the population
+     * @param populationGeneration the generation of the population
+     */
+    public void capture(PackedCircleImagePopulation population, long populationGeneration) {
+        FadingCircleBuffer diedCircles = population.getDiedCircles();
+        ensureCapacity(population.getSize() + diedCircles.size());
+
+        count = 0;
+        for ( int i = 0; i < population.getSize(); i++ ) {
+            add(population.getId(i), population.getX(i), population.getY(i), population.getRadius(i),
+                    population.getColorCode(i), population.getScore(i));
+        }
+        numCircles = count;
+        for ( int i = 0; i < diedCircles.size(); i++ ) {
+            if ( diedCircles.isVisible(i) ) {
+                add(-1, diedCircles.getX(i), diedCircles.getY(i), diedCircles.getRadius(i),
+                        diedCircles.getColorCode(i), diedCircles.getScore(i));
+            }
+        }
+        numDiedCircles = diedCircles.size();
+        generation = populationGeneration;
+    }
+
+    /**
+     * This method draws the border and the score of the circles
+     * of the snapshot, over the circles drawn on a canvas
+     * @param r the renderer object with all drawing methods
+     * @param isDrawingBorder if the method has to draw the border of the circles
+     * @param isDrawingScore if the method has to draw the score of the circles
+     */
+    public void drawCirclesInfo(Renderer r, boolean isDrawingBorder, boolean isDrawingScore) {
+        for ( int i = 0; i < count; i++ ) {
+            int cx = (int)x[i];
+            int cy = (int)y[i];
+            int radius = (int)size[i];
+            if ( isDrawingBorder ) {
+                r.drawCircle(cx, cy, radius, HexColors.WHITE);
+            }
+            if ( isDrawingScore ) {
+                r.drawText(String.format("%.2f%%", score[i] * 100), cx, cy, HexColors.WHITE);
+            }
+        }
+    }
+
+    /**
+     * This method draws the circles of the snapshot on a canvas,
+     * in the same order as the population draws them
+     * @param canvas the canvas where the circles are drawn
+     */
+    public void drawCircles(CircleCanvas canvas) {
+        for ( int i = 0; i < count; i++ ) {
+            canvas.drawFillCircle((int)x[i], (int)y[i], (int)size[i], colorCode[i]);
+        }
+    }
+
+    /**
+     * This method copies other snapshot, the previous content
+     * of the snapshot is overwritten
+     * @param source the snapshot what is copied
+     */
+    public void copy(PopulationSnapshot source) {
+        ensureCapacity(source.count);
+        System.arraycopy(source.serial, 0, serial, 0, source.count);
+        System.arraycopy(source.x, 0, x, 0, source.count);
+        System.arraycopy(source.y, 0, y, 0, source.count);
+        System.arraycopy(source.size, 0, size, 0, source.count);
+        System.arraycopy(source.colorCode, 0, colorCode, 0, source.count);
+        System.arraycopy(source.score, 0, score, 0, source.count);
+        count = source.count;
+        numCircles = source.numCircles;
+        numDiedCircles = source.numDiedCircles;
+        generation = source.generation;
+    }
+
+    /**
+     * This method says if the serials of the living circles
+     * grow with their order, so the snapshot can be compared
+     * @return if the serials are in increasing order
+     */
+    private boolean isOrderedBySerial() {
+        for ( int i = 1; i < numCircles; i++ ) {
+            if ( serial[i] <= serial[i - 1] ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * This method marks as dirty, on the fitness tracker, the
+     * regions of some circles of the snapshot
+     * @param tracker the fitness tracker
+     * @param from the index of the first circle, inclusive
+     * @param to the index of the last circle, exclusive
+     */
+    private void markRegions(ImageFitnessTracker tracker, int from, int to) {
+        for ( int i = from; i < to; i++ ) {
+            tracker.markCircleDirty(x[i], y[i], size[i]);
+        }
+    }
+
+    /**
+     * This method marks as dirty, on the fitness tracker, the regions
+     * what have changed from the snapshot what was drawn before to this
+     * one. The living circles of both snapshots are walked together by
+     * their serials: the circles what are only on the drawn snapshot
+     * have been killed, the ones what are only on this snapshot have
+     * been born, and the ones on both are marked, on their old and
+     * new bounds, only if they have moved or changed. The died circles
+     * of both snapshots are always marked: the ones of this snapshot
+     * because they are blended again on each frame, and the ones of the
+     * drawn snapshot because, when they have faded out, the pixels what
+     * they covered are drawn again without them
+     * If the serials aren't in order, as when the circles have been
+     * set by hand, all the circles of both snapshots are marked
+     * @param drawn the snapshot what was drawn before
+     * @param tracker the fitness tracker of the buffer where the circles are drawn
+     */
+    public void markChangedRegions(PopulationSnapshot drawn, ImageFitnessTracker tracker) {
+        if ( !isOrderedBySerial() || !drawn.isOrderedBySerial() ) {
+            markRegions(tracker, 0, count);
+            drawn.markRegions(tracker, 0, drawn.count);
+            return;
+        }
+
+        int i = 0;
+        int j = 0;
+        while ( i < numCircles || j < drawn.numCircles ) {
+            if ( j >= drawn.numCircles || (i < numCircles && serial[i] < drawn.serial[j]) ) {
+                tracker.markCircleDirty(x[i], y[i], size[i]);
+                i++;
+            } else if ( i >= numCircles || drawn.serial[j] < serial[i] ) {
+                tracker.markCircleDirty(drawn.x[j], drawn.y[j], drawn.size[j]);
+                j++;
+            } else {
+                if ( x[i] != drawn.x[j] || y[i] != drawn.y[j]
+                        || size[i] != drawn.size[j] || colorCode[i] != drawn.colorCode[j] ) {
+                    tracker.markCircleDirty(drawn.x[j], drawn.y[j], drawn.size[j]);
+                    tracker.markCircleDirty(x[i], y[i], size[i]);
+                }
+                i++;
+                j++;
+            }
+        }
+        markRegions(tracker, numCircles, count);
+        drawn.markRegions(tracker, drawn.numCircles, drawn.count);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////
+
+    public int size() {
+        return count;
+    }
+
+    public int getNumCircles() {
+        return numCircles;
+    }
+
+    public int getNumDiedCircles() {
+        return numDiedCircles;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+}
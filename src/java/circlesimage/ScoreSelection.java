@@ -0,0 +1,186 @@
+package circlesimage;
+
+/**
+ * This class contains static methods for selecting the
+ * circles with the worst scores without sorting all of them
+ *
+ * The k-th smallest score is found with the quickselect, in
+ * O(n) on average, and then the k worst circles are marked in
+ * one pass. The arrays are given by the caller, so it doesn't
+ * allocate memory. The quickselect can also be split in steps,
+ * what partition a maximum number of values each one
+ *
+ * @class ScoreSelection
+ * @author Sergio Martí Torregrosa
+ * @date 19/11/2020
+ */
+public class ScoreSelection {
+
+    /**
+     * This method finds the k-th smallest value of an array
+     * The values are reordered
+     * @param values the values
+     * @param size the number of values
+     * @param k the index of the value on the sorted order, from 0 to size - 1
+     * @return the k-th smallest value
+     */
+    public static double selectKthSmallest(double[] values, int size, int k) {
+        int low = 0;
+        int high = size - 1;
+        while ( low < high ) {
+            long parts = partition(values, low, high);
+            int j = (int)(parts >> 32);
+            int i = (int)parts;
+            if ( k <= j ) {
+                high = j;
+            } else if ( k >= i ) {
+                low = i;
+            } else {
+                return values[k];
+            }
+        }
+        return values[k];
+    }
+
+    /**
+     * This method runs the partitions of the quickselect of the k-th
+     * smallest value until a number of values has been partitioned
+     * The range of the values what contains the k-th smallest value
+     * is read and written on an array, so the next step continues
+     * the selection. It starts as the whole array of values
+     * @param values the values
+     * @param k the index of the value on the sorted order
+     * @param range the first and the last index of the range, inclusive
+     * @param maxValues the maximum number of values to partition
+     * @return if the k-th smallest value is on values[k]
+     */
+    public static boolean selectKthSmallestStep(double[] values, int k, int[] range, int maxValues) {
+        int low = range[0];
+        int high = range[1];
+        long numValues = 0;
+        while ( low < high && numValues < maxValues ) {
+            numValues += high - low + 1;
+            long parts = partition(values, low, high);
+            int j = (int)(parts >> 32);
+            int i = (int)parts;
+            if ( k <= j ) {
+                high = j;
+            } else if ( k >= i ) {
+                low = i;
+            } else {
+                low = k;
+                high = k;
+            }
+        }
+        range[0] = low;
+        range[1] = high;
+        return low >= high;
+    }
+
+    /**
+     * This method partitions a range of values around the median
+     * of the first, the middle and the last value
+     * @param values the values
+     * @param low the first index, inclusive
+     * @param high the last index, inclusive
+     * @return the last index of the left part on the high 32 bits,
+     * and the first index of the right part on the low 32 bits
+     */
+    private static long partition(double[] values, int low, int high) {
+        int middle = (low + high) >>> 1;
+        if ( values[middle] < values[low] ) {
+            swap(values, middle, low);
+        }
+        if ( values[high] < values[low] ) {
+            swap(values, high, low);
+        }
+        if ( values[high] < values[middle] ) {
+            swap(values, high, middle);
+        }
+        double pivot = values[middle];
+        int i = low;
+        int j = high;
+        while ( i <= j ) {
+            while ( values[i] < pivot ) {
+                i++;
+            }
+            while ( values[j] > pivot ) {
+                j--;
+            }
+            if ( i <= j ) {
+                swap(values, i++, j--);
+            }
+        }
+        return ((long)j << 32) | (i & 0xffffffffL);
+    }
+
+    /**
+     * This method marks the k values with the worst (smallest) scores
+     * If there are ties, the first values on the array are marked
+     * @param scores the scores, they aren't modified
+     * @param size the number of scores
+     * @param k the number of scores to mark
+     * @param scratch an array, at least of the size of the scores, used as scratch memory
+     * @param isWorst the array where the marks are stored
+     */
+    public static void markWorst(double[] scores, int size, int k, double[] scratch, boolean[] isWorst) {
+        if ( k <= 0 ) {
+            for ( int i = 0; i < size; i++ ) {
+                isWorst[i] = false;
+            }
+            return;
+        }
+        if ( k >= size ) {
+            for ( int i = 0; i < size; i++ ) {
+                isWorst[i] = true;
+            }
+            return;
+        }
+
+        System.arraycopy(scores, 0, scratch, 0, size);
+        markWorst(scores, size, k, selectKthSmallest(scratch, size, k - 1), isWorst);
+    }
+
+    /**
+     * This method marks the k values with the worst (smallest) scores,
+     * with the k-th smallest score already selected
+     * If there are ties, the first values on the array are marked
+     * @param scores the scores, they aren't modified
+     * @param size the number of scores
+     * @param k the number of scores to mark, from 1 to size
+     * @param threshold the k-th smallest score
+     * @param isWorst the array where the marks are stored
+     */
+    public static void markWorst(double[] scores, int size, int k, double threshold, boolean[] isWorst) {
+        int numBelow = 0;
+        for ( int i = 0; i < size; i++ ) {
+            if ( scores[i] < threshold ) {
+                numBelow++;
+            }
+        }
+        int numEqual = k - numBelow;
+        for ( int i = 0; i < size; i++ ) {
+            if ( scores[i] < threshold ) {
+                isWorst[i] = true;
+            } else if ( scores[i] == threshold && numEqual > 0 ) {
+                isWorst[i] = true;
+                numEqual--;
+            } else {
+                isWorst[i] = false;
+            }
+        }
+    }
+
+    /**
+     * This method swaps two values
+     * @param values the values
+     * @param i the index of the first value
+     * @param j the index of the second value
+     */
+    private static void swap(double[] values, int i, int j) {
+        double temp = values[i];
+        values[i] = values[j];
+        values[j] = temp;
+    }
+
+}
@@ -0,0 +1,65 @@
+package circlesimage;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class passes snapshots of a population from the thread
+ * what evolves it to the thread what draws it, without locks
+ *
+ * There are three snapshots: the one what the simulation fills,
+ * the one what the renderer draws, and the published one between
+ * them. After each generation, the simulation swaps its filled
+ * snapshot with the published one, in one atomic operation, and
+ * keeps filling the snapshot what it gets back. When the renderer
+ * sees that the published snapshot is newer than its own, it swaps
+ * them the same way. So each thread always owns the snapshot what
+ * it uses, and no one waits for the other
+ *
+ * There must be only one thread publishing and only one thread reading
+ *
+ * @class SnapshotExchange
+ * @author Sergio Martí Torregrosa
+ * @date 26/11/2020
+ */
+public class SnapshotExchange {
+
+    /**
+     * The snapshot what the simulation fills
+     */
+    private PopulationSnapshot writing = new PopulationSnapshot();
+
+    /**
+     * The last published snapshot, or the one what the renderer gave back
+     */
+    private final AtomicReference<PopulationSnapshot> published = new AtomicReference<>(new PopulationSnapshot());
+
+    /**
+     * The snapshot what the renderer draws
+     */
+    private PopulationSnapshot reading = new PopulationSnapshot();
+
+    /**
+     * This method captures the population and publishes the snapshot
+     * It must be called from the thread what evolves the population
+     * @param population the population
+     * @param generation the generation of the population
+     */
+    public void publish(CircleImagePopulation population, long generation) {
+        writing.capture(population, generation);
+        writing = published.getAndSet(writing);
+    }
+
+    /**
+     * This method returns the newest published snapshot. The snapshot
+     * isn't modified until the next call of this method
+     * It must be called from the thread what draws the population
+     * @return the newest snapshot
+     */
+    public PopulationSnapshot getLatest() {
+        if ( published.get().getGeneration() > reading.getGeneration() ) {
+            reading = published.getAndSet(reading);
+        }
+        return reading;
+    }
+
+}
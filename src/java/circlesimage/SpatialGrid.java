@@ -0,0 +1,201 @@
+package circlesimage;
+
+/**
+ * This class is an uniform grid for finding the circles
+ * which are close to a point without going over all circles
+ *
+ * The plane is divided in square cells, and each circle is
+ * stored in the cell where is its center. To find the circles
+ * what are closer than the size of a cell to a point, only the
+ * cell of the point and its eight neighbouring cells have to be
+ * checked
+ *
+ * The grid is built again each generation from the positions of
+ * the circles, with a counting sort. The arrays are reused, so it
+ * doesn't allocate memory once they are big enough
+ *
+ * @class SpatialGrid
+ * @author Sergio Martí Torregrosa
+ * @date 17/11/2020
+ */
+public class SpatialGrid {
+
+    /**
+     * The maximum number of cells of the grid. If the circles are
+     * very spread, the cells are made bigger so the grid doesn't
+     * grow without limit
+     */
+    private static final int MAX_CELLS = 1 << 20;
+
+    /**
+     * The size of the side of the cells
+     */
+    private float cellSize = 1.0f;
+
+    /**
+     * The minimum x coordinate of all the circles
+     */
+    private float minX = 0.0f;
+
+    /**
+     * The minimum y coordinate of all the circles
+     */
+    private float minY = 0.0f;
+
+    /**
+     * The number of cells on the x axis
+     */
+    private int numCellsX = 0;
+
+    /**
+     * The number of cells on the y axis
+     */
+    private int numCellsY = 0;
+
+    /**
+     * The index of the first item of each cell on the
+     * items array. The items of the cell i go from
+     * cellsStart[i] to cellsStart[i + 1], exclusive
+     */
+    private int[] cellsStart = new int[1];
+
+    /**
+     * The indexes of the circles, sorted by cell
+     */
+    private int[] items = new int[0];
+
+    /**
+     * The cell of each circle
+     */
+    private int[] itemsCell = new int[0];
+
+    /**
+     * This method builds the grid
+     * @param x the x coordinates of the circles
+     * @param y the y coordinates of the circles
+     * @param size the number of circles
+     * @param cellSize the minimum size of the side of the cells
+     */
+    public void build(float[] x, float[] y, int size, float cellSize) {
+        minX = Float.MAX_VALUE;
+        minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+        for ( int i = 0; i < size; i++ ) {
+            minX = Math.min(minX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxX = Math.max(maxX, x[i]);
+            maxY = Math.max(maxY, y[i]);
+        }
+        if ( size == 0 ) {
+            minX = 0.0f;
+            minY = 0.0f;
+            maxX = 0.0f;
+            maxY = 0.0f;
+        }
+
+        this.cellSize = Math.max(cellSize, 1.0f);
+        numCellsX = (int)((maxX - minX) / this.cellSize) + 1;
+        numCellsY = (int)((maxY - minY) / this.cellSize) + 1;
+        while ( (long)numCellsX * numCellsY > MAX_CELLS ) {
+            this.cellSize *= 2;
+            numCellsX = (int)((maxX - minX) / this.cellSize) + 1;
+            numCellsY = (int)((maxY - minY) / this.cellSize) + 1;
+        }
+
+        int numCells = numCellsX * numCellsY;
+        if ( cellsStart.length < numCells + 1 ) {
+            cellsStart = new int[numCells + 1];
+        }
+        if ( items.length < size ) {
+            items = new int[size];
+            itemsCell = new int[size];
+        }
+
+        for ( int i = 0; i <= numCells; i++ ) {
+            cellsStart[i] = 0;
+        }
+        for ( int i = 0; i < size; i++ ) {
+            int cell = getCellY(y[i]) * numCellsX + getCellX(x[i]);
+            itemsCell[i] = cell;
+            cellsStart[cell + 1]++;
+        }
+        for ( int i = 0; i < numCells; i++ ) {
+            cellsStart[i + 1] += cellsStart[i];
+        }
+        for ( int i = 0; i < size; i++ ) {
+            int cell = itemsCell[i];
+            items[cellsStart[cell]++] = i;
+        }
+        for ( int i = numCells; i > 0; i-- ) {
+            cellsStart[i] = cellsStart[i - 1];
+        }
+        cellsStart[0] = 0;
+    }
+
+    /**
+     * This method returns the column of the cell of a x coordinate
+     * The coordinates out of the grid are clamped to the closest cell
+     * @param x the x coordinate
+     * @return the column of the cell
+     */
+    public int getCellX(float x) {
+        int cellX = (int)((x - minX) / cellSize);
+        return Math.max(0, Math.min(cellX, numCellsX - 1));
+    }
+
+    /**
+     * This method returns the row of the cell of a y coordinate
+     * The coordinates out of the grid are clamped to the closest cell
+     * @param y the y coordinate
+     * @return the row of the cell
+     */
+    public int getCellY(float y) {
+        int cellY = (int)((y - minY) / cellSize);
+        return Math.max(0, Math.min(cellY, numCellsY - 1));
+    }
+
+    /**
+     * This method returns the index of the first item of a cell
+     * @param cellX the column of the cell
+     * @param cellY the row of the cell
+     * @return the index of the first item of the cell
+     */
+    public int getCellStart(int cellX, int cellY) {
+        return cellsStart[cellY * numCellsX + cellX];
+    }
+
+    /**
+     * This method returns the index of the last item of a cell, exclusive
+     * @param cellX the column of the cell
+     * @param cellY the row of the cell
+     * @return the index of the last item of the cell, exclusive
+     */
+    public int getCellEnd(int cellX, int cellY) {
+        return cellsStart[cellY * numCellsX + cellX + 1];
+    }
+
+    /**
+     * This method returns the index of a circle stored on the grid
+     * @param index the index on the items of the grid
+     * @return the index of the circle
+     */
+    public int getItem(int index) {
+        return items[index];
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////
+
+    public float getCellSize() {
+        return cellSize;
+    }
+
+    public int getNumCellsX() {
+        return numCellsX;
+    }
+
+    public int getNumCellsY() {
+        return numCellsY;
+    }
+
+}
@@ -0,0 +1,365 @@
+package circlesimage;
+
+import engine.gfx.Renderer;
+import engine.gfx.images.Image;
+import engine.vectors.points2d.Vec2di;
+
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class represents a population of circles what evolves
+ * without generations, the steady state version of the class
+ * CircleImagePopulation
+ *
+ * Several worker threads run without stopping. Each one picks a
+ * parent, builds a baby with its own factory, scores it and inserts
+ * it on the ranked circles, a concurrent skip list sorted by score.
+ * When there are more circles than the maximum of the population
+ * limits, the worst circle is evicted. There isn't any barrier
+ * between the threads, so none of them waits for the others
+ *
+ * The score of a circle doesn't change once it is inserted, so the
+ * proximity penalty and the collisions between circles, which need
+ * all the circles at the same time, aren't applied. The babies are
+ * only kept inside the edges of the screen, and on the "analytic
+ * color" mode their color is the mean color under them
+ *
+ * The parent is the first circle whose score is greater than a random
+ * score between the worst and the best scores, so the parents are
+ * chosen where the scores are less dense, usually the best circles
+ *
+ * @class SteadyStatePopulation
+ * @author Sergio Martí Torregrosa
+ * @date 23/11/2020
+ */
+public class SteadyStatePopulation {
+
+    /**
+     * The order of the ranked circles, from the worst score to the
+     * best one. The circles with the same score are sorted by id
+     */
+    private static final Comparator<CircleImage> BY_SCORE =
+            Comparator.comparingDouble(CircleImage::getScore).thenComparingInt(CircleImage::getId);
+
+    /**
+     * The living circles, sorted by score
+     */
+    private final ConcurrentSkipListSet<CircleImage> rankedCircles = new ConcurrentSkipListSet<>(BY_SCORE);
+
+    /**
+     * The number of living circles. The size() method of
+     * the skip list goes over all the circles
+     */
+    private final AtomicInteger numCircles = new AtomicInteger();
+
+    /**
+     * The identifier for the next circle
+     */
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    /**
+     * The number of babies inserted since the population was built
+     */
+    private final AtomicLong numBabies = new AtomicLong();
+
+    /**
+     * The number of circles evicted since the population was built
+     */
+    private final AtomicLong numEvicted = new AtomicLong();
+
+    /**
+     * The factory class which builds new circles
+     * Each worker uses a factory split from this one
+     */
+    private CircleImageFactory factory = new CircleImageFactory();
+
+    /**
+     * The maximum and minimum number of circles
+     * X = maximum
+     * Y = minimum, the number of random circles of a new population
+     */
+    private Vec2di circlePopulationLimits = new Vec2di();
+
+    /**
+     * The number of worker threads
+     */
+    private int numWorkers = 1;
+
+    /**
+     * The threads of the workers, or null if they aren't running
+     */
+    private ExecutorService workers = null;
+
+    /**
+     * A flag for stopping the workers
+     */
+    private volatile boolean isRunning = false;
+
+    /**
+     * The background image what the workers use for scoring the babies
+     */
+    private volatile Image background;
+
+    /**
+     * The prefix tables of the background image
+     */
+    private volatile BackgroundPrefixTables prefixTables;
+
+    /**
+     * The width and height of the screen
+     */
+    private int width;
+
+    private int height;
+
+    /**
+     * Constructor
+     */
+    public SteadyStatePopulation() {
+
+    }
+
+    /**
+     * This method builds the population with random circles
+     * The workers must be stopped
+     * @param canvas the dimensions of the canvas
+     * @param background the background image
+     */
+    public void buildPopulation(CanvasDimensions canvas, Image background) {
+        width = canvas.getWidth();
+        height = canvas.getHeight();
+        setBackground(background);
+        rankedCircles.clear();
+        numCircles.set(0);
+        numBabies.set(0);
+        numEvicted.set(0);
+        for ( CircleImage c : factory.buildRandomCircleImageArray(canvas, circlePopulationLimits.getY()) ) {
+            insert(c);
+        }
+    }
+
+    /**
+     * This method sets the background image what the babies are scored with
+     * The babies what are being scored can still use the previous one
+     * @param background the background image
+     */
+    public void setBackground(Image background) {
+        if ( this.background != background ) {
+            prefixTables = new BackgroundPrefixTables(background);
+            this.background = background;
+        }
+    }
+
+    /**
+     * This method keeps a circle inside the edges of the screen
+     * @param c the circle
+     */
+    private void updateCircleEdgeCollision(CircleImage c) {
+        float size = c.getSize();
+        c.getPosition().setX(Math.max(size, Math.min(c.getPosition().getX(), width - size)));
+        c.getPosition().setY(Math.max(size, Math.min(c.getPosition().getY(), height - size)));
+    }
+
+    /**
+     * This method scores a circle and inserts it on the
+     * ranked circles. If there are more circles than the
+     * maximum, the worst circles are evicted
+     * @param c the circle
+     */
+    private void insert(CircleImage c) {
+        updateCircleEdgeCollision(c);
+        BackgroundPrefixTables tables = prefixTables;
+        if ( factory.isUsingAnalyticColor() ) {
+            tables.calculateMeanColor(
+                    (int)c.getPosition().getX(),
+                    (int)c.getPosition().getY(),
+                    (int)c.getSize(),
+                    c.getColor()
+            );
+        }
+        c.calculateScore(tables);
+        c.setId(nextId.getAndIncrement());
+        rankedCircles.add(c);
+        int maxCircles = Math.max(circlePopulationLimits.getX(), 1);
+        if ( numCircles.incrementAndGet() > maxCircles && rankedCircles.pollFirst() != null ) {
+            numCircles.decrementAndGet();
+            numEvicted.incrementAndGet();
+        }
+    }
+
+    /**
+     * This method picks a parent for a new baby
+     * @param factory the factory of the worker
+     * @param probe the circle of the worker what is used for
+     *              searching a score on the ranked circles
+     * @return the parent, or null if there aren't circles
+     */
+    private CircleImage pickParent(CircleImageFactory factory, CircleImage probe) {
+        try {
+            double worst = rankedCircles.first().getScore();
+            double best = rankedCircles.last().getScore();
+            probe.setScore(worst + factory.getRandom().nextDouble() * (best - worst));
+            CircleImage parent = rankedCircles.ceiling(probe);
+            return parent != null ? parent : rankedCircles.last();
+        } catch ( NoSuchElementException e ) {
+            return null;
+        }
+    }
+
+    /**
+     * This method is the loop of a worker, it builds babies
+     * until the workers are stopped
+     * @param factory the factory of the worker
+     */
+    private void runWorker(CircleImageFactory factory) {
+        CircleImage probe = new CircleImage(-1, null, 0, null);
+        while ( isRunning ) {
+            CircleImage parent = pickParent(factory, probe);
+            if ( parent == null ) {
+                Thread.yield();
+                continue;
+            }
+            insert(factory.buildBaby(parent));
+            numBabies.incrementAndGet();
+        }
+    }
+
+    /**
+     * This method starts the worker threads
+     */
+    public void start() {
+        if ( isRunning ) {
+            return;
+        }
+        isRunning = true;
+        workers = Executors.newFixedThreadPool(numWorkers, runnable -> {
+            Thread thread = new Thread(runnable, "steady-state-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for ( int i = 0; i < numWorkers; i++ ) {
+            CircleImageFactory workerFactory = factory.split();
+            workers.execute(() -> runWorker(workerFactory));
+        }
+    }
+
+    /**
+     * This method stops the worker threads and waits for them
+     * If they don't finish in time, or the waiting thread is
+     * interrupted, the workers are interrupted and an exception is
+     * thrown, because the circles could still be modified
+     */
+    public void stop() {
+        if ( !isRunning ) {
+            return;
+        }
+        isRunning = false;
+        workers.shutdown();
+        boolean isTerminated;
+        try {
+            isTerminated = workers.awaitTermination(1, TimeUnit.MINUTES);
+        } catch ( InterruptedException e ) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while stopping the steady state workers", e);
+        }
+        if ( !isTerminated ) {
+            workers.shutdownNow();
+            throw new IllegalStateException("The steady state workers didn't stop in one minute");
+        }
+        workers = null;
+    }
+
+    /**
+     * This method draws the circles on a canvas. The workers can be
+     * running, so the circles drawn are the ones what are on the
+     * ranked circles while they are visited
+     * @param canvas the canvas where the circles are drawn
+     */
+    public void drawCircles(CircleCanvas canvas) {
+        for ( CircleImage c : rankedCircles ) {
+            c.drawYourSelf(canvas);
+        }
+    }
+
+    /**
+     * This method draws the border and the score of the circles,
+     * over the circles drawn on a canvas
+     * @param r the renderer object with all drawing methods
+     * @param isDrawingBorder if the method has to draw the border of the circles
+     * @param isDrawingScore if the method has to draw the score of the circles
+     */
+    public void drawCirclesInfo(Renderer r, boolean isDrawingBorder, boolean isDrawingScore) {
+        for ( CircleImage c : rankedCircles ) {
+            c.drawYourInfo(r, isDrawingBorder, isDrawingScore);
+        }
+    }
+
+    /**
+     * This method marks as dirty, on the fitness tracker,
+     * the regions of all the circles
+     * The circles are drawn in the order of their scores, which
+     * changes with each baby, so any circle can be drawn over
+     * other one what hasn't changed, and all of them are marked
+     * @param tracker the fitness tracker of the buffer where the circles are drawn
+     */
+    public void markDrawnRegions(ImageFitnessTracker tracker) {
+        for ( CircleImage c : rankedCircles ) {
+            tracker.markCircleDirty(c.getPosition().getX(), c.getPosition().getY(), c.getSize());
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////
+
+    public ConcurrentSkipListSet<CircleImage> getRankedCircles() {
+        return rankedCircles;
+    }
+
+    public int getNumCircles() {
+        return numCircles.get();
+    }
+
+    public long getNumBabies() {
+        return numBabies.get();
+    }
+
+    public long getNumEvicted() {
+        return numEvicted.get();
+    }
+
+    public CircleImageFactory getFactory() {
+        return factory;
+    }
+
+    public Vec2di getCirclePopulationLimits() {
+        return circlePopulationLimits;
+    }
+
+    public int getNumWorkers() {
+        return numWorkers;
+    }
+
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    public void setFactory(CircleImageFactory factory) {
+        this.factory = factory;
+    }
+
+    public void setCirclePopulationLimits(Vec2di circlePopulationLimits) {
+        this.circlePopulationLimits = circlePopulationLimits;
+    }
+
+    public void setNumWorkers(int numWorkers) {
+        this.numWorkers = Math.max(numWorkers, 1);
+    }
+
+}
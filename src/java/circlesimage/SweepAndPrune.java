@@ -0,0 +1,211 @@
+package circlesimage;
+
+/**
+ * This class is the broad phase of the collisions between circles,
+ * with the sweep and prune method on the x axis
+ *
+ * The circles are sorted by the left edge of their bounding box.
+ * Going over the sorted circles, a circle can only overlap with the
+ * next circles whose left edge is before its right edge, so the
+ * sweep stops at the first circle which starts after it. This works
+ * with any mix of sizes, because each circle uses its own edges
+ *
+ * The keys are sorted with an in place quicksort over primitive
+ * longs, so it doesn't allocate memory once the array is big enough
+ * The ranges what are left to sort are kept on a stack instead of
+ * on recursive calls, so the sort can be split in steps, what
+ * partition a maximum number of keys each one
+ *
+ * @class SweepAndPrune
+ * @author Sergio Martí Torregrosa
+ * @date 18/11/2020
+ */
+public class SweepAndPrune {
+
+    /**
+     * The ranges shorter than this are sorted with the insertion sort
+     */
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    /**
+     * The sorted keys. The high 32 bits are the left edge of the
+     * circle, turned into an integer with the same order, and the low
+     * 32 bits are the index of the circle
+     */
+    private long[] keys = new long[0];
+
+    /**
+     * The number of sorted circles
+     */
+    private int size = 0;
+
+    /**
+     * The stack of the ranges of keys what are left to sort, as
+     * pairs of the first and the last index, both inclusive
+     */
+    private int[] ranges = new int[64];
+
+    /**
+     * The number of ints on the stack of ranges
+     */
+    private int numRanges = 0;
+
+    /**
+     * This method turns a float into an integer
+     * which has the same order than the floats
+     * @param value the float value
+     * @return the integer with the same order
+     */
+    private static int toSortableInt(float value) {
+        int bits = Float.floatToIntBits(value);
+        return bits ^ ((bits >> 31) & 0x7fffffff);
+    }
+
+    /**
+     * This method sorts the circles by their left edges
+     * @param leftEdges the left edge of each circle
+     * @param size the number of circles
+     */
+    public void sort(float[] leftEdges, int size) {
+        beginSort(leftEdges, size);
+        sortStep(Integer.MAX_VALUE);
+    }
+
+    /**
+     * This method builds the keys of the circles, the first step
+     * of the sort, what is finished with sortStep(maxKeys)
+     * @param leftEdges the left edge of each circle
+     * @param size the number of circles
+     */
+    public void beginSort(float[] leftEdges, int size) {
+        if ( keys.length < size ) {
+            keys = new long[Math.max(size, 2 * keys.length)];
+        }
+        this.size = size;
+        for ( int i = 0; i < size; i++ ) {
+            keys[i] = ((long)toSortableInt(leftEdges[i]) << 32) | (i & 0xffffffffL);
+        }
+        numRanges = 0;
+        pushRange(0, size - 1);
+    }
+
+    /**
+     * This method sorts the ranges of the stack until a number
+     * of keys has been partitioned. A range is always finished
+     * once it has been started, so a step can go over the maximum
+     * @param maxKeys the maximum number of keys to partition
+     * @return if all the keys are sorted
+     */
+    public boolean sortStep(int maxKeys) {
+        long numKeys = 0;
+        while ( numRanges > 0 && numKeys < maxKeys ) {
+            int high = ranges[--numRanges];
+            int low = ranges[--numRanges];
+            numKeys += high - low + 1;
+            sortRange(low, high);
+        }
+        return numRanges == 0;
+    }
+
+    /**
+     * This method pushes a range of keys on the stack
+     * @param low the first index, inclusive
+     * @param high the last index, inclusive
+     */
+    private void pushRange(int low, int high) {
+        if ( high <= low ) {
+            return;
+        }
+        if ( numRanges + 2 > ranges.length ) {
+            int[] newRanges = new int[2 * ranges.length];
+            System.arraycopy(ranges, 0, newRanges, 0, numRanges);
+            ranges = newRanges;
+        }
+        ranges[numRanges++] = low;
+        ranges[numRanges++] = high;
+    }
+
+    /**
+     * This method partitions a range of keys with the quicksort, and
+     * pushes its two parts on the stack, the smaller one at the top,
+     * so the stack has at most log2(n) ranges. The short ranges are
+     * sorted with the insertion sort
+     * @param low the first index, inclusive
+     * @param high the last index, inclusive
+     */
+    private void sortRange(int low, int high) {
+        long[] a = keys;
+        if ( high - low > INSERTION_SORT_THRESHOLD ) {
+            int middle = (low + high) >>> 1;
+            if ( a[middle] < a[low] ) {
+                swap(a, middle, low);
+            }
+            if ( a[high] < a[low] ) {
+                swap(a, high, low);
+            }
+            if ( a[high] < a[middle] ) {
+                swap(a, high, middle);
+            }
+            long pivot = a[middle];
+            int i = low;
+            int j = high;
+            while ( i <= j ) {
+                while ( a[i] < pivot ) {
+                    i++;
+                }
+                while ( a[j] > pivot ) {
+                    j--;
+                }
+                if ( i <= j ) {
+                    swap(a, i++, j--);
+                }
+            }
+            if ( j - low < high - i ) {
+                pushRange(i, high);
+                pushRange(low, j);
+            } else {
+                pushRange(low, j);
+                pushRange(i, high);
+            }
+            return;
+        }
+        for ( int i = low + 1; i <= high; i++ ) {
+            long key = a[i];
+            int j = i - 1;
+            while ( j >= low && a[j] > key ) {
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = key;
+        }
+    }
+
+    /**
+     * This method swaps two keys
+     * @param a the keys
+     * @param i the index of the first key
+     * @param j the index of the second key
+     */
+    private static void swap(long[] a, int i, int j) {
+        long temp = a[i];
+        a[i] = a[j];
+        a[j] = temp;
+    }
+
+    /**
+     * This method returns the index of the circle
+     * which is on a position of the sorted order
+     * @param index the position on the sorted order
+     * @return the index of the circle
+     */
+    public int getItem(int index) {
+        return (int)keys[index];
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////
+
+    public int getSize() {
+        return size;
+    }
+
+}
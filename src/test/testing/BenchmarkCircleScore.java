@@ -0,0 +1,87 @@
+package testing;
+
+import circlesimage.BackgroundPrefixTables;
+import circlesimage.CircleColor;
+import circlesimage.CircleImage;
+import engine.gfx.images.Image;
+import engine.vectors.points2d.Vec2df;
+
+/**
+ * This class compares the time needed for score a circle
+ * visiting each pixel of the background image, with the time
+ * needed for score it with the prefix tables of the background
+ *
+ * @class BenchmarkCircleScore
+ * @author Sergio Martí Torregrosa
+ * @date 14/11/2020
+ */
+public class BenchmarkCircleScore {
+
+    private static final int[] RADII = {4, 32, 128};
+
+    private static final int WARM_UP_ITERATIONS = 20000;
+
+    private static final int ITERATIONS = 20000;
+
+    private static final double TOLERANCE = 1e-9;
+
+    private static double scoreWithImage(CircleImage circle, Image image, int iterations) {
+        double sink = 0.0;
+        for ( int i = 0; i < iterations; i++ ) {
+            circle.setScore(0);
+            circle.calculateScore(image);
+            sink += circle.getScore();
+        }
+        return sink;
+    }
+
+    private static double scoreWithTables(CircleImage circle, BackgroundPrefixTables tables, int iterations) {
+        double sink = 0.0;
+        for ( int i = 0; i < iterations; i++ ) {
+            circle.setScore(0);
+            circle.calculateScore(tables);
+            sink += circle.getScore();
+        }
+        return sink;
+    }
+
+    public static void main(String[] args) {
+        Image image = new Image("/dynastes_hercules.jpg");
+        BackgroundPrefixTables tables = new BackgroundPrefixTables(image);
+
+        for ( int radius : RADII ) {
+            CircleImage circle = new CircleImage(
+                    0,
+                    new Vec2df(image.getW() / 2.0f, image.getH() / 2.0f),
+                    radius,
+                    new CircleColor(120, 80, 40)
+            );
+
+            double expected = scoreWithImage(circle, image, 1);
+            double actual = scoreWithTables(circle, tables, 1);
+            if ( Math.abs(expected - actual) > TOLERANCE ) {
+                throw new AssertionError("Radius " + radius + ": score " + actual + " differs from " + expected);
+            }
+
+            scoreWithImage(circle, image, WARM_UP_ITERATIONS);
+            scoreWithTables(circle, tables, WARM_UP_ITERATIONS);
+
+            long start = System.nanoTime();
+            double sinkImage = scoreWithImage(circle, image, ITERATIONS);
+            long timeImage = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            double sinkTables = scoreWithTables(circle, tables, ITERATIONS);
+            long timeTables = System.nanoTime() - start;
+
+            System.out.printf("Radius %3d | scanline: %10.1f ns/op | prefix tables: %8.1f ns/op | speed up: %6.1fx (%f, %f)%n",
+                    radius,
+                    timeImage / (double) ITERATIONS,
+                    timeTables / (double) ITERATIONS,
+                    timeImage / (double) timeTables,
+                    sinkImage, sinkTables
+            );
+        }
+    }
+
+}
@@ -0,0 +1,129 @@
+package testing;
+
+import circlesimage.CanvasDimensions;
+import circlesimage.CircleColor;
+import circlesimage.CircleImage;
+import circlesimage.CircleImagePopulation;
+import engine.vectors.points2d.Vec2df;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * This class compares the collisions solved checking all the pairs
+ * of circles with the collisions solved with the sweep and prune
+ * method, from 1000 to 20000 circles
+ *
+ * Both ways move the circles while the rest of collisions are
+ * solved, so after them there are still some overlaps. The brute
+ * force visits each pair twice, once from each circle, and the sweep
+ * and prune only once, so it leaves some more overlaps. The overlaps
+ * what remain after the sweep and prune can't be more than the ones
+ * what remain after the brute force plus a part of the overlaps
+ * what there were before the collisions
+ *
+ * @class BenchmarkCollisions
+ * @author Sergio Martí Torregrosa
+ * @date 29/11/2020
+ */
+public class BenchmarkCollisions {
+
+    private static final int[] POPULATION_SIZES = {1000, 2000, 5000, 10000, 20000};
+
+    private static final int WIDTH = 1920;
+
+    private static final int HEIGHT = 1080;
+
+    private static final int MAX_CIRCLE_SIZE = 8;
+
+    /**
+     * The depth, in pixels, from which two circles overlap,
+     * so the circles what only touch aren't counted
+     */
+    private static final float OVERLAP_DEPTH = 0.01f;
+
+    /**
+     * The part of the initial overlaps what the sweep and prune
+     * can leave over the ones what the brute force leaves
+     */
+    private static final double MAX_EXTRA_OVERLAPS = 0.2;
+
+    private static ArrayList<CircleImage> buildCircles(Random random, int size) {
+        ArrayList<CircleImage> circles = new ArrayList<>();
+        for ( int i = 0; i < size; i++ ) {
+            circles.add(new CircleImage(
+                    i,
+                    new Vec2df(random.nextInt(WIDTH), random.nextInt(HEIGHT)),
+                    1 + random.nextInt(MAX_CIRCLE_SIZE),
+                    new CircleColor(random.nextInt(256), random.nextInt(256), random.nextInt(256))
+            ));
+        }
+        return circles;
+    }
+
+    private static ArrayList<CircleImage> copyCircles(ArrayList<CircleImage> circles) {
+        ArrayList<CircleImage> copies = new ArrayList<>();
+        for ( CircleImage c : circles ) {
+            copies.add(new CircleImage(
+                    c.getId(),
+                    new Vec2df(c.getPosition().getX(), c.getPosition().getY()),
+                    c.getSize(),
+                    new CircleColor(c.getColor())
+            ));
+        }
+        return copies;
+    }
+
+    private static int countOverlaps(ArrayList<CircleImage> circles) {
+        int overlaps = 0;
+        for ( int i = 0; i < circles.size(); i++ ) {
+            CircleImage c = circles.get(i);
+            for ( int j = i + 1; j < circles.size(); j++ ) {
+                CircleImage t = circles.get(j);
+                float dx = c.getPosition().getX() - t.getPosition().getX();
+                float dy = c.getPosition().getY() - t.getPosition().getY();
+                float minDistance = c.getSize() + t.getSize() - OVERLAP_DEPTH;
+                if ( dx * dx + dy * dy < minDistance * minDistance ) {
+                    overlaps++;
+                }
+            }
+        }
+        return overlaps;
+    }
+
+    private static long solveCollisions(CircleImagePopulation population, ArrayList<CircleImage> circles,
+                                        CanvasDimensions canvas, boolean isUsingSweepAndPrune) {
+        population.setCircles(circles);
+        population.setUsingSweepAndPrune(isUsingSweepAndPrune);
+        long start = System.nanoTime();
+        population.updateCollisions(canvas);
+        return System.nanoTime() - start;
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(1234);
+        CanvasDimensions canvas = new CanvasDimensions(WIDTH, HEIGHT);
+        CircleImagePopulation population = new CircleImagePopulation();
+
+        for ( int size : POPULATION_SIZES ) {
+            ArrayList<CircleImage> circles = buildCircles(random, size);
+            int initialOverlaps = countOverlaps(circles);
+
+            ArrayList<CircleImage> bruteForceCircles = copyCircles(circles);
+            long bruteForceTime = solveCollisions(population, bruteForceCircles, canvas, false);
+            int bruteForceOverlaps = countOverlaps(bruteForceCircles);
+
+            ArrayList<CircleImage> sweepCircles = copyCircles(circles);
+            long sweepTime = solveCollisions(population, sweepCircles, canvas, true);
+            int sweepOverlaps = countOverlaps(sweepCircles);
+
+            System.out.printf("Circles %6d | overlaps %6d | brute force: %6d left, %10.3f ms | sweep and prune: %6d left, %8.3f ms%n",
+                    size, initialOverlaps, bruteForceOverlaps, bruteForceTime / 1e6, sweepOverlaps, sweepTime / 1e6);
+            if ( sweepOverlaps - bruteForceOverlaps > initialOverlaps * MAX_EXTRA_OVERLAPS ) {
+                throw new AssertionError("The sweep and prune leaves " + sweepOverlaps
+                        + " overlaps, the brute force " + bruteForceOverlaps);
+            }
+        }
+    }
+
+}
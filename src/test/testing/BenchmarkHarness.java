@@ -0,0 +1,192 @@
+package testing;
+
+import java.util.Locale;
+
+/**
+ * This class measures the time of an operation the same way as
+ * JMH does, without needing it on the classpath
+ *
+ * Each benchmark has warm up iterations, which are not measured,
+ * and measured iterations. Each iteration calls the operation
+ * again and again for a fixed time, after calling the setup of the
+ * iteration, which is not measured. A benchmark can also have a
+ * setup of each call, like the invocation level of JMH, for
+ * operations what change their own input. Then each call is timed
+ * alone and the setups are left out of the time. The results of the operations
+ * are summed on a volatile field, so the JIT compiler can't remove
+ * the operations as dead code. The result is the mean time of an
+ * operation with the error of the 99.9% confidence interval
+ *
+ * The times can be changed with the system properties
+ * benchmark.warmups, benchmark.iterations and benchmark.time
+ * (milliseconds by iteration)
+ *
+ * @class BenchmarkHarness
+ * @author Sergio Martí Torregrosa
+ * @date 28/11/2020
+ */
+public class BenchmarkHarness {
+
+    /**
+     * An operation what is measured. It returns a value
+     * what depends on its work, so it isn't dead code
+     */
+    public interface Operation {
+        double run();
+    }
+
+    /**
+     * The quantile of the normal distribution
+     * for the 99.9% confidence interval
+     */
+    private static final double Z_999 = 3.291;
+
+    private final int numWarmUps = Integer.getInteger("benchmark.warmups", 3);
+
+    private final int numIterations = Integer.getInteger("benchmark.iterations", 5);
+
+    private final long iterationTime = Long.getLong("benchmark.time", 500L) * 1000000L;
+
+    /**
+     * The filter of the names of the benchmarks, or null for all of them
+     */
+    private final String filter;
+
+    /**
+     * The sum of the results of the operations
+     */
+    private volatile double sink = 0;
+
+    /**
+     * Constructor
+     * @param filter the text what the names of the benchmarks
+     *               have to contain, or null for all of them
+     */
+    public BenchmarkHarness(String filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * This method says if a benchmark is run with the filter
+     * @param name the name of the benchmark
+     * @return if the benchmark is run
+     */
+    public boolean isSelected(String name) {
+        return filter == null || name.contains(filter);
+    }
+
+    /**
+     * This method runs an iteration of a benchmark
+     * @param setup the setup of the iteration, or null
+     * @param callSetup the setup of each call of the operation, or null
+     * @param operation the operation
+     * @return the mean time of the operations of the iteration, in nanoseconds
+     */
+    private double runIteration(Runnable setup, Runnable callSetup, Operation operation) {
+        if ( setup != null ) {
+            setup.run();
+        }
+        if ( callSetup != null ) {
+            return runTimedCalls(callSetup, operation);
+        }
+        double result = 0;
+        long operations = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            result += operation.run();
+            operations++;
+            elapsed = System.nanoTime() - start;
+        } while ( elapsed < iterationTime );
+        sink += result;
+        return (double)elapsed / operations;
+    }
+
+    /**
+     * This method runs an iteration where each call of the operation
+     * has a setup, and only the time of the calls is measured
+     * @param callSetup the setup of each call of the operation
+     * @param operation the operation
+     * @return the mean time of the operations of the iteration, in nanoseconds
+     */
+    private double runTimedCalls(Runnable callSetup, Operation operation) {
+        double result = 0;
+        long operations = 0;
+        long measured = 0;
+        long start = System.nanoTime();
+        do {
+            callSetup.run();
+            long callStart = System.nanoTime();
+            result += operation.run();
+            measured += System.nanoTime() - callStart;
+            operations++;
+        } while ( System.nanoTime() - start < iterationTime );
+        sink += result;
+        return (double)measured / operations;
+    }
+
+    /**
+     * This method measures an operation and prints the result
+     * @param name the name of the benchmark
+     * @param opsByCall the number of operations done on each call of the
+     *                  operation, for dividing the time of a call
+     * @param setup the setup of each iteration, or null
+     * @param callSetup the setup of each call of the operation, what
+     *                  isn't measured, or null
+     * @param operation the operation
+     * @return the mean time of an operation, in nanoseconds, or
+     * NaN if the benchmark isn't selected
+     */
+    public double measure(String name, int opsByCall, Runnable setup, Runnable callSetup, Operation operation) {
+        if ( !isSelected(name) ) {
+            return Double.NaN;
+        }
+        for ( int i = 0; i < numWarmUps; i++ ) {
+            runIteration(setup, callSetup, operation);
+        }
+        double[] times = new double[numIterations];
+        double sum = 0;
+        for ( int i = 0; i < numIterations; i++ ) {
+            times[i] = runIteration(setup, callSetup, operation) / opsByCall;
+            sum += times[i];
+        }
+        double mean = sum / numIterations;
+        double variance = 0;
+        for ( double time : times ) {
+            variance += (time - mean) * (time - mean);
+        }
+        double error = numIterations > 1 ? Z_999 * Math.sqrt(variance / (numIterations - 1) / numIterations) : Double.NaN;
+        System.out.println(String.format(Locale.ROOT, "%-60s %14.1f +- %10.1f ns/op", name, mean, error));
+        return mean;
+    }
+
+    /**
+     * This method measures an operation without setup of each call
+     * and prints the result
+     * @param name the name of the benchmark
+     * @param opsByCall the number of operations done on each call of the
+     *                  operation, for dividing the time of a call
+     * @param setup the setup of each iteration, or null
+     * @param operation the operation
+     * @return the mean time of an operation, in nanoseconds, or
+     * NaN if the benchmark isn't selected
+     */
+    public double measure(String name, int opsByCall, Runnable setup, Operation operation) {
+        return measure(name, opsByCall, setup, null, operation);
+    }
+
+    /**
+     * This method measures an operation without setup and prints the result
+     * @param name the name of the benchmark
+     * @param operation the operation
+     * @return the mean time of an operation, in nanoseconds
+     */
+    public double measure(String name, Operation operation) {
+        return measure(name, 1, null, operation);
+    }
+
+    public double getSink() {
+        return sink;
+    }
+
+}
@@ -0,0 +1,106 @@
+package testing;
+
+import circlesimage.CircleColor;
+import circlesimage.CircleImage;
+import circlesimage.CircleImagePopulation;
+import engine.vectors.points2d.Vec2df;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * This class compares the penalty for proximity calculated
+ * checking all the pairs of circles with the penalty calculated
+ * with the spatial grid, from 1000 to 100000 circles
+ *
+ * The scores of both ways have to be exactly the same
+ * The brute force way is only measured up to 20000 circles,
+ * because with more circles it takes too much time
+ *
+ * @class BenchmarkProximityPenalty
+ * @author Sergio Martí Torregrosa
+ * @date 17/11/2020
+ */
+public class BenchmarkProximityPenalty {
+
+    private static final int[] POPULATION_SIZES = {1000, 2000, 5000, 10000, 20000, 50000, 100000};
+
+    private static final int MAX_BRUTE_FORCE_SIZE = 20000;
+
+    private static final int WIDTH = 1920;
+
+    private static final int HEIGHT = 1080;
+
+    private static final int MAX_CIRCLE_SIZE = 4;
+
+    private static ArrayList<CircleImage> buildCircles(Random random, int size) {
+        ArrayList<CircleImage> circles = new ArrayList<>();
+        for ( int i = 0; i < size; i++ ) {
+            CircleImage c = new CircleImage(
+                    i,
+                    new Vec2df(random.nextInt(WIDTH), random.nextInt(HEIGHT)),
+                    1 + random.nextInt(MAX_CIRCLE_SIZE),
+                    new CircleColor(random.nextInt(256), random.nextInt(256), random.nextInt(256))
+            );
+            c.setScore(random.nextDouble());
+            circles.add(c);
+        }
+        return circles;
+    }
+
+    private static double[] applyPenalty(CircleImagePopulation population, double[] scores, boolean isUsingGrid) {
+        ArrayList<CircleImage> circles = population.getCircles();
+        for ( int i = 0; i < circles.size(); i++ ) {
+            circles.get(i).setScore(scores[i]);
+        }
+        population.setUsingSpatialGrid(isUsingGrid);
+        population.applyProximityPenalty();
+        double[] penalized = new double[circles.size()];
+        for ( int i = 0; i < circles.size(); i++ ) {
+            penalized[i] = circles.get(i).getScore();
+        }
+        return penalized;
+    }
+
+    private static long timePenalty(CircleImagePopulation population, double[] scores, boolean isUsingGrid, int iterations) {
+        long start = System.nanoTime();
+        for ( int i = 0; i < iterations; i++ ) {
+            applyPenalty(population, scores, isUsingGrid);
+        }
+        return (System.nanoTime() - start) / iterations;
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(1234);
+        CircleImagePopulation population = new CircleImagePopulation();
+        population.setPenaltyProximity(0.001);
+
+        for ( int size : POPULATION_SIZES ) {
+            population.setCircles(buildCircles(random, size));
+            double[] scores = new double[size];
+            for ( int i = 0; i < size; i++ ) {
+                scores[i] = population.getCircles().get(i).getScore();
+            }
+
+            double[] withGrid = applyPenalty(population, scores, true);
+            timePenalty(population, scores, true, 10);
+            long gridTime = timePenalty(population, scores, true, 10);
+
+            String bruteForceText = "skipped";
+            if ( size <= MAX_BRUTE_FORCE_SIZE ) {
+                double[] bruteForce = applyPenalty(population, scores, false);
+                for ( int i = 0; i < size; i++ ) {
+                    if ( bruteForce[i] != withGrid[i] ) {
+                        throw new AssertionError("Circle " + i + ": score " + withGrid[i] + " differs from " + bruteForce[i]);
+                    }
+                }
+                long bruteForceTime = timePenalty(population, scores, false, 1);
+                bruteForceText = String.format("%10.3f ms", bruteForceTime / 1e6);
+            }
+
+            System.out.printf("Circles %6d | brute force: %s | spatial grid: %8.3f ms%n",
+                    size, bruteForceText, gridTime / 1e6);
+        }
+    }
+
+}
@@ -0,0 +1,170 @@
+package testing;
+
+import circlesimage.BackgroundPrefixTables;
+import circlesimage.BuffersFitnessCalculator;
+import circlesimage.CanvasDimensions;
+import circlesimage.CircleColor;
+import circlesimage.CircleImage;
+import circlesimage.CircleImagePopulation;
+import engine.gfx.images.Image;
+import engine.vectors.points2d.Vec2df;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+/**
+ * This class runs the benchmarks of the hot paths of the program,
+ * with fixed seeds and the images of the resources as inputs, so
+ * two runs on the same machine can be compared objectively
+ *
+ * - CircleColor.getSimilarity
+ * - CircleImage.calculateScore, with the image and with the prefix tables, across radii
+ * - BuffersFitnessCalculator.calculateImageFitness, and its kernels, across canvas sizes
+ * - CircleImagePopulation.updateCollisions and calculateCirclesScore across population sizes
+ * - A full generation, CircleImagePopulation.update, across population sizes
+ *
+ * The first argument, if there is one, is a text what the names
+ * of the benchmarks have to contain, for running only some of them
+ *
+ * @class BenchmarkSuite
+ * @author Sergio Martí Torregrosa
+ * @date 28/11/2020
+ */
+public class BenchmarkSuite {
+
+    private static final long SEED = 20201128L;
+
+    private static final int NUM_COLORS = 1024;
+
+    private static final int[] RADII = {2, 4, 16, 64};
+
+    private static final int[][] CANVAS_SIZES = {{270, 180}, {540, 360}, {1080, 720}, {1920, 1080}};
+
+    private static final int[] POPULATION_SIZES = {500, 2000, 8000};
+
+    private static final int WARM_UP_GENERATIONS = 50;
+
+    private static void benchmarkColorSimilarity(BenchmarkHarness harness) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        CircleColor[] first = new CircleColor[NUM_COLORS];
+        CircleColor[] second = new CircleColor[NUM_COLORS];
+        for ( int i = 0; i < NUM_COLORS; i++ ) {
+            first[i] = new CircleColor(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+            second[i] = new CircleColor(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+        }
+        harness.measure("CircleColor.getSimilarity", NUM_COLORS, null, () -> {
+            double sum = 0;
+            for ( int i = 0; i < NUM_COLORS; i++ ) {
+                sum += first[i].getSimilarity(second[i]);
+            }
+            return sum;
+        });
+    }
+
+    private static void benchmarkCircleScore(BenchmarkHarness harness, Image background) {
+        BackgroundPrefixTables tables = new BackgroundPrefixTables(background);
+        for ( int radius : RADII ) {
+            CircleImage circle = new CircleImage(
+                    0,
+                    new Vec2df(background.getW() / 2.0f, background.getH() / 2.0f),
+                    radius,
+                    new CircleColor(120, 80, 40)
+            );
+            harness.measure("CircleImage.calculateScore(image) radius=" + radius, () -> {
+                circle.calculateScore(background);
+                return circle.getScore();
+            });
+            harness.measure("CircleImage.calculateScore(tables) radius=" + radius, () -> {
+                circle.calculateScore(tables);
+                return circle.getScore();
+            });
+        }
+    }
+
+    private static int[] resample(Image image, int width, int height) {
+        int[] pixels = new int[width * height];
+        for ( int y = 0; y < height; y++ ) {
+            int row = (y * image.getH() / height) * image.getW();
+            for ( int x = 0; x < width; x++ ) {
+                pixels[y * width + x] = image.getP()[row + x * image.getW() / width];
+            }
+        }
+        return pixels;
+    }
+
+    private static void benchmarkImageFitness(BenchmarkHarness harness, Image background, Image drawn) {
+        for ( int[] size : CANVAS_SIZES ) {
+            int[] back = resample(background, size[0], size[1]);
+            int[] front = resample(drawn, size[0], size[1]);
+            String canvas = " " + size[0] + "x" + size[1];
+            harness.measure("BuffersFitnessCalculator.calculateImageFitness" + canvas,
+                    () -> BuffersFitnessCalculator.calculateImageFitness(back, front));
+            harness.measure("BuffersFitnessCalculator.calculateImageFitnessPacked" + canvas,
+                    () -> BuffersFitnessCalculator.calculateImageFitnessPacked(back, front));
+            harness.measure("BuffersFitnessCalculator.calculateImageFitnessLanes" + canvas,
+                    () -> BuffersFitnessCalculator.calculateImageFitnessLanes(back, front));
+            harness.measure("BuffersFitnessCalculator.calculateImageFitnessParallel" + canvas,
+                    () -> BuffersFitnessCalculator.calculateImageFitnessParallel(back, front, size[0]));
+        }
+    }
+
+    private static CircleImagePopulation buildPopulation(CanvasDimensions canvas, int size) {
+        CircleImagePopulation population = PopulationFixture.newPopulation(SEED);
+        population.getCirclePopulationLimits().setX(size);
+        population.getCirclePopulationLimits().setY(size);
+        population.buildPopulation(canvas);
+        return population;
+    }
+
+    private static void benchmarkPopulation(BenchmarkHarness harness, Image background) {
+        CanvasDimensions canvas = PopulationFixture.getDimensions(background);
+        for ( int size : POPULATION_SIZES ) {
+            CircleImagePopulation population = buildPopulation(canvas, size);
+            ArrayList<CircleImage> circles = population.getCircles();
+            float[] positions = new float[2 * size];
+            for ( int i = 0; i < size; i++ ) {
+                positions[2 * i] = circles.get(i).getPosition().getX();
+                positions[2 * i + 1] = circles.get(i).getPosition().getY();
+            }
+            // The collisions move the circles, so the positions are restored
+            // before each call and every call solves the same overlaps
+            Runnable restorePositions = () -> {
+                for ( int i = 0; i < size; i++ ) {
+                    circles.get(i).getPosition().setX(positions[2 * i]);
+                    circles.get(i).getPosition().setY(positions[2 * i + 1]);
+                }
+            };
+            harness.measure("CircleImagePopulation.updateCollisions circles=" + size, 1, null, restorePositions, () -> {
+                population.updateCollisions(canvas);
+                return circles.get(0).getPosition().getX();
+            });
+            harness.measure("CircleImagePopulation.calculateCirclesScore circles=" + size, () -> {
+                population.calculateCirclesScore(background);
+                return circles.get(0).getScore();
+            });
+
+            CircleImagePopulation evolving = buildPopulation(canvas, size);
+            evolving.getCirclePopulationLimits().setY(20);
+            for ( int i = 0; i < WARM_UP_GENERATIONS; i++ ) {
+                evolving.update(canvas, 0.0f, background);
+            }
+            harness.measure("CircleImagePopulation.update circles=" + size, () -> {
+                evolving.update(canvas, 0.0f, background);
+                return evolving.getCircles().size();
+            });
+        }
+    }
+
+    public static void main(String[] args) {
+        BenchmarkHarness harness = new BenchmarkHarness(args.length > 0 ? args[0] : null);
+        Image background = PopulationFixture.loadBackground();
+        Image drawn = new Image("/roses.jpg");
+
+        benchmarkColorSimilarity(harness);
+        benchmarkCircleScore(harness, background);
+        benchmarkImageFitness(harness, background, drawn);
+        benchmarkPopulation(harness, background);
+        System.out.println("Sink: " + harness.getSink());
+    }
+
+}
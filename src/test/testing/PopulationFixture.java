@@ -0,0 +1,98 @@
+package testing;
+
+import circlesimage.CanvasDimensions;
+import circlesimage.CircleImagePopulation;
+import engine.gfx.images.Image;
+
+/**
+ * This class builds the population and the background image what
+ * the tests and the benchmarks share, so all of them run with the
+ * same parameters:
+ *
+ * - 500 living circles at most and 20 initial circles
+ * - 3 babies by circle on every generation
+ * - 0.001 of penalty for proximity
+ * - the scores calculated with the prefix tables
+ * - the image dynastes_hercules.jpg as background
+ *
+ * A test changes a parameter after building the population only
+ * when the parameter is what the test is about
+ *
+ * @class PopulationFixture
+ * @author Sergio Martí Torregrosa
+ * @date 29/11/2020
+ */
+public class PopulationFixture {
+
+    public static final long SEED = 1234L;
+
+    public static final int MAX_CIRCLES = 500;
+
+    public static final int INITIAL_CIRCLES = 20;
+
+    public static final int NUM_BABIES_BY_CIRCLE = 3;
+
+    public static final double PENALTY_PROXIMITY = 0.001;
+
+    public static final String BACKGROUND_PATH = "/dynastes_hercules.jpg";
+
+    /**
+     * This method loads the background image
+     * @return the background image
+     */
+    public static Image loadBackground() {
+        return new Image(BACKGROUND_PATH);
+    }
+
+    /**
+     * This method returns the dimensions of a background image
+     * @param background the background image
+     * @return the dimensions of the canvas
+     */
+    public static CanvasDimensions getDimensions(Image background) {
+        return new CanvasDimensions(background.getW(), background.getH());
+    }
+
+    /**
+     * This method returns a population with the shared parameters,
+     * without circles, so its parameters can still be changed
+     * before building its circles
+     * @param seed the seed of the factory
+     * @return the population
+     */
+    public static CircleImagePopulation newPopulation(long seed) {
+        CircleImagePopulation population = new CircleImagePopulation();
+        population.getFactory().setSeed(seed);
+        population.getCirclePopulationLimits().setX(MAX_CIRCLES);
+        population.getCirclePopulationLimits().setY(INITIAL_CIRCLES);
+        population.setNumBabiesByCircle(NUM_BABIES_BY_CIRCLE);
+        population.setMakeBabiesCap(0.0);
+        population.setPenaltyProximity(PENALTY_PROXIMITY);
+        population.setUsingPrefixTables(true);
+        return population;
+    }
+
+    /**
+     * This method returns a population with the shared parameters
+     * and its initial circles
+     * @param canvas the dimensions of the canvas
+     * @param seed the seed of the factory
+     * @return the population
+     */
+    public static CircleImagePopulation buildPopulation(CanvasDimensions canvas, long seed) {
+        CircleImagePopulation population = newPopulation(seed);
+        population.buildPopulation(canvas);
+        return population;
+    }
+
+    /**
+     * This method returns a population with the shared parameters,
+     * the shared seed and its initial circles
+     * @param canvas the dimensions of the canvas
+     * @return the population
+     */
+    public static CircleImagePopulation buildPopulation(CanvasDimensions canvas) {
+        return buildPopulation(canvas, SEED);
+    }
+
+}
@@ -0,0 +1,86 @@
+package testing;
+
+import circlesimage.BuffersFitnessCalculator;
+import circlesimage.CanvasDimensions;
+import circlesimage.CircleCanvas;
+import circlesimage.CircleImagePopulation;
+import engine.gfx.HexColors;
+import engine.gfx.images.Image;
+
+/**
+ * This class compares how fast the populations with and without
+ * analytic colors copy the image. Both populations have the same
+ * seed and parameters, and the image drawn by their circles is
+ * measured every few generations, until it reaches the fitness
+ * what the population with mutated colors reaches at the end
+ *
+ * @class TestingAnalyticColor
+ * @author Sergio Martí Torregrosa
+ * @date 29/11/2020
+ */
+public class TestingAnalyticColor {
+
+    private static final long SEED = 20201116L;
+
+    private static final int GENERATIONS = 400;
+
+    private static final int GENERATIONS_BY_MEASURE = 10;
+
+    private static CircleImagePopulation buildPopulation(CanvasDimensions canvas, boolean isUsingAnalyticColor) {
+        CircleImagePopulation population = PopulationFixture.newPopulation(SEED);
+        population.getFactory().setUsingAnalyticColor(isUsingAnalyticColor);
+        population.buildPopulation(canvas);
+        return population;
+    }
+
+    private static double measureFitness(CircleImagePopulation population, CircleCanvas canvas, Image background) {
+        canvas.clear(HexColors.BLACK);
+        population.drawCircles(canvas);
+        return BuffersFitnessCalculator.calculateImageFitnessPacked(background.getP(), canvas.getP());
+    }
+
+    /**
+     * This method evolves a population until the image drawn
+     * by its circles reaches a fitness
+     * @param population the population
+     * @param canvas the canvas where the circles are drawn
+     * @param background the background image
+     * @param target the fitness what has to be reached
+     * @return the number of generations, or -1 if the fitness
+     * isn't reached in the maximum number of generations
+     */
+    private static int countGenerations(CircleImagePopulation population, CircleCanvas canvas, Image background, double target) {
+        CanvasDimensions dimensions = canvas.getDimensions();
+        for ( int generation = 0; generation < GENERATIONS; generation += GENERATIONS_BY_MEASURE ) {
+            if ( measureFitness(population, canvas, background) >= target ) {
+                return generation;
+            }
+            for ( int i = 0; i < GENERATIONS_BY_MEASURE; i++ ) {
+                population.update(dimensions, 0.0f, background);
+            }
+        }
+        return measureFitness(population, canvas, background) >= target ? GENERATIONS : -1;
+    }
+
+    public static void main(String[] args) {
+        Image background = PopulationFixture.loadBackground();
+        CanvasDimensions dimensions = PopulationFixture.getDimensions(background);
+        CircleCanvas canvas = new CircleCanvas(dimensions);
+
+        CircleImagePopulation mutated = buildPopulation(dimensions, false);
+        for ( int i = 0; i < GENERATIONS; i++ ) {
+            mutated.update(dimensions, 0.0f, background);
+        }
+        double target = measureFitness(mutated, canvas, background);
+
+        int mutatedGenerations = countGenerations(buildPopulation(dimensions, false), canvas, background, target);
+        int analyticGenerations = countGenerations(buildPopulation(dimensions, true), canvas, background, target);
+        System.out.printf("Fitness %.6f: %d generations with mutated colors, %d with analytic colors%n",
+                target, mutatedGenerations, analyticGenerations);
+
+        if ( analyticGenerations < 0 || analyticGenerations > mutatedGenerations ) {
+            throw new AssertionError("The analytic colors need more generations: " + analyticGenerations);
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+package testing;
+
+import circlesimage.BuffersFitnessCalculator;
+import circlesimage.ImageFitnessTracker;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This class is for testing the kernels of
+ * the class BuffersFitnessCalculator
+ *
+ * It checks that all the kernels return the same
+ * fitness as the original kernel, the parallel one
+ * with any number of threads, and that once the
+ * JIT has warmed up the packed kernel doesn't
+ * allocate any byte
+ *
+ * @class TestingBuffersFitness
+ * @author Sergio Martí Torregrosa
+ * @date 12/11/2020
+ */
+public class TestingBuffersFitness {
+
+    private static final int WIDTH = 540;
+
+    private static final int HEIGHT = 360;
+
+    private static final double TOLERANCE = 1e-9;
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static int[] buildRandomBuffer(Random random, int size) {
+        int[] buffer = new int[size];
+        for ( int i = 0; i < size; i++ ) {
+            buffer[i] = random.nextInt();
+        }
+        return buffer;
+    }
+
+    private static long getAllocatedBytes() {
+        return THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(1234);
+        int[] back = buildRandomBuffer(random, WIDTH * HEIGHT);
+        int[] front = buildRandomBuffer(random, WIDTH * HEIGHT);
+
+        double expected = BuffersFitnessCalculator.calculateImageFitness(back, front);
+        double packed = BuffersFitnessCalculator.calculateImageFitnessPacked(back, front);
+        if ( Math.abs(expected - packed) > TOLERANCE ) {
+            throw new AssertionError("Packed fitness " + packed + " differs from " + expected);
+        }
+        double lanes = BuffersFitnessCalculator.calculateImageFitnessLanes(back, front);
+        if ( lanes != packed ) {
+            throw new AssertionError("Lanes fitness " + lanes + " differs from " + packed);
+        }
+        for ( int threads = 1; threads <= 8; threads *= 2 ) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            double parallel = BuffersFitnessCalculator.calculateImageFitnessParallel(back, front, WIDTH, pool, 0);
+            pool.shutdown();
+            if ( parallel != lanes ) {
+                throw new AssertionError("Parallel fitness with " + threads + " threads " + parallel + " differs from " + lanes);
+            }
+        }
+        System.out.printf("Fitness: %.9f | packed: %.9f | lanes: %.9f%n", expected, packed, lanes);
+
+        ImageFitnessTracker tracker = new ImageFitnessTracker();
+        tracker.reset(back, front, WIDTH, HEIGHT);
+        for ( int i = 0; i < 100; i++ ) {
+            int x = random.nextInt(WIDTH);
+            int y = random.nextInt(HEIGHT);
+            int size = random.nextInt(10);
+            for ( int py = Math.max(y - size, 0); py <= Math.min(y + size, HEIGHT - 1); py++ ) {
+                for ( int px = Math.max(x - size, 0); px <= Math.min(x + size, WIDTH - 1); px++ ) {
+                    front[py * WIDTH + px] = random.nextInt();
+                }
+            }
+            tracker.markCircleDirty(x, y, size);
+            tracker.update();
+            double incremental = tracker.getFitness();
+            double full = BuffersFitnessCalculator.calculateImageFitnessPacked(back, front);
+            if ( incremental != full ) {
+                throw new AssertionError("Incremental fitness " + incremental + " differs from " + full);
+            }
+        }
+
+        double sink = 0.0;
+        for ( int i = 0; i < 2000; i++ ) {
+            sink += BuffersFitnessCalculator.calculateImageFitnessPacked(back, front);
+        }
+
+        int frames = 1000;
+        long before = getAllocatedBytes();
+        for ( int i = 0; i < frames; i++ ) {
+            sink += BuffersFitnessCalculator.calculateImageFitnessPacked(back, front);
+        }
+        long allocated = getAllocatedBytes() - before;
+
+        System.out.println("Allocated bytes on " + frames + " frames: " + allocated + " (" + sink + ")");
+        if ( allocated != 0 ) {
+            throw new AssertionError("The packed kernel has allocated " + allocated + " bytes");
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+package testing;
+
+import circlesimage.CircleColor;
+import circlesimage.CircleImage;
+import circlesimage.FadingCircleBuffer;
+import engine.vectors.points2d.Vec2df;
+
+import java.util.ArrayList;
+
+/**
+ * This class checks the ring buffer of the died circles
+ *
+ * - The alpha channel of a circle decreases with its age, and the
+ *   circle is dropped when it becomes transparent
+ * - When the buffer is full, the oldest circle is overwritten
+ * - Dropping the transparent circles doesn't depend on the number
+ *   of circles of the buffer, as the removal from a list did
+ *
+ * @class TestingFadingCircleBuffer
+ * @author Sergio Martí Torregrosa
+ * @date 29/11/2020
+ */
+public class TestingFadingCircleBuffer {
+
+    private static final int ALPHA_DECREASE = 5;
+
+    private static final int NUM_CIRCLES = 20000;
+
+    private static void checkFading() {
+        FadingCircleBuffer buffer = new FadingCircleBuffer(10);
+        buffer.add(1.0f, 2.0f, 3.0f, 0xff102030, 0.5);
+        for ( int frame = 0; frame < 255 / ALPHA_DECREASE; frame++ ) {
+            int alpha = buffer.getColorCode(0) >>> 24;
+            if ( buffer.size() != 1 || alpha != 255 - ALPHA_DECREASE * frame
+                    || (buffer.getColorCode(0) & 0xffffff) != 0x102030 ) {
+                throw new AssertionError("Frame " + frame + ": the alpha is " + alpha);
+            }
+            buffer.advance();
+        }
+        if ( buffer.size() != 0 ) {
+            throw new AssertionError("The transparent circle is not dropped");
+        }
+        System.out.println("A circle fades off in " + 255 / ALPHA_DECREASE + " frames");
+    }
+
+    private static void checkOverwrite() {
+        FadingCircleBuffer buffer = new FadingCircleBuffer(3);
+        for ( int i = 0; i < 5; i++ ) {
+            buffer.add(i, 0.0f, 1.0f, 0xff000000, i);
+        }
+        if ( buffer.size() != 3 ) {
+            throw new AssertionError("The full buffer has " + buffer.size() + " circles");
+        }
+        for ( int i = 0; i < 3; i++ ) {
+            if ( buffer.getX(i) != i + 2 ) {
+                throw new AssertionError("The circle " + i + " is " + buffer.getX(i));
+            }
+        }
+        buffer.setCapacity(2);
+        if ( buffer.size() != 2 || buffer.getX(0) != 3 || buffer.getX(1) != 4 ) {
+            throw new AssertionError("The smaller buffer doesn't keep the newest circles");
+        }
+        System.out.println("The full buffer overwrites the oldest circles");
+    }
+
+    /**
+     * This method fades off the died circles as the population did
+     * before the ring buffer, on a list of circles
+     * @param circles the died circles
+     */
+    private static void advanceList(ArrayList<CircleImage> circles) {
+        for ( CircleImage c : circles ) {
+            c.getColor().setAlpha(c.getColor().getAlpha() - ALPHA_DECREASE);
+        }
+        for ( int i = circles.size() - 1; i >= 0; i-- ) {
+            if ( circles.get(i).getColor().getAlpha() < ALPHA_DECREASE ) {
+                circles.remove(i);
+            }
+        }
+    }
+
+    /**
+     * This method kills some circles on each frame, so they are dropped
+     * on different frames, and measures the time of fading them off
+     * @return the time of the list divided by the time of the buffer
+     */
+    private static double compareRemoval() {
+        FadingCircleBuffer buffer = new FadingCircleBuffer(NUM_CIRCLES);
+        ArrayList<CircleImage> circles = new ArrayList<>();
+        int circlesByFrame = NUM_CIRCLES / (255 / ALPHA_DECREASE);
+        long bufferTime = 0;
+        long listTime = 0;
+        for ( int frame = 0; frame < 4 * 255 / ALPHA_DECREASE; frame++ ) {
+            for ( int i = 0; i < circlesByFrame; i++ ) {
+                buffer.add(i, frame, 2.0f, 0xff808080, 0.0);
+                CircleColor color = new CircleColor(128, 128, 128);
+                color.setAlpha(255);
+                circles.add(new CircleImage(i, new Vec2df(i, frame), 2.0f, color));
+            }
+            long start = System.nanoTime();
+            buffer.advance();
+            long middle = System.nanoTime();
+            advanceList(circles);
+            long end = System.nanoTime();
+            bufferTime += middle - start;
+            listTime += end - middle;
+            if ( buffer.size() != circles.size() ) {
+                throw new AssertionError("Frame " + frame + ": the buffer has " + buffer.size()
+                        + " circles and the list " + circles.size());
+            }
+        }
+        System.out.printf("%d died circles: buffer %.3f ms, list %.3f ms%n",
+                buffer.size(), bufferTime / 1e6, listTime / 1e6);
+        return (double)listTime / bufferTime;
+    }
+
+    public static void main(String[] args) {
+        checkFading();
+        checkOverwrite();
+        compareRemoval();
+        double ratio = compareRemoval();
+        if ( ratio < 10 ) {
+            throw new AssertionError("The buffer is only " + ratio + " times faster than the list");
+        }
+    }
+
+}
@@ -0,0 +1,96 @@
+package testing;
+
+import circlesimage.CanvasDimensions;
+import circlesimage.CircleImagePopulation;
+import circlesimage.GenerationScheduler;
+import engine.gfx.images.Image;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * This class records the generations of a population with the
+ * Flight Recorder and checks the generation and phase events,
+ * with whole generations and with the scheduler
+ *
+ * @class TestingFlightRecorderEvents
+ * @author Sergio Martí Torregrosa
+ * @date 28/11/2020
+ */
+public class TestingFlightRecorderEvents {
+
+    private static final int GENERATIONS = 50;
+
+    private static final int PHASES_BY_GENERATION = 5;
+
+    private static CircleImagePopulation buildPopulation(CanvasDimensions canvas) {
+        CircleImagePopulation population = PopulationFixture.buildPopulation(canvas);
+        population.setFitnessImage(0.5);
+        return population;
+    }
+
+    private static Path record(Runnable generations) throws IOException {
+        try ( Recording recording = new Recording() ) {
+            recording.enable("circlesimage.Generation");
+            recording.enable("circlesimage.Phase");
+            recording.start();
+            generations.run();
+            recording.stop();
+            File file = File.createTempFile("generations", ".jfr");
+            file.deleteOnExit();
+            recording.dump(file.toPath());
+            return file.toPath();
+        }
+    }
+
+    private static void checkEvents(Path file, String mode) throws IOException {
+        int numGenerations = 0;
+        int numPhases = 0;
+        for ( RecordedEvent event : RecordingFile.readAllEvents(file) ) {
+            String name = event.getEventType().getName();
+            if ( name.equals("circlesimage.Generation") ) {
+                numGenerations++;
+                if ( event.getInt("populationSize") <= 0 || event.getDouble("fitnessImage") != 0.5 ) {
+                    throw new AssertionError(mode + ": wrong generation event " + event);
+                }
+                if ( numGenerations > 1 && event.getInt("numBabies") <= 0 ) {
+                    throw new AssertionError(mode + ": the generation event has no babies " + event);
+                }
+            } else if ( name.equals("circlesimage.Phase") ) {
+                numPhases++;
+            }
+        }
+        if ( numGenerations != GENERATIONS ) {
+            throw new AssertionError(mode + ": " + numGenerations + " generation events");
+        }
+        if ( numPhases < GENERATIONS * PHASES_BY_GENERATION ) {
+            throw new AssertionError(mode + ": only " + numPhases + " phase events");
+        }
+        System.out.println(mode + ": " + numGenerations + " generation events, " + numPhases + " phase events");
+    }
+
+    public static void main(String[] args) throws IOException {
+        Image background = PopulationFixture.loadBackground();
+        CanvasDimensions canvas = PopulationFixture.getDimensions(background);
+
+        CircleImagePopulation population = buildPopulation(canvas);
+        checkEvents(record(() -> {
+            for ( int i = 0; i < GENERATIONS; i++ ) {
+                population.update(canvas, 0.0f, background);
+            }
+        }), "Whole generations");
+
+        GenerationScheduler scheduler = new GenerationScheduler(buildPopulation(canvas));
+        scheduler.setCirclesBySlice(128);
+        checkEvents(record(() -> {
+            while ( scheduler.getNumGenerations() < GENERATIONS ) {
+                scheduler.update(canvas, 0.0f, background, 0);
+            }
+        }), "Scheduler");
+    }
+
+}
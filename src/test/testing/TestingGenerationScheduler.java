@@ -0,0 +1,194 @@
+package testing;
+
+import circlesimage.CanvasDimensions;
+import circlesimage.CircleImage;
+import circlesimage.CircleImagePopulation;
+import circlesimage.GenerationScheduler;
+import engine.gfx.images.Image;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * This class checks that the generations run in slices by the
+ * scheduler evolve the same circles as the whole generations,
+ * that the population can be rebuilt and the scheduler reset after
+ * any slice without circles shared by the babies, and that the frames
+ * with a big population stay close to the budget, what a whole
+ * generation is far over
+ *
+ * @class TestingGenerationScheduler
+ * @author Sergio Martí Torregrosa
+ * @date 26/11/2020
+ */
+public class TestingGenerationScheduler {
+
+    private static final long SEED = 20201126L;
+
+    private static final int GENERATIONS = 100;
+
+    private static final long FRAME_BUDGET = 4000000L;
+
+    /**
+     * The longest frame allowed, as times the budget. A slice can go over
+     * the budget, because it's measured after it runs, and the garbage
+     * collector and the compiler can stop any frame, so it isn't the budget
+     */
+    private static final long LONGEST_FRAME_BUDGETS = 6;
+
+    /**
+     * The frames what have to end before twice the budget, in percent
+     */
+    private static final int FRAMES_IN_TWO_BUDGETS = 99;
+
+    /**
+     * The generations run by the scheduler before measuring the frames,
+     * so the slices of all phases have been measured and compiled
+     */
+    private static final int WARMUP_GENERATIONS = 2;
+
+    private static CircleImagePopulation buildPopulation(CanvasDimensions canvas, int maxCircles) {
+        CircleImagePopulation population = PopulationFixture.newPopulation(SEED);
+        population.getCirclePopulationLimits().setX(maxCircles);
+        population.buildPopulation(canvas);
+        return population;
+    }
+
+    /**
+     * The number of slices after which the population is rebuilt,
+     * so the rebuilds fall on all the phases of the first generations
+     */
+    private static final int RESET_POINTS = 400;
+
+    /**
+     * The circles, keys or pairs of the slices of the rebuild checks, so
+     * the reset points reach the killing of a generation with all the circles
+     */
+    private static final int RESET_SLICE_SIZE = 2048;
+
+    /**
+     * The generations run after each rebuild. The circles pooled on the
+     * rebuild are taken by the babies of some generations later, so two
+     * generations aren't enough for finding the circles shared by babies
+     */
+    private static final int GENERATIONS_AFTER_RESET = 4;
+
+    private static int countAliasedCircles(CircleImagePopulation population) {
+        Set<CircleImage> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        int aliased = 0;
+        for ( CircleImage c : population.getCircles() ) {
+            if ( !seen.add(c) ) {
+                aliased++;
+            }
+        }
+        return aliased;
+    }
+
+    /**
+     * This method runs some slices, rebuilds the population and resets
+     * the scheduler, as the program does when SPACE is pressed, and checks
+     * that the next generations don't have the same circle twice
+     */
+    private static void checkResetPoints(CanvasDimensions canvas, Image background) {
+        for ( int slices = 0; slices < RESET_POINTS; slices++ ) {
+            CircleImagePopulation population = buildPopulation(canvas, 500);
+            GenerationScheduler scheduler = new GenerationScheduler(population);
+            scheduler.setCirclesBySlice(RESET_SLICE_SIZE);
+            for ( int i = 0; i < slices; i++ ) {
+                scheduler.update(canvas, 0.0f, background, 0);
+            }
+            population.buildPopulation(canvas);
+            scheduler.reset();
+            long generations = scheduler.getNumGenerations();
+            while ( scheduler.getNumGenerations() < generations + GENERATIONS_AFTER_RESET ) {
+                scheduler.update(canvas, 0.0f, background, 0);
+            }
+            int aliased = countAliasedCircles(population);
+            if ( aliased > 0 ) {
+                throw new AssertionError("Reset after slice " + slices + ": " + aliased + " aliased circles of "
+                        + population.getCircles().size());
+            }
+        }
+        System.out.println("Reset after each of " + RESET_POINTS + " slices without aliased circles");
+    }
+
+    private static void checkSameCircles(CircleImagePopulation first, CircleImagePopulation second) {
+        if ( first.getCircles().size() != second.getCircles().size() ) {
+            throw new AssertionError("The populations have " + first.getCircles().size()
+                    + " and " + second.getCircles().size() + " circles");
+        }
+        for ( int i = 0; i < first.getCircles().size(); i++ ) {
+            CircleImage f = first.getCircles().get(i);
+            CircleImage s = second.getCircles().get(i);
+            if ( f.getPosition().getX() != s.getPosition().getX() || f.getPosition().getY() != s.getPosition().getY()
+                    || f.getSize() != s.getSize() || f.getScore() != s.getScore() ) {
+                throw new AssertionError("The circle " + i + " differs");
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        Image background = PopulationFixture.loadBackground();
+        CanvasDimensions canvas = PopulationFixture.getDimensions(background);
+
+        CircleImagePopulation whole = buildPopulation(canvas, 500);
+        for ( int i = 0; i < GENERATIONS; i++ ) {
+            whole.update(canvas, 0.0f, background);
+        }
+        CircleImagePopulation sliced = buildPopulation(canvas, 500);
+        GenerationScheduler scheduler = new GenerationScheduler(sliced);
+        scheduler.setCirclesBySlice(64);
+        long frames = 0;
+        while ( scheduler.getNumGenerations() < GENERATIONS ) {
+            scheduler.update(canvas, 0.0f, background, 0);
+            frames++;
+        }
+        checkSameCircles(whole, sliced);
+        if ( scheduler.getSnapshot().getNumCircles() != sliced.getCircles().size() ) {
+            throw new AssertionError("The snapshot isn't the last generation");
+        }
+        System.out.println(GENERATIONS + " generations in " + frames + " slices, same circles as whole generations");
+
+        checkResetPoints(canvas, background);
+
+        CircleImagePopulation big = buildPopulation(canvas, 20000);
+        for ( int i = 0; i < 10; i++ ) {
+            big.update(canvas, 0.0f, background);
+        }
+        long longestGeneration = 0;
+        for ( int i = 0; i < 5; i++ ) {
+            long start = System.nanoTime();
+            big.update(canvas, 0.0f, background);
+            longestGeneration = Math.max(longestGeneration, System.nanoTime() - start);
+        }
+        scheduler = new GenerationScheduler(big);
+        while ( scheduler.getNumGenerations() < WARMUP_GENERATIONS ) {
+            scheduler.update(canvas, 0.0f, background, FRAME_BUDGET);
+        }
+        long longestFrame = 0;
+        long numFrames = 0;
+        long longFrames = 0;
+        while ( scheduler.getNumGenerations() < WARMUP_GENERATIONS + 5 ) {
+            long start = System.nanoTime();
+            scheduler.update(canvas, 0.0f, background, FRAME_BUDGET);
+            long frameTime = System.nanoTime() - start;
+            longestFrame = Math.max(longestFrame, frameTime);
+            numFrames++;
+            if ( frameTime > 2 * FRAME_BUDGET ) {
+                longFrames++;
+            }
+        }
+        System.out.printf("%d circles: longest whole generation %.1f ms, longest frame with a budget of %.1f ms: %.1f ms, "
+                + "%d of %d frames over twice the budget%n", big.getCircles().size(), longestGeneration / 1e6,
+                FRAME_BUDGET / 1e6, longestFrame / 1e6, longFrames, numFrames);
+        if ( longestFrame > LONGEST_FRAME_BUDGETS * FRAME_BUDGET ) {
+            throw new AssertionError(String.format("The longest frame takes %.1f ms, more than %d times the budget",
+                    longestFrame / 1e6, LONGEST_FRAME_BUDGETS));
+        }
+        if ( longFrames * 100 > (100 - FRAMES_IN_TWO_BUDGETS) * numFrames ) {
+            throw new AssertionError(longFrames + " of " + numFrames + " frames take more than twice the budget");
+        }
+    }
+
+}
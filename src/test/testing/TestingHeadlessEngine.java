@@ -0,0 +1,112 @@
+package testing;
+
+import circlesimage.BuffersFitnessCalculator;
+import circlesimage.CanvasDimensions;
+import circlesimage.CircleCanvas;
+import circlesimage.CircleImagePopulation;
+import engine.gfx.HexColors;
+import engine.gfx.images.Image;
+
+import javax.imageio.ImageIO;
+import java.awt.GraphicsEnvironment;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * This class evolves a population without window, with
+ * java.awt.headless=true, draws it on a CircleCanvas and
+ * checks that the image written to a file has all the
+ * pixels of the canvas
+ *
+ * It also compares the time of a generation without window
+ * with the time of a frame of the window program, which draws
+ * the circles and calculates the fitness of the image after each
+ * generation. A window can't be opened while the test is headless,
+ * so the frame is the same work on a canvas of the same size
+ *
+ * @class TestingHeadlessEngine
+ * @author Sergio Martí Torregrosa
+ * @date 24/11/2020
+ */
+public class TestingHeadlessEngine {
+
+    private static final int GENERATIONS = 200;
+
+    /**
+     * This method evolves a population without drawing it
+     * @return the time of a generation, in nanoseconds
+     */
+    private static double runHeadless(CircleImagePopulation population, CanvasDimensions dimensions, Image background) {
+        long start = System.nanoTime();
+        for ( int i = 0; i < GENERATIONS; i++ ) {
+            population.update(dimensions, 0.0f, background);
+        }
+        return (double)(System.nanoTime() - start) / GENERATIONS;
+    }
+
+    /**
+     * This method evolves a population as the window program does,
+     * drawing the circles and calculating the fitness of the image
+     * after each generation
+     * @return the time of a generation, in nanoseconds
+     */
+    private static double runWindowFrames(CircleImagePopulation population, CanvasDimensions dimensions,
+                                          Image background, CircleCanvas canvas) {
+        double fitness = 0;
+        long start = System.nanoTime();
+        for ( int i = 0; i < GENERATIONS; i++ ) {
+            population.update(dimensions, 0.0f, background);
+            population.drawCircles(canvas);
+            fitness = BuffersFitnessCalculator.calculateImageFitnessPacked(background.getP(), canvas.getP());
+            population.setFitnessImage(fitness);
+        }
+        return (double)(System.nanoTime() - start) / GENERATIONS;
+    }
+
+    private static void checkSamePixels(BufferedImage image, CircleCanvas canvas) {
+        CanvasDimensions dimensions = canvas.getDimensions();
+        if ( image.getWidth() != dimensions.getWidth() || image.getHeight() != dimensions.getHeight() ) {
+            throw new AssertionError("The image is " + image.getWidth() + "x" + image.getHeight() + ", not " + dimensions);
+        }
+        int[] written = image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+        int[] drawn = canvas.getP();
+        for ( int i = 0; i < drawn.length; i++ ) {
+            if ( (written[i] & 0xffffff) != (drawn[i] & 0xffffff) ) {
+                throw new AssertionError("The pixel (" + i % image.getWidth() + ", " + i / image.getWidth()
+                        + ") of the image differs from the canvas");
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        if ( !GraphicsEnvironment.isHeadless() ) {
+            throw new AssertionError("The test isn't headless");
+        }
+
+        Image background = PopulationFixture.loadBackground();
+        CanvasDimensions dimensions = PopulationFixture.getDimensions(background);
+        CircleCanvas canvas = new CircleCanvas(dimensions);
+
+        runHeadless(PopulationFixture.buildPopulation(dimensions), dimensions, background);
+        runWindowFrames(PopulationFixture.buildPopulation(dimensions), dimensions, background, canvas);
+        CircleImagePopulation population = PopulationFixture.buildPopulation(dimensions);
+        double headlessTime = runHeadless(population, dimensions, background);
+        double windowTime = runWindowFrames(PopulationFixture.buildPopulation(dimensions), dimensions, background, canvas);
+
+        canvas.clear(HexColors.WHITE);
+        population.drawCircles(canvas);
+        File file = File.createTempFile("circles", ".png");
+        file.deleteOnExit();
+        canvas.write(file);
+        checkSamePixels(ImageIO.read(file), canvas);
+
+        System.out.printf("%.3f ms by generation without window, %.3f ms by frame of the window, image of %s written%n",
+                headlessTime / 1e6, windowTime / 1e6, dimensions);
+        if ( headlessTime > windowTime ) {
+            throw new AssertionError("A generation without window is slower than a frame of the window");
+        }
+    }
+
+}
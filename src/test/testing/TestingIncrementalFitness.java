@@ -0,0 +1,127 @@
+package testing;
+
+import circlesimage.BuffersFitnessCalculator;
+import circlesimage.CanvasDimensions;
+import circlesimage.CircleCanvas;
+import circlesimage.CircleImagePopulation;
+import circlesimage.ImageFitnessTracker;
+import engine.gfx.images.Image;
+
+/**
+ * This class draws an evolving population frame by frame, as
+ * the program does, and checks that the fitness tracker, which
+ * only updates the regions what have changed, gives on every frame
+ * the same fitness as the packed kernel over all the pixels
+ *
+ * It runs a generation every few frames, like a population with a
+ * cap for making babies, and compares the time of marking and
+ * updating the tracker with the time of the packed kernel
+ *
+ * It also checks a population whose births stop, so the living
+ * circles stop changing while the died circles finish fading out
+ *
+ * @class TestingIncrementalFitness
+ * @author Sergio Martí Torregrosa
+ * @date 29/11/2020
+ */
+public class TestingIncrementalFitness {
+
+    private static final int FRAMES = 600;
+
+    private static final int WARM_UP_FRAMES = 200;
+
+    /**
+     * The generation from which the population doesn't make babies
+     */
+    private static final int LAST_BIRTH_GENERATION = 100;
+
+    /**
+     * This method evolves a population what stops making babies,
+     * and checks on every frame that the tracker gives the same
+     * fitness as the packed kernel while the died circles fade out
+     * @param background the background image
+     */
+    private static void checkFadingOut(Image background) {
+        CanvasDimensions dimensions = PopulationFixture.getDimensions(background);
+        CircleCanvas canvas = new CircleCanvas(dimensions);
+        CircleImagePopulation population = PopulationFixture.buildPopulation(dimensions);
+        ImageFitnessTracker tracker = new ImageFitnessTracker();
+        tracker.reset(background.getP(), canvas.getP(), dimensions.getWidth(), dimensions.getHeight());
+
+        for ( int frame = 0; frame < WARM_UP_FRAMES + FRAMES; frame++ ) {
+            if ( frame == LAST_BIRTH_GENERATION ) {
+                population.setNumBabiesByCircle(0);
+            }
+            population.update(dimensions, 0.0f, background);
+            population.drawCircles(canvas);
+            population.markDrawnRegions(tracker);
+            tracker.update();
+            double incremental = tracker.getFitness();
+            double packed = BuffersFitnessCalculator.calculateImageFitnessPacked(background.getP(), canvas.getP());
+            if ( incremental != packed ) {
+                throw new AssertionError("Frame " + frame + " without births: incremental fitness " + incremental
+                        + " differs from " + packed);
+            }
+        }
+        System.out.printf("Without births from generation %d: %d died circles left%n",
+                LAST_BIRTH_GENERATION, population.getDiedCircles().size());
+    }
+
+    /**
+     * This method runs the frames and compares the two kernels
+     * @param background the background image
+     * @param framesByGeneration the number of frames between two generations
+     * @return the time of the tracker divided by the time of the packed kernel
+     */
+    private static double compare(Image background, int framesByGeneration) {
+        CanvasDimensions dimensions = PopulationFixture.getDimensions(background);
+        CircleCanvas canvas = new CircleCanvas(dimensions);
+        CircleImagePopulation population = PopulationFixture.buildPopulation(dimensions);
+        ImageFitnessTracker tracker = new ImageFitnessTracker();
+        tracker.reset(background.getP(), canvas.getP(), dimensions.getWidth(), dimensions.getHeight());
+
+        long incrementalTime = 0;
+        long packedTime = 0;
+        long dirtyTiles = 0;
+        for ( int frame = 0; frame < WARM_UP_FRAMES + FRAMES; frame++ ) {
+            if ( frame % framesByGeneration == 0 ) {
+                population.update(dimensions, 0.0f, background);
+            }
+            population.drawCircles(canvas);
+
+            long start = System.nanoTime();
+            population.markDrawnRegions(tracker);
+            int numDirtyTiles = tracker.getNumDirtyTiles();
+            tracker.update();
+            double incremental = tracker.getFitness();
+            long middle = System.nanoTime();
+            double packed = BuffersFitnessCalculator.calculateImageFitnessPacked(background.getP(), canvas.getP());
+            long end = System.nanoTime();
+
+            if ( incremental != packed ) {
+                throw new AssertionError("Frame " + frame + ": incremental fitness " + incremental
+                        + " differs from " + packed);
+            }
+            if ( frame >= WARM_UP_FRAMES ) {
+                incrementalTime += middle - start;
+                packedTime += end - middle;
+                dirtyTiles += numDirtyTiles;
+            }
+        }
+
+        System.out.printf("A generation every %d frames: incremental %.3f ms, packed %.3f ms by frame, %.1f dirty tiles by frame%n",
+                framesByGeneration, incrementalTime / 1e6 / FRAMES, packedTime / 1e6 / FRAMES, (double)dirtyTiles / FRAMES);
+        return (double)incrementalTime / packedTime;
+    }
+
+    public static void main(String[] args) {
+        Image background = PopulationFixture.loadBackground();
+        checkFadingOut(background);
+        compare(background, 1);
+        double ratio = compare(background, 60);
+        if ( ratio >= 1.0 ) {
+            throw new AssertionError("The incremental kernel is not faster than the packed kernel: " + ratio);
+        }
+    }
+
+}
@@ -0,0 +1,170 @@
+package testing;
+
+import circlesimage.CanvasDimensions;
+import circlesimage.CircleImage;
+import circlesimage.CircleImagePopulation;
+import circlesimage.IslandModelPopulation;
+import engine.gfx.images.Image;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * This class checks the migration of the island model, that the
+ * islands share the prefix tables of the template, and prints
+ * the throughput, in island generations by second,
+ * with a different number of islands, when the islands run
+ * in lockstep with update() and when each one runs freely
+ * on its own thread with start()
+ *
+ * With free running islands, the throughput has to grow with
+ * the number of islands while there are free cores, and it can't
+ * be much lower than the lockstep one
+ *
+ * @class TestingIslandModel
+ * @author Sergio Martí Torregrosa
+ * @date 22/11/2020
+ */
+public class TestingIslandModel {
+
+    private static final int GENERATIONS = 100;
+
+    private static final int NUM_MIGRANTS = 5;
+
+    /**
+     * The part of the lockstep throughput what the free
+     * running islands have to reach at least
+     */
+    private static final double MIN_FREE_RUNNING_RATIO = 0.7;
+
+    private static CircleImagePopulation buildTemplate() {
+        return PopulationFixture.newPopulation(PopulationFixture.SEED);
+    }
+
+    private static void checkBestCircles(CircleImagePopulation population) {
+        CircleImage[] best = population.copyBestCircles(NUM_MIGRANTS);
+        double worstOfBest = Double.MAX_VALUE;
+        for ( CircleImage c : best ) {
+            worstOfBest = Math.min(worstOfBest, c.getScore());
+        }
+        int numBetter = 0;
+        for ( CircleImage c : population.getCircles() ) {
+            if ( c.getScore() > worstOfBest ) {
+                numBetter++;
+            }
+        }
+        if ( best.length != NUM_MIGRANTS || numBetter >= NUM_MIGRANTS ) {
+            throw new AssertionError("The migrants aren't the best circles");
+        }
+    }
+
+    /**
+     * This method adds migrants to a population after some generations,
+     * when the survivors of the kill have the ids of their indexes before
+     * the list was compacted, and checks that the ids don't repeat
+     */
+    private static void checkMigrantIds(CanvasDimensions canvas, Image background) {
+        CircleImagePopulation population = buildTemplate();
+        population.buildPopulation(canvas);
+        CircleImagePopulation other = buildTemplate();
+        other.buildPopulation(canvas);
+        for ( int i = 0; i < 10; i++ ) {
+            population.update(canvas, 0.016f, background);
+            other.update(canvas, 0.016f, background);
+        }
+        population.addCircles(other.copyBestCircles(NUM_MIGRANTS));
+        Set<Integer> ids = new HashSet<>();
+        for ( CircleImage c : population.getCircles() ) {
+            if ( !ids.add(c.getId()) ) {
+                throw new AssertionError("The id " + c.getId() + " is repeated after the migration");
+            }
+        }
+        System.out.println(population.getCircles().size() + " circles with different ids after the migration");
+    }
+
+    /**
+     * This method checks that all the islands use the prefix
+     * tables of the template, instead of building their own ones
+     */
+    private static void checkSharedPrefixTables(Image background) {
+        CircleImagePopulation template = buildTemplate();
+        template.setUsingPrefixTables(true);
+        IslandModelPopulation islands = new IslandModelPopulation(template, 4, 10, NUM_MIGRANTS);
+        for ( CircleImagePopulation island : islands.getIslands() ) {
+            if ( island.getPrefixTables(background) != template.getPrefixTables(background) ) {
+                throw new AssertionError("An island has its own prefix tables");
+            }
+        }
+        islands.shutdown();
+    }
+
+    /**
+     * This method runs the islands in lockstep
+     * @return the island generations by second
+     */
+    private static double runLockstep(CanvasDimensions canvas, Image background, int numIslands) {
+        IslandModelPopulation islands = new IslandModelPopulation(buildTemplate(), numIslands, 10, NUM_MIGRANTS);
+        islands.buildPopulation(canvas);
+        long start = System.nanoTime();
+        for ( int i = 0; i < GENERATIONS; i++ ) {
+            islands.update(canvas, 0.016f, background);
+        }
+        long time = System.nanoTime() - start;
+        islands.shutdown();
+
+        for ( CircleImagePopulation island : islands.getIslands() ) {
+            checkBestCircles(island);
+        }
+        return islands.getNumGenerations() / (time / 1e9);
+    }
+
+    /**
+     * This method runs each island on its own thread, taking the
+     * snapshots as the render thread does, until the islands have
+     * run as many generations together as in lockstep
+     * @return the island generations by second
+     */
+    private static double runFree(CanvasDimensions canvas, Image background, int numIslands) throws InterruptedException {
+        IslandModelPopulation islands = new IslandModelPopulation(buildTemplate(), numIslands, 10, NUM_MIGRANTS);
+        islands.buildPopulation(canvas);
+        long start = System.nanoTime();
+        islands.start(canvas, background);
+        while ( islands.getNumGenerations() < (long)numIslands * GENERATIONS ) {
+            Thread.sleep(16);
+            islands.takeSnapshots();
+            if ( islands.getNumCircles() == 0 ) {
+                throw new AssertionError("The snapshots of the islands are empty");
+            }
+        }
+        islands.stop();
+        long time = System.nanoTime() - start;
+        islands.shutdown();
+
+        for ( CircleImagePopulation island : islands.getIslands() ) {
+            checkBestCircles(island);
+        }
+        return islands.getNumGenerations() / (time / 1e9);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Image background = PopulationFixture.loadBackground();
+        CanvasDimensions canvas = PopulationFixture.getDimensions(background);
+        System.out.println(Runtime.getRuntime().availableProcessors() + " processors");
+
+        checkMigrantIds(canvas, background);
+        checkSharedPrefixTables(background);
+
+        runLockstep(canvas, background, 2);
+        runFree(canvas, background, 2);
+        for ( int numIslands = 1; numIslands <= 8; numIslands *= 2 ) {
+            double lockstep = runLockstep(canvas, background, numIslands);
+            double free = runFree(canvas, background, numIslands);
+            System.out.printf("%d islands: %.1f island generations by second in lockstep, %.1f free running%n",
+                    numIslands, lockstep, free);
+            if ( free < lockstep * MIN_FREE_RUNNING_RATIO ) {
+                throw new AssertionError("The free running islands are slower than the lockstep ones");
+            }
+        }
+    }
+
+}
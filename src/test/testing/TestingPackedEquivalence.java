@@ -0,0 +1,84 @@
+package testing;
+
+import circlesimage.CanvasDimensions;
+import circlesimage.CircleImage;
+import circlesimage.CircleImagePopulation;
+import circlesimage.PackedCircleImagePopulation;
+import engine.gfx.images.Image;
+
+/**
+ * This class checks that the packed population evolves into the
+ * same circles as the CircleImagePopulation with the same seed and
+ * the same parameters, with the mutated and the analytic colors
+ *
+ * Both populations are compared after every generation, so the
+ * first generation where they differ is reported
+ *
+ * @class TestingPackedEquivalence
+ * @author Sergio Martí Torregrosa
+ * @date 29/11/2020
+ */
+public class TestingPackedEquivalence {
+
+    private static final long SEED = 20201129L;
+
+    private static final int GENERATIONS = 300;
+
+    private static CircleImagePopulation buildPopulation(CanvasDimensions canvas, boolean isUsingAnalyticColor) {
+        CircleImagePopulation population = PopulationFixture.newPopulation(SEED);
+        population.getFactory().setUsingAnalyticColor(isUsingAnalyticColor);
+        population.setUsingSpatialGrid(true);
+        population.setUsingSweepAndPrune(true);
+        return population;
+    }
+
+    private static boolean areSameCircles(CircleImagePopulation objects, PackedCircleImagePopulation packed) {
+        if ( objects.getCircles().size() != packed.getSize() ) {
+            return false;
+        }
+        for ( int i = 0; i < packed.getSize(); i++ ) {
+            CircleImage c = objects.getCircles().get(i);
+            if ( Float.floatToIntBits(c.getPosition().getX()) != Float.floatToIntBits(packed.getX(i))
+                    || Float.floatToIntBits(c.getPosition().getY()) != Float.floatToIntBits(packed.getY(i))
+                    || Float.floatToIntBits(c.getSize()) != Float.floatToIntBits(packed.getRadius(i))
+                    || c.getColor().getCode() != packed.getColorCode(i)
+                    || Double.doubleToLongBits(c.getScore()) != Double.doubleToLongBits(packed.getScore(i)) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * This method evolves both populations and compares them
+     * @param background the background image
+     * @param isUsingAnalyticColor if the colors are analytic
+     */
+    private static void compare(Image background, boolean isUsingAnalyticColor) {
+        CanvasDimensions canvas = PopulationFixture.getDimensions(background);
+        CircleImagePopulation objects = buildPopulation(canvas, isUsingAnalyticColor);
+        objects.buildPopulation(canvas);
+
+        PackedCircleImagePopulation packed = new PackedCircleImagePopulation();
+        packed.copyParametersFrom(buildPopulation(canvas, isUsingAnalyticColor));
+        packed.buildPopulation(canvas);
+
+        for ( int generation = 0; generation < GENERATIONS; generation++ ) {
+            objects.update(canvas, 0.016f, background);
+            packed.update(canvas, 0.016f, background);
+            if ( !areSameCircles(objects, packed) ) {
+                throw new AssertionError("The populations differ on the generation " + generation
+                        + " with analytic colors " + isUsingAnalyticColor);
+            }
+        }
+        System.out.printf("Analytic colors %b: same %d circles after %d generations%n",
+                isUsingAnalyticColor, packed.getSize(), GENERATIONS);
+    }
+
+    public static void main(String[] args) {
+        Image background = PopulationFixture.loadBackground();
+        compare(background, false);
+        compare(background, true);
+    }
+
+}
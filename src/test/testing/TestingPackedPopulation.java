@@ -0,0 +1,68 @@
+package testing;
+
+import circlesimage.CircleColor;
+import circlesimage.CircleImage;
+import circlesimage.PackedCircleImagePopulation;
+import engine.vectors.points2d.Vec2df;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * This class compares the memory needed for storing one
+ * million circles as a list of CircleImages, with the memory
+ * needed for storing them on the PackedCircleImagePopulation
+ *
+ * @class TestingPackedPopulation
+ * @author Sergio Martí Torregrosa
+ * @date 19/11/2020
+ */
+public class TestingPackedPopulation {
+
+    private static final int NUM_CIRCLES = 1000000;
+
+    private static long getUsedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for ( int i = 0; i < 3; i++ ) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(1234);
+
+        long before = getUsedMemory();
+        ArrayList<CircleImage> circles = new ArrayList<>();
+        for ( int i = 0; i < NUM_CIRCLES; i++ ) {
+            circles.add(new CircleImage(
+                    i,
+                    new Vec2df(random.nextInt(1920), random.nextInt(1080)),
+                    1 + random.nextInt(4),
+                    new CircleColor(random.nextInt(256), random.nextInt(256), random.nextInt(256))
+            ));
+        }
+        long listMemory = getUsedMemory() - before;
+
+        before = getUsedMemory();
+        PackedCircleImagePopulation packed = new PackedCircleImagePopulation();
+        for ( CircleImage c : circles ) {
+            packed.addCircle(c);
+        }
+        long packedMemory = getUsedMemory() - before;
+
+        CircleImage view = new CircleImage(0, new Vec2df(), 0, new CircleColor());
+        for ( int i = 0; i < NUM_CIRCLES; i += NUM_CIRCLES / 10 ) {
+            packed.copyTo(i, view);
+            if ( view.getColor().getCode() != circles.get(i).getColor().getCode()
+                    || view.getPosition().getX() != circles.get(i).getPosition().getX() ) {
+                throw new AssertionError("Circle " + i + " differs: " + view + " | " + circles.get(i));
+            }
+        }
+
+        System.out.printf("List of CircleImages: %.1f bytes by circle%n", listMemory / (double) NUM_CIRCLES);
+        System.out.printf("Packed population: %.1f bytes by circle%n", packedMemory / (double) NUM_CIRCLES);
+        System.out.printf("Ratio: %.1fx (%d, %d)%n", listMemory / (double) packedMemory, circles.size(), packed.getSize());
+    }
+
+}
@@ -0,0 +1,79 @@
+package testing;
+
+import circlesimage.CanvasDimensions;
+import circlesimage.CircleImage;
+import circlesimage.CircleImagePopulation;
+import engine.gfx.images.Image;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This class checks that the parallel scoring of the circles
+ * gives the same scores as the sequential one. Two populations
+ * with the same seed, one scored sequentially and the other
+ * in parallel, must evolve into the same circles
+ *
+ * It also prints the mean time of a generation
+ *
+ * @class TestingParallelScoring
+ * @author Sergio Martí Torregrosa
+ * @date 21/11/2020
+ */
+public class TestingParallelScoring {
+
+    private static final int GENERATIONS = 50;
+
+    private static final int MAX_CIRCLES = 2000;
+
+    private static CircleImagePopulation buildPopulation(CanvasDimensions canvas, int parallelism) {
+        CircleImagePopulation population = PopulationFixture.newPopulation(PopulationFixture.SEED);
+        population.getFactory().setMaxCircleSize(8);
+        population.getCirclePopulationLimits().setX(MAX_CIRCLES);
+        population.getCirclePopulationLimits().setY(200);
+        population.setUsingPrefixTables(false);
+        population.setScoringParallelism(parallelism);
+        population.buildPopulation(canvas);
+        return population;
+    }
+
+    private static void checkSameScores(CircleImagePopulation expected, CircleImagePopulation actual, int parallelism) {
+        if ( expected.getCircles().size() != actual.getCircles().size() ) {
+            throw new AssertionError("Different number of circles with " + parallelism + " threads");
+        }
+        for ( int i = 0; i < expected.getCircles().size(); i++ ) {
+            CircleImage e = expected.getCircles().get(i);
+            CircleImage a = actual.getCircles().get(i);
+            if ( Double.doubleToLongBits(e.getScore()) != Double.doubleToLongBits(a.getScore()) ) {
+                throw new AssertionError("Circle " + i + " with " + parallelism + " threads: " + a + " | " + e);
+            }
+        }
+    }
+
+    private static CircleImagePopulation runPopulation(CanvasDimensions canvas, Image background, int parallelism) {
+        CircleImagePopulation population = buildPopulation(canvas, parallelism);
+        long start = System.nanoTime();
+        for ( int generation = 0; generation < GENERATIONS; generation++ ) {
+            population.update(canvas, 0.016f, background);
+        }
+        long time = System.nanoTime() - start;
+        ForkJoinPool pool = population.getScoringPool();
+        population.shutdown();
+        if ( pool != null && !pool.isShutdown() ) {
+            throw new AssertionError("The scoring pool with " + parallelism + " threads isn't shut down");
+        }
+        System.out.printf("%d threads: %.3f ms by generation%n", parallelism, time / 1e6 / GENERATIONS);
+        return population;
+    }
+
+    public static void main(String[] args) {
+        Image background = PopulationFixture.loadBackground();
+        CanvasDimensions canvas = PopulationFixture.getDimensions(background);
+
+        CircleImagePopulation sequential = runPopulation(canvas, background, 1);
+        for ( int parallelism = 2; parallelism <= 16; parallelism *= 2 ) {
+            checkSameScores(sequential, runPopulation(canvas, background, parallelism), parallelism);
+        }
+        System.out.println("The parallel scores are the same as the sequential ones");
+    }
+
+}
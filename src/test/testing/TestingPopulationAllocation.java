@@ -0,0 +1,82 @@
+package testing;
+
+import circlesimage.CanvasDimensions;
+import circlesimage.CircleImagePopulation;
+import circlesimage.PackedCircleImagePopulation;
+import engine.gfx.images.Image;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * This class measures the bytes allocated by each generation
+ * of the populations, once the JIT has warmed up and the
+ * population has reached its maximum size
+ *
+ * The killed circles are reused as storage for the babies,
+ * so on the steady state a generation shouldn't allocate
+ * any byte
+ *
+ * @class TestingPopulationAllocation
+ * @author Sergio Martí Torregrosa
+ * @date 20/11/2020
+ */
+public class TestingPopulationAllocation {
+
+    private static final int WARM_UP_GENERATIONS = 3000;
+
+    private static final int GENERATIONS = 1000;
+
+    private static final float ELAPSED_TIME = 0.016f;
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static long getAllocatedBytes() {
+        return THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static CircleImagePopulation buildPopulation(CanvasDimensions canvas) {
+        return PopulationFixture.buildPopulation(canvas);
+    }
+
+    private static PackedCircleImagePopulation buildPackedPopulation(CanvasDimensions canvas) {
+        PackedCircleImagePopulation population = new PackedCircleImagePopulation();
+        population.copyParametersFrom(PopulationFixture.newPopulation(PopulationFixture.SEED));
+        population.buildPopulation(canvas);
+        return population;
+    }
+
+    public static void main(String[] args) {
+        Image background = PopulationFixture.loadBackground();
+        CanvasDimensions canvas = PopulationFixture.getDimensions(background);
+
+        CircleImagePopulation population = buildPopulation(canvas);
+        for ( int i = 0; i < WARM_UP_GENERATIONS; i++ ) {
+            population.update(canvas, ELAPSED_TIME, background);
+        }
+        long before = getAllocatedBytes();
+        for ( int i = 0; i < GENERATIONS; i++ ) {
+            population.update(canvas, ELAPSED_TIME, background);
+        }
+        double bytesByGeneration = (getAllocatedBytes() - before) / (double) GENERATIONS;
+
+        PackedCircleImagePopulation packed = buildPackedPopulation(canvas);
+        for ( int i = 0; i < WARM_UP_GENERATIONS; i++ ) {
+            packed.update(canvas, ELAPSED_TIME, background);
+        }
+        before = getAllocatedBytes();
+        for ( int i = 0; i < GENERATIONS; i++ ) {
+            packed.update(canvas, ELAPSED_TIME, background);
+        }
+        double packedBytesByGeneration = (getAllocatedBytes() - before) / (double) GENERATIONS;
+
+        System.out.printf("CircleImagePopulation: %.1f bytes by generation (%d circles)%n",
+                bytesByGeneration, population.getCircles().size());
+        System.out.printf("PackedCircleImagePopulation: %.1f bytes by generation (%d circles)%n",
+                packedBytesByGeneration, packed.getSize());
+        if ( bytesByGeneration >= 1.0 || packedBytesByGeneration >= 1.0 ) {
+            throw new AssertionError("The populations allocate memory on the steady state");
+        }
+    }
+
+}
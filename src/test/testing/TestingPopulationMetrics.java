@@ -0,0 +1,107 @@
+package testing;
+
+import circlesimage.CanvasDimensions;
+import circlesimage.CircleImagePopulation;
+import circlesimage.IslandModelPopulation;
+import circlesimage.PopulationMetrics;
+import engine.gfx.images.Image;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * This class runs a population with metrics, checks the counters
+ * and reads them over JMX, and compares the time of the generations
+ * with and without metrics. It also checks that the islands of an
+ * island model share the metrics of their template
+ *
+ * @class TestingPopulationMetrics
+ * @author Sergio Martí Torregrosa
+ * @date 27/11/2020
+ */
+public class TestingPopulationMetrics {
+
+    private static final int GENERATIONS = 300;
+
+    private static CircleImagePopulation buildPopulation(CanvasDimensions canvas) {
+        return PopulationFixture.buildPopulation(canvas);
+    }
+
+    private static final int NUM_ISLANDS = 3;
+
+    private static final int ISLAND_GENERATIONS = 50;
+
+    /**
+     * This method runs the generations of the islands of a template
+     * with metrics and checks that every island has been measured
+     */
+    private static void checkIslands(CanvasDimensions canvas, Image background) {
+        CircleImagePopulation template = PopulationFixture.newPopulation(PopulationFixture.SEED);
+        PopulationMetrics metrics = new PopulationMetrics();
+        template.setMetrics(metrics);
+        IslandModelPopulation islands = new IslandModelPopulation(template, NUM_ISLANDS, 10, 2);
+        try {
+            islands.buildPopulation(canvas);
+            for ( int i = 0; i < ISLAND_GENERATIONS; i++ ) {
+                islands.update(canvas, 0.0f, background);
+            }
+        } finally {
+            islands.shutdown();
+        }
+        long count = metrics.getHistogram(PopulationMetrics.Phase.SCORES).getCount();
+        if ( count != (long)NUM_ISLANDS * ISLAND_GENERATIONS ) {
+            throw new AssertionError("The islands were measured " + count + " times");
+        }
+        System.out.printf("%d islands measured %d generations, born %d%n", NUM_ISLANDS, count, metrics.getCirclesBorn());
+    }
+
+    private static long runGenerations(CircleImagePopulation population, CanvasDimensions canvas, Image background) {
+        long start = System.nanoTime();
+        for ( int i = 0; i < GENERATIONS; i++ ) {
+            population.update(canvas, 0.0f, background);
+        }
+        return System.nanoTime() - start;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Image background = PopulationFixture.loadBackground();
+        CanvasDimensions canvas = PopulationFixture.getDimensions(background);
+
+        runGenerations(buildPopulation(canvas), canvas, background);
+
+        CircleImagePopulation measured = buildPopulation(canvas);
+        PopulationMetrics metrics = new PopulationMetrics();
+        metrics.register();
+        measured.setMetrics(metrics);
+        long measuredTime = runGenerations(measured, canvas, background);
+
+        for ( PopulationMetrics.Phase phase : PopulationMetrics.Phase.values() ) {
+            long count = metrics.getHistogram(phase).getCount();
+            long expected = phase == PopulationMetrics.Phase.IMAGE_FITNESS ? 0 : GENERATIONS;
+            if ( count != expected ) {
+                throw new AssertionError(phase.getLabel() + " was measured " + count + " times");
+            }
+        }
+        long born = metrics.getCirclesBorn();
+        long killed = metrics.getCirclesKilled();
+        if ( born - killed != measured.getCircles().size() - PopulationFixture.INITIAL_CIRCLES ) {
+            throw new AssertionError("Born " + born + " and killed " + killed + " don't match the circles");
+        }
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        long scored = (Long)server.getAttribute(new ObjectName(PopulationMetrics.OBJECT_NAME), "CirclesScored");
+        if ( scored != metrics.getCirclesScored() || scored == 0 ) {
+            throw new AssertionError("JMX reads " + scored + " scored circles");
+        }
+
+        checkIslands(canvas, background);
+
+        CircleImagePopulation plain = buildPopulation(canvas);
+        long plainTime = runGenerations(plain, canvas, background);
+        System.out.printf("Born %d, killed %d, scored %d; %.2f ms by generation with metrics, %.2f ms without%n",
+                born, killed, scored, measuredTime / 1e6 / GENERATIONS, plainTime / 1e6 / GENERATIONS);
+        System.out.println(metrics.getMeanMillis());
+    }
+
+}
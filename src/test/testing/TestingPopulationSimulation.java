@@ -0,0 +1,124 @@
+package testing;
+
+import circlesimage.CanvasDimensions;
+import circlesimage.CircleCanvas;
+import circlesimage.CircleImagePopulation;
+import circlesimage.FadingCircleBuffer;
+import circlesimage.PopulationSimulation;
+import circlesimage.PopulationSnapshot;
+import engine.gfx.images.Image;
+
+/**
+ * This class runs the simulation thread for some seconds while
+ * this thread draws the snapshots as a renderer would do, and
+ * checks that the generations run, their rate is measured and
+ * the snapshots are whole and always newer, and that the died
+ * circles fade with the frames and not with the generations
+ *
+ * @class TestingPopulationSimulation
+ * @author Sergio Martí Torregrosa
+ * @date 25/11/2020
+ */
+public class TestingPopulationSimulation {
+
+    private static final long RUNNING_TIME = 2000;
+
+    private static final long FRAME_TIME = 16;
+
+    private static final int GENERATIONS_BY_FRAME = 10;
+
+    /**
+     * The frames of the fading check, fewer than the 51 frames
+     * what a died circle needs for becoming transparent
+     */
+    private static final int FADING_FRAMES = 20;
+
+    /**
+     * The generations what the population can take for growing
+     * until the first circles are killed
+     */
+    private static final int MAX_GROWING_GENERATIONS = 1000;
+
+    /**
+     * This method runs several generations for each frame, as the
+     * simulation thread does when it is faster than the renderer, and
+     * checks that the first circles killed are still fading
+     * after some frames, although many more generations have run
+     */
+    private static void checkFadingByFrames(CanvasDimensions canvas, Image background) {
+        CircleImagePopulation population = PopulationFixture.buildPopulation(canvas);
+        FadingCircleBuffer diedCircles = population.getDiedCircles();
+        diedCircles.setCapacity(1 << 20);
+        PopulationSimulation simulation = new PopulationSimulation(population, canvas, background);
+        while ( diedCircles.size() == 0 && simulation.getNumGenerations() < MAX_GROWING_GENERATIONS ) {
+            simulation.runGeneration();
+        }
+        if ( diedCircles.size() == 0 ) {
+            throw new AssertionError("No circle died in " + MAX_GROWING_GENERATIONS + " generations");
+        }
+        float firstX = diedCircles.getX(0);
+        float firstY = diedCircles.getY(0);
+        float firstRadius = diedCircles.getRadius(0);
+        for ( int frame = 0; frame < FADING_FRAMES; frame++ ) {
+            simulation.advanceFrame();
+            for ( int i = 0; i < GENERATIONS_BY_FRAME; i++ ) {
+                simulation.runGeneration();
+            }
+        }
+        if ( diedCircles.getFrame() != simulation.getNumFrames() ) {
+            throw new AssertionError("The died circles are on the frame " + diedCircles.getFrame() + " after "
+                    + simulation.getNumFrames() + " frames");
+        }
+        if ( diedCircles.size() == 0 || diedCircles.getX(0) != firstX || diedCircles.getY(0) != firstY
+                || diedCircles.getRadius(0) != firstRadius || !diedCircles.isVisible(0) ) {
+            throw new AssertionError("The first circles killed faded off after "
+                    + simulation.getNumGenerations() + " generations and " + FADING_FRAMES + " frames");
+        }
+        System.out.println("The died circles fade " + FADING_FRAMES + " frames in "
+                + simulation.getNumGenerations() + " generations");
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Image background = PopulationFixture.loadBackground();
+        CanvasDimensions canvas = PopulationFixture.getDimensions(background);
+        checkFadingByFrames(canvas, background);
+
+        CircleImagePopulation population = PopulationFixture.buildPopulation(canvas);
+        PopulationSimulation simulation = new PopulationSimulation(population, canvas, background);
+        simulation.start();
+        CircleCanvas drawing = new CircleCanvas(canvas);
+        long frames = 0;
+        long lastGeneration = -1;
+        long end = System.currentTimeMillis() + RUNNING_TIME;
+        while ( System.currentTimeMillis() < end ) {
+            PopulationSnapshot snapshot = simulation.getLatestSnapshot();
+            if ( snapshot.getGeneration() < lastGeneration ) {
+                throw new AssertionError("The snapshot of the generation " + snapshot.getGeneration()
+                        + " is older than " + lastGeneration);
+            }
+            lastGeneration = snapshot.getGeneration();
+            int size = snapshot.getNumCircles();
+            if ( size > population.getCirclePopulationLimits().getX() ) {
+                throw new AssertionError("The snapshot has " + size + " circles in the middle of a generation");
+            }
+            drawing.clear(0xffffffff);
+            snapshot.drawCircles(drawing);
+            frames++;
+            Thread.sleep(FRAME_TIME);
+        }
+        simulation.stop();
+
+        if ( simulation.isRunning() || simulation.getNumGenerations() == 0 ) {
+            throw new AssertionError("The simulation didn't run");
+        }
+        if ( lastGeneration <= 0 ) {
+            throw new AssertionError("No snapshot of a generation was drawn");
+        }
+        if ( simulation.getGenerationsPerSecond() <= 0 ) {
+            throw new AssertionError("The generations by second aren't measured");
+        }
+        System.out.printf("%.1f generations by second, %.1f frames by second%n",
+                simulation.getGenerationsPerSecond(), frames / (RUNNING_TIME / 1000.0));
+    }
+
+}
@@ -0,0 +1,59 @@
+package testing;
+
+import circlesimage.CanvasDimensions;
+import circlesimage.CircleImagePopulation;
+import circlesimage.PopulationSizeController;
+import engine.gfx.images.Image;
+
+/**
+ * This class runs a population with the size controller and
+ * checks that the limit of living circles stays between the
+ * bounds and that the generations get close to the target time
+ *
+ * @class TestingPopulationSizeController
+ * @author Sergio Martí Torregrosa
+ * @date 27/11/2020
+ */
+public class TestingPopulationSizeController {
+
+    private static final long TARGET_TIME = 16000000L;
+
+    private static final int MIN_CIRCLES = 100;
+
+    private static final int MAX_CIRCLES = 50000;
+
+    private static final int GENERATIONS = 300;
+
+    private static final int MEASURED_GENERATIONS = 50;
+
+    public static void main(String[] args) {
+        Image background = PopulationFixture.loadBackground();
+        CanvasDimensions canvas = PopulationFixture.getDimensions(background);
+        CircleImagePopulation population = PopulationFixture.newPopulation(PopulationFixture.SEED);
+        population.setSizeController(new PopulationSizeController(TARGET_TIME, MIN_CIRCLES, MAX_CIRCLES));
+        population.buildPopulation(canvas);
+
+        long measuredTime = 0;
+        for ( int i = 0; i < GENERATIONS; i++ ) {
+            long start = System.nanoTime();
+            population.update(canvas, 0.0f, background);
+            if ( i >= GENERATIONS - MEASURED_GENERATIONS ) {
+                measuredTime += System.nanoTime() - start;
+            }
+            int limit = population.getCirclePopulationLimits().getX();
+            if ( limit < MIN_CIRCLES || limit > MAX_CIRCLES ) {
+                throw new AssertionError("The limit " + limit + " is out of the bounds");
+            }
+        }
+
+        double meanTime = (double)measuredTime / MEASURED_GENERATIONS;
+        int limit = population.getCirclePopulationLimits().getX();
+        if ( limit < MAX_CIRCLES && Math.abs(meanTime - TARGET_TIME) > TARGET_TIME / 2 ) {
+            throw new AssertionError(String.format("The generations take %.1f ms, the target is %.1f ms",
+                    meanTime / 1e6, TARGET_TIME / 1e6));
+        }
+        System.out.printf("Limit of %d circles, %.1f ms by generation, target %.1f ms%n",
+                limit, meanTime / 1e6, TARGET_TIME / 1e6);
+    }
+
+}
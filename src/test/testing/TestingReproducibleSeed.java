@@ -0,0 +1,75 @@
+package testing;
+
+import circlesimage.CanvasDimensions;
+import circlesimage.CircleImage;
+import circlesimage.CircleImageFactory;
+import circlesimage.CircleImagePopulation;
+import engine.gfx.images.Image;
+
+/**
+ * This class checks that two populations with the same seed
+ * and the same parameters evolve into the same circles, and
+ * that the factories split from the same root factory
+ * don't repeat the random sequence
+ *
+ * @class TestingReproducibleSeed
+ * @author Sergio Martí Torregrosa
+ * @date 21/11/2020
+ */
+public class TestingReproducibleSeed {
+
+    private static final long SEED = 20201121L;
+
+    private static final int GENERATIONS = 300;
+
+    private static CircleImagePopulation runPopulation(CanvasDimensions canvas, Image background, long seed) {
+        CircleImagePopulation population = PopulationFixture.buildPopulation(canvas, seed);
+        for ( int i = 0; i < GENERATIONS; i++ ) {
+            population.update(canvas, 0.016f, background);
+        }
+        return population;
+    }
+
+    private static boolean areSameCircles(CircleImagePopulation first, CircleImagePopulation second) {
+        if ( first.getCircles().size() != second.getCircles().size() ) {
+            return false;
+        }
+        for ( int i = 0; i < first.getCircles().size(); i++ ) {
+            CircleImage f = first.getCircles().get(i);
+            CircleImage s = second.getCircles().get(i);
+            if ( Float.floatToIntBits(f.getPosition().getX()) != Float.floatToIntBits(s.getPosition().getX())
+                    || Float.floatToIntBits(f.getPosition().getY()) != Float.floatToIntBits(s.getPosition().getY())
+                    || Float.floatToIntBits(f.getSize()) != Float.floatToIntBits(s.getSize())
+                    || f.getColor().getCode() != s.getColor().getCode()
+                    || Double.doubleToLongBits(f.getScore()) != Double.doubleToLongBits(s.getScore()) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static void main(String[] args) {
+        Image background = PopulationFixture.loadBackground();
+        CanvasDimensions canvas = PopulationFixture.getDimensions(background);
+
+        CircleImagePopulation first = runPopulation(canvas, background, SEED);
+        CircleImagePopulation second = runPopulation(canvas, background, SEED);
+        if ( !areSameCircles(first, second) ) {
+            throw new AssertionError("Two runs with the same seed differ");
+        }
+        CircleImagePopulation other = runPopulation(canvas, background, SEED + 1);
+        if ( areSameCircles(first, other) ) {
+            throw new AssertionError("Two runs with different seeds are equal");
+        }
+
+        CircleImageFactory root = new CircleImageFactory(SEED);
+        CircleImageFactory worker0 = root.split();
+        CircleImageFactory worker1 = root.split();
+        if ( worker0.getRandom().nextLong() == worker1.getRandom().nextLong() ) {
+            throw new AssertionError("The split factories repeat the same sequence");
+        }
+
+        System.out.println("Same seed, same " + first.getCircles().size() + " circles after " + GENERATIONS + " generations");
+    }
+
+}
@@ -0,0 +1,64 @@
+package testing;
+
+import circlesimage.CanvasDimensions;
+import circlesimage.CircleImage;
+import circlesimage.SteadyStatePopulation;
+import engine.gfx.images.Image;
+
+/**
+ * This class runs the steady state population for some
+ * seconds and checks that it keeps the limit of circles
+ * and that the mean score of the circles improves
+ *
+ * @class TestingSteadyState
+ * @author Sergio Martí Torregrosa
+ * @date 23/11/2020
+ */
+public class TestingSteadyState {
+
+    private static final int MAX_CIRCLES = 500;
+
+    private static final long RUNNING_TIME = 2000;
+
+    private static double getMeanScore(SteadyStatePopulation population) {
+        double sum = 0;
+        int count = 0;
+        for ( CircleImage c : population.getRankedCircles() ) {
+            sum += c.getScore();
+            count++;
+        }
+        return sum / count;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Image background = new Image("/dynastes_hercules.jpg");
+        CanvasDimensions canvas = new CanvasDimensions(background.getW(), background.getH());
+
+        SteadyStatePopulation population = new SteadyStatePopulation();
+        population.getFactory().setSeed(1234L);
+        population.getCirclePopulationLimits().setX(MAX_CIRCLES);
+        population.getCirclePopulationLimits().setY(20);
+        population.setNumWorkers(4);
+        population.buildPopulation(canvas, background);
+        double initialScore = getMeanScore(population);
+
+        population.start();
+        Thread.sleep(RUNNING_TIME);
+        population.stop();
+
+        int size = population.getRankedCircles().size();
+        if ( size != population.getNumCircles() || size != MAX_CIRCLES ) {
+            throw new AssertionError("There are " + size + " circles, counted " + population.getNumCircles());
+        }
+        if ( population.getNumBabies() + 20 - population.getNumEvicted() != size ) {
+            throw new AssertionError("Babies and evicted circles don't match the circles");
+        }
+        double finalScore = getMeanScore(population);
+        if ( finalScore <= initialScore ) {
+            throw new AssertionError("The mean score doesn't improve: " + initialScore + " -> " + finalScore);
+        }
+        System.out.printf("%.0f babies by second, mean score %.4f -> %.4f%n",
+                population.getNumBabies() / (RUNNING_TIME / 1000.0), initialScore, finalScore);
+    }
+
+}